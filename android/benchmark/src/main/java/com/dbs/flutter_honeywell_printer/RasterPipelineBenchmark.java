@@ -0,0 +1,234 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures each stage of turning a rendered page into ZPL, the way the plugin runs them:
+ * thresholding and bit packing, whitespace trimming, {@code ^GFA} encoding in each
+ * compression mode, and the whole pipeline. Pages are synthetic receipts of several heights.
+ * <p>
+ * Like JMH, each benchmark first runs warmup iterations so the JIT settles, then timed
+ * iterations of repeated calls; results are the mean time per page with its standard
+ * deviation, and the bytes one page produces.
+ * <p>
+ * Options: {@code --heights 400,1600,6400 --width 576 --warmup 3 --iterations 5
+ * --time 500 (ms per iteration) --filter <substring of a benchmark name>}
+ */
+public final class RasterPipelineBenchmark {
+    private static final int MIN_SKIPPED_BAND_ROWS = 48; // as in HoneywellPrinterManager
+    private static final int TRIM_MARGIN_ROWS = 5;
+
+    // Results are accumulated here so the JIT cannot drop the benchmarked work
+    static volatile long sink;
+
+    /**
+     * One call processes one page and returns the number of bytes it produced
+     */
+    private interface PageOperation {
+        long run();
+    }
+
+    private static final class Benchmark {
+        final String name;
+        final PageOperation operation;
+
+        Benchmark(String name, PageOperation operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    private int width = 576;
+    private int[] heights = {400, 1600, 6400};
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationNanos = 500_000_000L;
+    private String filter = null;
+
+    public static void main(String[] args) {
+        RasterPipelineBenchmark benchmark = new RasterPipelineBenchmark();
+        benchmark.parseArguments(args);
+        benchmark.runAll();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--heights":
+                    String[] parts = value.split(",");
+                    heights = new int[parts.length];
+                    for (int h = 0; h < parts.length; h++) {
+                        heights[h] = Integer.parseInt(parts[h].trim());
+                    }
+                    break;
+                case "--width":
+                    width = Integer.parseInt(value);
+                    break;
+                case "--warmup":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    iterations = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--time":
+                    iterationNanos = Long.parseLong(value) * 1_000_000L;
+                    break;
+                case "--filter":
+                    filter = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+    }
+
+    private void runAll() {
+        System.out.println(String.format(Locale.ROOT, "# JVM %s, %d warmup + %d iterations of %d ms, width %d dots",
+                System.getProperty("java.vm.version"), warmupIterations, iterations, iterationNanos / 1_000_000L, width));
+        System.out.println(String.format(Locale.ROOT, "%-22s %6s %14s %12s %12s",
+                "Benchmark", "rows", "ns/page", "error", "bytes/page"));
+
+        for (int height : heights) {
+            for (Benchmark benchmark : benchmarksFor(height)) {
+                if (filter == null || benchmark.name.contains(filter)) {
+                    run(benchmark, height);
+                }
+            }
+        }
+    }
+
+    private List<Benchmark> benchmarksFor(final int height) {
+        final int[] pixels = SyntheticReceipt.draw(width, height);
+
+        // A packed copy of the page and its bands for the stages that come after packing
+        final MonochromeRaster packed = new MonochromeRaster();
+        packed.reset(width, height);
+        packed.packArgbRows(pixels, 0, width, 0, height, MonochromeRaster.DEFAULT_THRESHOLD);
+        final int[] packedBands = trim(packed);
+
+        final MonochromeRaster raster = new MonochromeRaster();
+        final CommandBuffer out = new CommandBuffer(64 * 1024);
+        final ZplGraphicEncoder encoder = new ZplGraphicEncoder();
+
+        List<Benchmark> benchmarks = new ArrayList<>();
+        benchmarks.add(new Benchmark("threshold+pack", new PageOperation() {
+            @Override
+            public long run() {
+                raster.reset(width, height);
+                raster.packArgbRows(pixels, 0, width, 0, height, MonochromeRaster.DEFAULT_THRESHOLD);
+                return (long) raster.getBytesPerRow() * height;
+            }
+        }));
+        benchmarks.add(new Benchmark("trim", new PageOperation() {
+            @Override
+            public long run() {
+                // Bytes left to encode after trimming
+                int[] bands = trim(packed);
+                long rows = 0;
+                for (int i = 0; i < bands.length; i += 2) {
+                    rows += bands[i + 1] - bands[i];
+                }
+                return rows * packed.getBytesPerRow();
+            }
+        }));
+        for (final ZplGraphicEncoder.Compression compression : ZplGraphicEncoder.Compression.values()) {
+            benchmarks.add(new Benchmark("encode " + compression.name().toLowerCase(Locale.ROOT), new PageOperation() {
+                @Override
+                public long run() {
+                    encoder.setCompression(compression);
+                    out.reset();
+                    encoder.writeGraphicField(out, packed, 0, 0);
+                    return out.size();
+                }
+            }));
+        }
+        benchmarks.add(new Benchmark("encode auto banded", new PageOperation() {
+            @Override
+            public long run() {
+                encoder.setCompression(ZplGraphicEncoder.Compression.AUTO);
+                out.reset();
+                writeBands(encoder, out, packed, packedBands);
+                return out.size();
+            }
+        }));
+        benchmarks.add(new Benchmark("pipeline", new PageOperation() {
+            @Override
+            public long run() {
+                raster.reset(width, height);
+                raster.packArgbRows(pixels, 0, width, 0, height, MonochromeRaster.DEFAULT_THRESHOLD);
+                encoder.setCompression(ZplGraphicEncoder.Compression.AUTO);
+                out.reset();
+                writeBands(encoder, out, raster, trim(raster));
+                return out.size();
+            }
+        }));
+        return benchmarks;
+    }
+
+    /**
+     * Trim the blank top and bottom and split the rest into bands, as a printed page is
+     */
+    private static int[] trim(MonochromeRaster raster) {
+        int height = raster.getHeight();
+        int firstRow = Math.max(0, raster.findFirstInkRow(0, height) - TRIM_MARGIN_ROWS);
+        int endRow = Math.min(height, raster.findLastInkRow(firstRow, height) + 1 + TRIM_MARGIN_ROWS);
+        if (endRow <= firstRow) {
+            return new int[0];
+        }
+        return raster.findInkBands(firstRow, endRow, MIN_SKIPPED_BAND_ROWS);
+    }
+
+    private static void writeBands(ZplGraphicEncoder encoder, CommandBuffer out, MonochromeRaster raster, int[] bands) {
+        int firstRow = bands.length > 0 ? bands[0] : 0;
+        for (int i = 0; i < bands.length; i += 2) {
+            encoder.writeGraphicField(out, raster, bands[i], bands[i + 1] - bands[i], 0, bands[i] - firstRow);
+        }
+    }
+
+    private void run(Benchmark benchmark, int height) {
+        for (int i = 0; i < warmupIterations; i++) {
+            measure(benchmark.operation);
+        }
+
+        double[] nanosPerPage = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            nanosPerPage[i] = measure(benchmark.operation);
+        }
+        long bytesPerPage = benchmark.operation.run();
+
+        double mean = 0;
+        for (double value : nanosPerPage) {
+            mean += value;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double value : nanosPerPage) {
+            variance += (value - mean) * (value - mean);
+        }
+        double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+        System.out.println(String.format(Locale.ROOT, "%-22s %6d %14.0f %12s %12d",
+                benchmark.name, height, mean, String.format(Locale.ROOT, "+- %.0f", deviation), bytesPerPage));
+    }
+
+    /**
+     * Run the operation repeatedly for one iteration
+     * @return Mean nanoseconds per call
+     */
+    private double measure(PageOperation operation) {
+        long calls = 0;
+        long result = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            result += operation.run();
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        sink += result;
+        return (double) elapsed / calls;
+    }
+}
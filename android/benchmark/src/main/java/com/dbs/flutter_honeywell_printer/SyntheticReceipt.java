@@ -0,0 +1,104 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws receipt-like ARGB pages the way PdfRenderer hands them over: a gray logo,
+ * lines of anti-aliased text with ragged right edges, blank gaps between sections
+ * and a barcode, repeated down the page. Pages are deterministic for a given size.
+ */
+final class SyntheticReceipt {
+    static final int WHITE = 0xFFFFFFFF;
+    static final int BLACK = 0xFF000000;
+
+    private static final int LOGO_ROWS = 120;
+    private static final int TEXT_ROWS = 24;
+    private static final int LINE_GAP_ROWS = 8;
+    private static final int GLYPH_WIDTH = 12;
+    private static final int SECTION_GAP_ROWS = 96;
+    private static final int BARCODE_ROWS = 80;
+    private static final int MARGIN = 16;
+
+    private SyntheticReceipt() {
+    }
+
+    /**
+     * @return {@code width * height} ARGB pixels, one row after another
+     */
+    static int[] draw(int width, int height) {
+        int[] pixels = new int[width * height];
+        Arrays.fill(pixels, WHITE);
+        Random random = new Random(width * 31L + height);
+
+        int row = drawLogo(pixels, width, height, 0);
+        while (row < height) {
+            // A section of 4 to 12 text lines, then a gap, sometimes a barcode
+            int lines = 4 + random.nextInt(9);
+            for (int i = 0; i < lines && row < height; i++) {
+                row = drawTextLine(pixels, width, height, row, random) + LINE_GAP_ROWS;
+            }
+            row += SECTION_GAP_ROWS;
+            if (random.nextInt(4) == 0) {
+                row = drawBarcode(pixels, width, height, row, random) + SECTION_GAP_ROWS;
+            }
+        }
+        return pixels;
+    }
+
+    private static int drawLogo(int[] pixels, int width, int height, int top) {
+        int bottom = Math.min(height, top + LOGO_ROWS);
+        int left = width / 4;
+        int right = width - width / 4;
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                // Diagonal gray gradient, half of it prints after thresholding
+                int gray = ((x - left) + (y - top)) * 255 / ((right - left) + LOGO_ROWS);
+                pixels[y * width + x] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+            }
+        }
+        return bottom + SECTION_GAP_ROWS / 2;
+    }
+
+    private static int drawTextLine(int[] pixels, int width, int height, int top, Random random) {
+        int bottom = Math.min(height, top + TEXT_ROWS);
+        int glyphs = (width - 2 * MARGIN) / GLYPH_WIDTH;
+        int length = glyphs / 3 + random.nextInt(glyphs - glyphs / 3);
+        for (int g = 0; g < length; g++) {
+            if (random.nextInt(6) == 0) {
+                continue; // space
+            }
+            int left = MARGIN + g * GLYPH_WIDTH;
+            int shape = random.nextInt();
+            for (int y = top + 4; y < bottom - 2; y++) {
+                for (int x = left + 1; x < left + GLYPH_WIDTH - 2; x++) {
+                    int cell = ((y - top) / 4) * 3 + (x - left) / 4;
+                    if ((shape >>> (cell % 32) & 1) != 0) {
+                        // Anti-aliased edge columns are gray
+                        boolean edge = x == left + 1 || x == left + GLYPH_WIDTH - 3;
+                        pixels[y * width + x] = edge ? 0xFF707070 : BLACK;
+                    }
+                }
+            }
+        }
+        return bottom;
+    }
+
+    private static int drawBarcode(int[] pixels, int width, int height, int top, Random random) {
+        int bottom = Math.min(height, top + BARCODE_ROWS);
+        int x = width / 6;
+        int end = width - width / 6;
+        boolean bar = true;
+        while (x < end) {
+            int module = 2 + 2 * random.nextInt(3);
+            if (bar) {
+                for (int y = top; y < bottom; y++) {
+                    Arrays.fill(pixels, y * width + x, y * width + Math.min(end, x + module), BLACK);
+                }
+            }
+            x += module;
+            bar = !bar;
+        }
+        return bottom;
+    }
+}
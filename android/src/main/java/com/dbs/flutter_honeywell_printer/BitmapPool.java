@@ -0,0 +1,144 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Pool of mutable ARGB_8888 bitmaps reused for rendering, trimming and scaling pages.
+ * Bitmaps are grouped by width and a rounded-up height class and are handed out
+ * reconfigured to the exact size requested, so pages of similar size keep reusing the
+ * same native allocation across pages and print jobs.
+ */
+class BitmapPool {
+    private static final String TAG = "BitmapPool";
+    private static final int HEIGHT_CLASS_ROWS = 256; // heights are rounded up to this many rows
+    private static final int BYTES_PER_PIXEL = 4;
+
+    // Free bitmaps by size class, oldest first: acquire reuses the most recently released one,
+    // trimming frees the ones idle longest
+    private final Map<Long, ArrayDeque<Bitmap>> freeBitmaps = new HashMap<>();
+    private long budgetBytes;
+    private long pooledBytes = 0;
+
+    /**
+     * @param budgetBytes Maximum native memory kept by idle bitmaps in the pool
+     */
+    BitmapPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Get a white bitmap of exactly the given size, reusing a pooled allocation when possible
+     */
+    Bitmap acquire(int width, int height) {
+        int heightClass = heightClass(height);
+        Bitmap bitmap = null;
+
+        synchronized (this) {
+            ArrayDeque<Bitmap> bucket = freeBitmaps.get(sizeKey(width, heightClass));
+            if (bucket != null) {
+                bitmap = bucket.pollLast();
+                if (bitmap != null) {
+                    pooledBytes -= bitmap.getAllocationByteCount();
+                }
+            }
+        }
+
+        if (bitmap == null) {
+            Log.d(TAG, "Allocating bitmap " + width + "x" + heightClass);
+            bitmap = Bitmap.createBitmap(width, heightClass, Bitmap.Config.ARGB_8888);
+        }
+
+        bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.WHITE);
+        return bitmap;
+    }
+
+    /**
+     * Return a bitmap to the pool, or free it if the pool is over budget
+     */
+    void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        int width = bitmap.getWidth();
+        int allocatedBytes = bitmap.getAllocationByteCount();
+        int heightClass = allocatedBytes / (width * BYTES_PER_PIXEL);
+
+        synchronized (this) {
+            if (heightClass == heightClass(heightClass) && pooledBytes + allocatedBytes <= budgetBytes) {
+                ArrayDeque<Bitmap> bucket = freeBitmaps.get(sizeKey(width, heightClass));
+                if (bucket == null) {
+                    bucket = new ArrayDeque<>();
+                    freeBitmaps.put(sizeKey(width, heightClass), bucket);
+                }
+                bucket.addLast(bitmap);
+                pooledBytes += allocatedBytes;
+                return;
+            }
+        }
+
+        // Not a pooled size class or no room left
+        bitmap.recycle();
+    }
+
+    /**
+     * Change the memory budget, freeing idle bitmaps that no longer fit
+     */
+    synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trimToBudget();
+    }
+
+    synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Free every idle bitmap
+     */
+    synchronized void clear() {
+        for (ArrayDeque<Bitmap> bucket : freeBitmaps.values()) {
+            for (Bitmap bitmap : bucket) {
+                bitmap.recycle();
+            }
+        }
+        freeBitmaps.clear();
+        pooledBytes = 0;
+    }
+
+    private void trimToBudget() {
+        Iterator<ArrayDeque<Bitmap>> buckets = freeBitmaps.values().iterator();
+        while (pooledBytes > budgetBytes && buckets.hasNext()) {
+            ArrayDeque<Bitmap> bucket = buckets.next();
+            while (pooledBytes > budgetBytes && !bucket.isEmpty()) {
+                Bitmap bitmap = bucket.pollFirst();
+                pooledBytes -= bitmap.getAllocationByteCount();
+                bitmap.recycle();
+            }
+            if (bucket.isEmpty()) {
+                buckets.remove();
+            }
+        }
+    }
+
+    private static int heightClass(int height) {
+        int classes = (Math.max(height, 1) + HEIGHT_CLASS_ROWS - 1) / HEIGHT_CLASS_ROWS;
+        return classes * HEIGHT_CLASS_ROWS;
+    }
+
+    private static long sizeKey(int width, int heightClass) {
+        return ((long) width << 32) | heightClass;
+    }
+}
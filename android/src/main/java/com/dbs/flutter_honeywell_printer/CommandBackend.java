@@ -0,0 +1,55 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * Writes a packed page as one label in a printer's command language. Every backend
+ * prints the same rows at the same positions: the rows {@code [firstRow, endRow)} of the
+ * raster make up the label, and only the ink bands in between are sent as graphic data.
+ * Label sizes follow the {@link PrinterProfile} of the printer.
+ */
+interface CommandBackend {
+    int MIN_LABEL_HEIGHT_MM = 10;
+
+    CommandLanguage getLanguage();
+
+    /**
+     * Write the commands of one label
+     * @param profile Resolution, head width and media of the printer
+     * @param bands Start and end (exclusive) row of each band with ink, as consecutive pairs
+     * @param sendSetup Also write label gap, print direction and print position, which the printer keeps for later labels
+     * @param withGap Labels are separated by a gap rather than printed as one continuous receipt, ignored on continuous media
+     * @param copies Number of copies of the label
+     */
+    void writeLabel(CommandBuffer out, PrinterProfile profile, MonochromeRaster raster, int firstRow, int endRow,
+                    int[] bands, boolean sendSetup, boolean withGap, int copies);
+
+    /**
+     * Label length in mm for a number of printed rows, for languages that size labels in mm
+     */
+    static int labelHeightMm(PrinterProfile profile, int rows) {
+        return Math.max(rows / profile.dotsPerMm, MIN_LABEL_HEIGHT_MM);
+    }
+
+    /**
+     * Label length in dots for a number of printed rows, for languages that size labels in dots
+     */
+    static int labelHeightDots(PrinterProfile profile, int rows) {
+        return Math.max(rows, MIN_LABEL_HEIGHT_MM * profile.dotsPerMm);
+    }
+
+    /**
+     * @param zplEncoder Encoder of the printer's session, which holds its ZPL compression mode
+     */
+    static CommandBackend forLanguage(CommandLanguage language, ZplGraphicEncoder zplEncoder) {
+        switch (language) {
+            case CPCL:
+                return new CpclBackend();
+            case TSC:
+                return new TscBackend();
+            case ESC_POS:
+                return new EscPosBackend();
+            case ZPL:
+            default:
+                return new ZplBackend(zplEncoder);
+        }
+    }
+}
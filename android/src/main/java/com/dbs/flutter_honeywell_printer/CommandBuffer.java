@@ -0,0 +1,93 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer used to assemble printer commands.
+ * The backing array is kept between jobs, so encoding a page does not allocate
+ * once the buffer has grown to the size of a typical page.
+ */
+final class CommandBuffer {
+    private byte[] buffer;
+    private int length = 0;
+
+    CommandBuffer(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Discard the content but keep the allocated capacity
+     */
+    void reset() {
+        length = 0;
+    }
+
+    int size() {
+        return length;
+    }
+
+    /**
+     * Direct access to the backing array, valid until the next write
+     */
+    byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * Reserve space for {@code count} bytes that the caller writes directly into {@link #array()}
+     * @return Offset of the reserved space in the backing array
+     */
+    int reserve(int count) {
+        ensureCapacity(length + count);
+        int offset = length;
+        length += count;
+        return offset;
+    }
+
+    /**
+     * Drop everything after the first {@code newLength} bytes
+     */
+    void truncate(int newLength) {
+        if (newLength < length) {
+            length = Math.max(0, newLength);
+        }
+    }
+
+    CommandBuffer write(byte[] bytes) {
+        if (bytes != null) {
+            write(bytes, 0, bytes.length);
+        }
+        return this;
+    }
+
+    CommandBuffer write(byte[] bytes, int offset, int count) {
+        ensureCapacity(length + count);
+        System.arraycopy(bytes, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    CommandBuffer write(int b) {
+        ensureCapacity(length + 1);
+        buffer[length++] = (byte) b;
+        return this;
+    }
+
+    CommandBuffer writeAscii(String text) {
+        return write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Copy the content into a new array of the exact size
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
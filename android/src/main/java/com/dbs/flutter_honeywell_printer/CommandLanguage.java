@@ -0,0 +1,15 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * Command language a printer is driven in
+ */
+public enum CommandLanguage {
+    /** Zebra ZPL, graphics as compressed {@code ^GFA} fields */
+    ZPL,
+    /** Zebra/Comtec CPCL, graphics as binary {@code CG} commands */
+    CPCL,
+    /** TSC TSPL, graphics as binary {@code BITMAP} commands */
+    TSC,
+    /** Epson ESC/POS, graphics as {@code GS v 0} raster images */
+    ESC_POS
+}
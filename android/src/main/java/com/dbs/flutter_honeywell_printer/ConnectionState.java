@@ -0,0 +1,17 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * Connection state of a printer, driven by the printer observer callbacks
+ */
+public enum ConnectionState {
+    /** Not connected and no connection attempt running */
+    IDLE,
+    /** Waiting for the printer to report the connection result */
+    CONNECTING,
+    /** Connected and ready to print */
+    CONNECTED,
+    /** The last connection attempt failed or timed out */
+    FAILED,
+    /** The link was lost in persistent mode, reconnecting in the background while jobs are held */
+    RECONNECTING
+}
@@ -0,0 +1,42 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * CPCL labels: each band as a binary {@code CG} (compressed graphics) command. The label
+ * header carries the height and the number of copies; {@code FORM} feeds to the next gap
+ * when labels are separated, otherwise the receipt continues right after the last row.
+ */
+final class CpclBackend implements CommandBackend {
+
+    @Override
+    public CommandLanguage getLanguage() {
+        return CommandLanguage.CPCL;
+    }
+
+    @Override
+    public void writeLabel(CommandBuffer out, PrinterProfile profile, MonochromeRaster raster, int firstRow, int endRow,
+                           int[] bands, boolean sendSetup, boolean withGap, int copies) {
+        boolean gaps = withGap && !profile.isContinuous();
+        int bytesPerRow = raster.getBytesPerRow();
+        int height = Math.max(endRow - firstRow, 1);
+
+        // CPCL names resolutions 200, 300 and 600 rather than 203, 305 and 609 DPI
+        int resolution = profile.dotsPerMm * 25;
+        out.writeAscii("! 0 " + resolution + " " + resolution + " " + height + " " + copies + "\r\n");
+        out.writeAscii("PAGE-WIDTH " + bytesPerRow * 8 + "\r\n");
+        for (int i = 0; i < bands.length; i += 2) {
+            int rows = bands[i + 1] - bands[i];
+            out.writeAscii("CG " + bytesPerRow + " " + rows + " 0 " + (bands[i] - firstRow) + " ");
+            out.write(raster.getData(), bands[i] * bytesPerRow, rows * bytesPerRow);
+            out.writeAscii("\r\n");
+        }
+        if (gaps) {
+            out.writeAscii("FORM\r\n");
+        }
+        out.writeAscii("PRINT\r\n");
+    }
+
+    @Override
+    public String toString() {
+        return "CPCL";
+    }
+}
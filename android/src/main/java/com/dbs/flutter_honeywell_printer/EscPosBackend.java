@@ -0,0 +1,62 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * ESC/POS labels: each band as {@code GS v 0} raster images in strips the printer can buffer,
+ * with the blank rows between bands fed with {@code ESC J} instead of being sent.
+ * ESC/POS has no copy count, so copies repeat the label.
+ */
+final class EscPosBackend implements CommandBackend {
+    private static final int MAX_STRIP_ROWS = 256; // rows per raster image, kept small for printers with little RAM
+    private static final int MAX_FEED_DOTS = 255; // largest ESC J feed
+
+    @Override
+    public CommandLanguage getLanguage() {
+        return CommandLanguage.ESC_POS;
+    }
+
+    @Override
+    public void writeLabel(CommandBuffer out, PrinterProfile profile, MonochromeRaster raster, int firstRow, int endRow,
+                           int[] bands, boolean sendSetup, boolean withGap, int copies) {
+        boolean gaps = withGap && !profile.isContinuous();
+        if (sendSetup) {
+            // ESC @, reset to defaults
+            out.write(0x1B).write('@');
+        }
+
+        int bytesPerRow = raster.getBytesPerRow();
+        for (int copy = 0; copy < copies; copy++) {
+            int row = firstRow;
+            for (int i = 0; i < bands.length; i += 2) {
+                feed(out, bands[i] - row);
+                for (int strip = bands[i]; strip < bands[i + 1]; strip += MAX_STRIP_ROWS) {
+                    int rows = Math.min(MAX_STRIP_ROWS, bands[i + 1] - strip);
+                    // GS v 0, normal density, width in bytes and height in dots, low byte first
+                    out.write(0x1D).write('v').write('0').write(0)
+                            .write(bytesPerRow & 0xFF).write(bytesPerRow >> 8)
+                            .write(rows & 0xFF).write(rows >> 8);
+                    out.write(raster.getData(), strip * bytesPerRow, rows * bytesPerRow);
+                }
+                row = bands[i + 1];
+            }
+            feed(out, endRow - row);
+            if (gaps) {
+                // GS FF, feed to the start of the next label
+                out.write(0x1D).write(0x0C);
+            }
+        }
+    }
+
+    private static void feed(CommandBuffer out, int dots) {
+        while (dots > 0) {
+            int step = Math.min(dots, MAX_FEED_DOTS);
+            // ESC J, print and feed n dots
+            out.write(0x1B).write('J').write(step);
+            dots -= step;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ESC/POS";
+    }
+}
@@ -6,7 +6,16 @@ import android.os.Looper;
 import android.util.Log;
 import androidx.annotation.NonNull;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
+import io.flutter.plugin.common.EventChannel;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
@@ -17,6 +26,9 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
   private static final String TAG = "HoneywellPrinterPlugin";
   /// The MethodChannel that will handle communication between Flutter and native Android
   private MethodChannel channel;
+  /// Streams print job progress events to Flutter
+  private EventChannel eventChannel;
+  private EventChannel.EventSink eventSink;
   private Context context;
   private HoneywellPrinterManager printerManager;
   private Handler mainHandler;
@@ -29,6 +41,33 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
     printerManager = new HoneywellPrinterManager(context);
     mainHandler = new Handler(Looper.getMainLooper());
 
+    eventChannel = new EventChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_honeywell_printer/events");
+    eventChannel.setStreamHandler(new EventChannel.StreamHandler() {
+      @Override
+      public void onListen(Object arguments, EventChannel.EventSink events) {
+        Log.d(TAG, "Print event stream opened");
+        eventSink = events;
+        printerManager.setPrintEventListener(new HoneywellPrinterManager.PrintEventListener() {
+          @Override
+          public void onPrintEvent(Map<String, Object> event) {
+            // Events come from the print queue threads, the sink must be used on the main thread
+            mainHandler.post(() -> {
+              if (eventSink != null) {
+                eventSink.success(event);
+              }
+            });
+          }
+        });
+      }
+
+      @Override
+      public void onCancel(Object arguments) {
+        Log.d(TAG, "Print event stream closed");
+        printerManager.setPrintEventListener(null);
+        eventSink = null;
+      }
+    });
+
     Log.d(TAG, "Plugin attached to Flutter engine");
   }
 
@@ -36,6 +75,9 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
   public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
     Log.d(TAG, "Method call received: " + call.method);
 
+    // Printer a call is about, null targets the printer connected last
+    String targetAddress = call.argument("macAddress");
+
     switch (call.method) {
       case "connectPrinter":
         String macAddress = call.argument("macAddress");
@@ -45,8 +87,11 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
           return;
         }
 
-        Log.d(TAG, "Connecting to printer: " + macAddress);
-        printerManager.connectPrinter(macAddress, new HoneywellPrinterManager.PrinterCallback() {
+        Number timeoutArg = call.argument("timeoutMs");
+        long timeoutMs = timeoutArg != null ? timeoutArg.longValue() : 10000;
+
+        Log.d(TAG, "Connecting to printer: " + macAddress + ", timeout: " + timeoutMs + " ms");
+        printerManager.connectPrinter(macAddress, timeoutMs, new HoneywellPrinterManager.PrinterCallback() {
           @Override
           public void onResult(boolean success, String message) {
             // Ensure callback happens on main thread
@@ -63,22 +108,68 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
         });
         break;
 
+      case "connectNetworkPrinter":
+        String host = call.argument("host");
+        if (host == null || host.trim().isEmpty()) {
+          result.error("INVALID_ARGUMENT", "Host is required", null);
+          return;
+        }
+
+        Integer portArg = call.argument("port");
+        int port = portArg != null ? portArg : TcpPrinterTransport.DEFAULT_PORT;
+        if (port < 1 || port > TcpPrinterTransport.MAX_PORT) {
+          result.error("INVALID_ARGUMENT", "Port must be 1 to " + TcpPrinterTransport.MAX_PORT, null);
+          return;
+        }
+        Number networkTimeoutArg = call.argument("timeoutMs");
+        long networkTimeoutMs = networkTimeoutArg != null ? networkTimeoutArg.longValue() : 10000;
+
+        Log.d(TAG, "Connecting to network printer: " + host + ":" + port + ", timeout: " + networkTimeoutMs + " ms");
+        printerManager.connectNetworkPrinter(host, port, networkTimeoutMs, new HoneywellPrinterManager.PrinterCallback() {
+          @Override
+          public void onResult(boolean success, String message) {
+            // Ensure callback happens on main thread
+            mainHandler.post(() -> {
+              if (success) {
+                Log.d(TAG, "Network printer connected successfully: " + message);
+                result.success(true);
+              } else {
+                Log.e(TAG, "Network printer connection failed: " + message);
+                result.error("CONNECTION_FAILED", message, null);
+              }
+            });
+          }
+        });
+        break;
+
       case "isPrinterConnected":
-        boolean connected = printerManager.isPrinterConnected();
+        boolean connected = printerManager.isPrinterConnected(targetAddress);
         Log.d(TAG, "Printer connected status: " + connected);
         result.success(connected);
         break;
 
+      case "getConnectionState":
+        ConnectionState state = printerManager.getConnectionState(targetAddress);
+        Log.d(TAG, "Printer connection state: " + state);
+        result.success(state.name());
+        break;
+
       case "getLastConnectionError":
-        String errorMsg = printerManager.getLastConnectionError();
+        String errorMsg = printerManager.getLastConnectionError(targetAddress);
         Log.d(TAG, "Last connection error: " + (errorMsg != null ? errorMsg : "None"));
         result.success(errorMsg != null ? errorMsg : "");
         break;
 
+      case "getPrinterProfile":
+        result.success(printerManager.getPrinterProfile(targetAddress));
+        break;
+
       case "printPdf":
         String pdfPath = call.argument("pdfPath");
         Boolean withGapArg = call.argument("withGap");
         boolean withGap = withGapArg != null ? withGapArg : false;
+        Integer priorityArg = call.argument("priority");
+        int priority = priorityArg != null ? priorityArg : PrintJobQueue.PRIORITY_NORMAL;
 
         if (pdfPath == null || pdfPath.isEmpty()) {
           Log.e(TAG, "Invalid PDF path provided");
@@ -86,14 +177,15 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
           return;
         }
 
-        if (!printerManager.isPrinterConnected()) {
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
           Log.e(TAG, "Cannot print - printer not connected");
           result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
           return;
         }
 
-        Log.d(TAG, "Printing PDF: " + pdfPath + ", withGap: " + withGap);
-        printerManager.printPdf(pdfPath, withGap, new HoneywellPrinterManager.PrinterCallback() {
+        Log.d(TAG, "Printing PDF: " + pdfPath + ", withGap: " + withGap + ", priority: " + priority);
+        boolean smallestPayload = Boolean.TRUE.equals(call.argument("smallestPayload"));
+        long pdfJobId = printerManager.printPdf(targetAddress, pdfPath, withGap, priority, smallestPayload, new HoneywellPrinterManager.PrinterCallback() {
           @Override
           public void onResult(boolean success, String message) {
             // Ensure callback happens on main thread
@@ -108,11 +200,439 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
             });
           }
         });
+        reportSubmitted(call, pdfJobId);
+        break;
+
+      case "printPdfBytes":
+        byte[] pdfBytes = call.argument("bytes");
+        Boolean bytesWithGapArg = call.argument("withGap");
+        Integer bytesPriorityArg = call.argument("priority");
+
+        if (pdfBytes == null || pdfBytes.length == 0) {
+          Log.e(TAG, "No PDF data provided");
+          result.error("INVALID_ARGUMENT", "PDF data is required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot print - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        Log.d(TAG, "Printing PDF from memory, " + pdfBytes.length + " bytes");
+        long bytesJobId = printerManager.printPdfBytes(targetAddress, pdfBytes,
+            bytesWithGapArg != null ? bytesWithGapArg : false,
+            bytesPriorityArg != null ? bytesPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            Boolean.TRUE.equals(call.argument("smallestPayload")),
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "PDF printing failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, bytesJobId);
+        break;
+
+      case "printRaw":
+        byte[] rawCommands = call.argument("data");
+        Integer rawPriorityArg = call.argument("priority");
+
+        if (rawCommands == null || rawCommands.length == 0) {
+          result.error("INVALID_ARGUMENT", "Command data is required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot send commands - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        long rawJobId = printerManager.printRaw(targetAddress, rawCommands,
+            rawPriorityArg != null ? rawPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "Sending commands failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, rawJobId);
+        break;
+
+      case "queuePdf":
+        String queuedPdfPath = call.argument("pdfPath");
+        Boolean queuedWithGapArg = call.argument("withGap");
+        Integer queuedPriorityArg = call.argument("priority");
+
+        if (queuedPdfPath == null || queuedPdfPath.isEmpty()) {
+          Log.e(TAG, "Invalid PDF path provided");
+          result.error("INVALID_ARGUMENT", "PDF path is required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot queue print - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        // The job ID is returned right away, the outcome is only logged
+        long jobId = printerManager.printPdf(targetAddress, queuedPdfPath,
+            queuedWithGapArg != null ? queuedWithGapArg : false,
+            queuedPriorityArg != null ? queuedPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            Boolean.TRUE.equals(call.argument("smallestPayload")),
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                Log.d(TAG, "Queued PDF job finished, success: " + success + ", " + message);
+              }
+            });
+
+        if (jobId < 0) {
+          result.error("QUEUE_FULL", "Print job could not be queued", null);
+        } else {
+          result.success(jobId);
+        }
+        break;
+
+      case "registerTemplate":
+        try {
+          printerManager.registerTemplate(call.argument("name"), call.argument("format"));
+          result.success(true);
+        } catch (IllegalArgumentException e) {
+          Log.e(TAG, "Invalid template: " + e.getMessage());
+          result.error("INVALID_ARGUMENT", e.getMessage(), null);
+        }
+        break;
+
+      case "printTemplate":
+        String templateName = call.argument("name");
+        Map<String, String> fields = call.argument("fields");
+        Integer copiesArg = call.argument("copies");
+        Integer templatePriorityArg = call.argument("priority");
+
+        if (templateName == null || templateName.isEmpty()) {
+          result.error("INVALID_ARGUMENT", "Template name is required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot print template - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        long templateJobId = printerManager.printTemplate(targetAddress, templateName,
+            fields != null ? fields : new HashMap<String, String>(),
+            copiesArg != null ? copiesArg : 1,
+            templatePriorityArg != null ? templatePriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "Template printing failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, templateJobId);
+        break;
+
+      case "printRaster":
+        byte[] rasterPixels = call.argument("pixels");
+        Integer rasterWidth = call.argument("width");
+        Integer rasterHeight = call.argument("height");
+        Boolean packedArg = call.argument("packed");
+        Boolean rasterWithGapArg = call.argument("withGap");
+        Integer rasterCopiesArg = call.argument("copies");
+        Integer rasterPriorityArg = call.argument("priority");
+
+        if (rasterPixels == null || rasterWidth == null || rasterHeight == null) {
+          result.error("INVALID_ARGUMENT", "Pixels, width and height are required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot print raster - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        long rasterJobId = printerManager.printRaster(targetAddress, rasterPixels, rasterWidth, rasterHeight,
+            packedArg != null ? packedArg : false,
+            rasterWithGapArg != null ? rasterWithGapArg : false,
+            rasterCopiesArg != null ? rasterCopiesArg : 1,
+            rasterPriorityArg != null ? rasterPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            Boolean.TRUE.equals(call.argument("smallestPayload")),
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "Raster printing failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, rasterJobId);
+        break;
+
+      case "printBatch":
+        List<Map<String, Object>> itemArgs = call.argument("items");
+        Boolean batchWithGapArg = call.argument("withGap");
+        Integer batchPriorityArg = call.argument("priority");
+
+        if (itemArgs == null || itemArgs.isEmpty()) {
+          result.error("INVALID_ARGUMENT", "Batch items are required", null);
+          return;
+        }
+
+        List<HoneywellPrinterManager.BatchItem> items = new ArrayList<>();
+        for (Map<String, Object> itemArg : itemArgs) {
+          Object copiesValue = itemArg.get("copies");
+          int itemCopies = copiesValue instanceof Integer ? (Integer) copiesValue : 1;
+          if (itemArg.get("pdfPath") instanceof String) {
+            items.add(HoneywellPrinterManager.BatchItem.pdf((String) itemArg.get("pdfPath"), itemCopies));
+          } else if (itemArg.get("zpl") instanceof String) {
+            items.add(HoneywellPrinterManager.BatchItem.zpl(
+                ((String) itemArg.get("zpl")).getBytes(StandardCharsets.UTF_8), itemCopies));
+          } else if (itemArg.get("template") instanceof String) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> itemFields = (Map<String, String>) itemArg.get("fields");
+            items.add(HoneywellPrinterManager.BatchItem.template((String) itemArg.get("template"),
+                itemFields != null ? itemFields : new HashMap<String, String>(), itemCopies));
+          } else {
+            result.error("INVALID_ARGUMENT", "Batch item needs pdfPath, zpl or template", null);
+            return;
+          }
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot print batch - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        Log.d(TAG, "Printing batch of " + items.size() + " documents");
+        long batchJobId = printerManager.printBatch(targetAddress, items,
+            batchWithGapArg != null ? batchWithGapArg : false,
+            batchPriorityArg != null ? batchPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "Batch printing failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, batchJobId);
+        break;
+
+      case "registerGraphic":
+        try {
+          printerManager.registerGraphic(call.argument("name"), call.argument("imagePath"));
+          result.success(true);
+        } catch (IllegalArgumentException | IOException e) {
+          Log.e(TAG, "Invalid graphic: " + e.getMessage());
+          result.error("INVALID_ARGUMENT", e.getMessage(), null);
+        }
+        break;
+
+      case "printGraphic":
+        String graphicName = call.argument("name");
+        Integer xArg = call.argument("x");
+        Integer yArg = call.argument("y");
+        Integer graphicCopiesArg = call.argument("copies");
+        Integer graphicPriorityArg = call.argument("priority");
+
+        if (graphicName == null || graphicName.isEmpty()) {
+          result.error("INVALID_ARGUMENT", "Graphic name is required", null);
+          return;
+        }
+
+        if (!printerManager.isPrinterAvailable(targetAddress)) {
+          Log.e(TAG, "Cannot print graphic - printer not connected");
+          result.error("PRINTER_NOT_CONNECTED", "Printer is not connected", null);
+          return;
+        }
+
+        long graphicJobId = printerManager.printGraphic(targetAddress, graphicName,
+            xArg != null ? xArg : 0,
+            yArg != null ? yArg : 0,
+            graphicCopiesArg != null ? graphicCopiesArg : 1,
+            graphicPriorityArg != null ? graphicPriorityArg : PrintJobQueue.PRIORITY_NORMAL,
+            new HoneywellPrinterManager.PrinterCallback() {
+              @Override
+              public void onResult(boolean success, String message) {
+                // Ensure callback happens on main thread
+                mainHandler.post(() -> {
+                  if (success) {
+                    result.success(true);
+                  } else {
+                    Log.e(TAG, "Graphic printing failed: " + message);
+                    result.error("PRINT_FAILED", message, null);
+                  }
+                });
+              }
+            });
+        reportSubmitted(call, graphicJobId);
+        break;
+
+      case "cancelJob":
+        Number cancelJobId = call.argument("jobId");
+        if (cancelJobId == null) {
+          result.error("INVALID_ARGUMENT", "jobId is required", null);
+          return;
+        }
+
+        result.success(printerManager.cancelJob(cancelJobId.longValue()));
+        break;
+
+      case "setRasterPoolBudget":
+        Number budgetArg = call.argument("budgetBytes");
+        if (budgetArg == null || budgetArg.longValue() < 0) {
+          Log.e(TAG, "Invalid raster pool budget provided");
+          result.error("INVALID_ARGUMENT", "A non-negative budgetBytes is required", null);
+          return;
+        }
+
+        printerManager.setRasterPoolBudget(budgetArg.longValue());
+        result.success(true);
+        break;
+
+      case "setRenderMemoryBudget":
+        Number renderBudgetArg = call.argument("budgetBytes");
+        if (renderBudgetArg == null || renderBudgetArg.longValue() <= 0) {
+          Log.e(TAG, "Invalid render memory budget provided");
+          result.error("INVALID_ARGUMENT", "A positive budgetBytes is required", null);
+          return;
+        }
+
+        printerManager.setRenderMemoryBudget(renderBudgetArg.longValue());
+        result.success(true);
+        break;
+
+      case "setRenderWorkers":
+        Number workersArg = call.argument("workers");
+        if (workersArg == null || workersArg.intValue() < 1) {
+          Log.e(TAG, "Invalid render worker count provided");
+          result.error("INVALID_ARGUMENT", "workers must be at least 1", null);
+          return;
+        }
+
+        printerManager.setRenderWorkers(workersArg.intValue());
+        result.success(true);
+        break;
+
+      case "clearPayloadCache":
+        printerManager.clearPayloadCache();
+        result.success(true);
+        break;
+
+      case "setCommandLanguages":
+        List<String> languageNames = call.argument("languages");
+        if (languageNames == null || languageNames.isEmpty()) {
+          result.error("INVALID_ARGUMENT", "At least one command language is required", null);
+          return;
+        }
+        try {
+          List<CommandLanguage> languages = new ArrayList<>();
+          for (String languageName : languageNames) {
+            languages.add(CommandLanguage.valueOf(languageName.toUpperCase(Locale.ROOT)));
+          }
+          printerManager.setCommandLanguages(targetAddress, languages);
+          result.success(true);
+        } catch (IllegalArgumentException e) {
+          result.error("INVALID_ARGUMENT", e.getMessage(), null);
+        }
+        break;
+
+      case "setPrintQueueLimits":
+        Integer capacityArg = call.argument("capacity");
+        Boolean dropOldestArg = call.argument("dropOldest");
+        try {
+          printerManager.setPrintQueueLimits(targetAddress,
+              capacityArg != null ? capacityArg : PrintJobQueue.DEFAULT_CAPACITY, dropOldestArg != null && dropOldestArg);
+          result.success(true);
+        } catch (IllegalArgumentException e) {
+          result.error("INVALID_ARGUMENT", e.getMessage(), null);
+        }
+        break;
+
+      case "setGraphicMemoryBudget":
+        Number graphicBudgetArg = call.argument("budgetBytes");
+        if (graphicBudgetArg == null) {
+          result.error("INVALID_ARGUMENT", "budgetBytes is required", null);
+          return;
+        }
+        try {
+          printerManager.setGraphicMemoryBudget(targetAddress, graphicBudgetArg.longValue());
+          result.success(true);
+        } catch (IllegalArgumentException e) {
+          result.error("INVALID_ARGUMENT", e.getMessage(), null);
+        }
+        break;
+
+      case "setPersistentConnection":
+        Boolean enabledArg = call.argument("enabled");
+        printerManager.setPersistentConnection(enabledArg != null && enabledArg);
+        result.success(true);
+        break;
+
+      case "getPrintStats":
+        result.success(printerManager.getPrintStats());
+        break;
+
+      case "resetPrintStats":
+        printerManager.resetPrintStats();
+        result.success(true);
+        break;
+
+      case "setStatsLogEnabled":
+        Boolean logEnabledArg = call.argument("enabled");
+        printerManager.setStatsLogEnabled(logEnabledArg != null && logEnabledArg);
+        result.success(true);
+        break;
+
+      case "getConnectedPrinters":
+        result.success(printerManager.getConnectedPrinters());
         break;
 
       case "disconnectPrinter":
-        Log.d(TAG, "Disconnecting printer");
-        printerManager.disconnectPrinter();
+        Log.d(TAG, "Disconnecting printer " + (targetAddress != null ? targetAddress : "(default)"));
+        printerManager.disconnectPrinter(targetAddress);
         result.success(true);
         break;
 
@@ -123,11 +643,30 @@ public class FlutterHoneywellPrinterPlugin implements FlutterPlugin, MethodCallH
     }
   }
 
+  /**
+   * Tell Dart the ID of a job it just submitted, as a 'submitted' event with the requestId
+   * it passed, so the job can be cancelled or matched to its events before it finishes.
+   * Sent on the main thread before the call's result, which only comes once the job is done.
+   */
+  private void reportSubmitted(MethodCall call, long jobId) {
+    Number requestId = call.argument("requestId");
+    if (requestId == null || jobId < 0 || eventSink == null) {
+      return;
+    }
+    Map<String, Object> event = new HashMap<>();
+    event.put("type", "submitted");
+    event.put("jobId", jobId);
+    event.put("requestId", requestId.longValue());
+    eventSink.success(event);
+  }
+
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
     Log.d(TAG, "Plugin detached from Flutter engine");
     channel.setMethodCallHandler(null);
-    printerManager.disconnectPrinter();
+    eventChannel.setStreamHandler(null);
+    eventSink = null;
+    printerManager.shutdown();
     printerManager = null;
   }
 }
\ No newline at end of file
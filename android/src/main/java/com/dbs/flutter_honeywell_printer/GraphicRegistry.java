@@ -0,0 +1,107 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks which graphics one printer holds in memory, evicting the least recently
+ * used ones when their total size would exceed the printer memory budget.
+ */
+final class GraphicRegistry {
+    static final long DEFAULT_BUDGET_BYTES = 512 * 1024;
+
+    /**
+     * A graphic resident on the printer
+     */
+    private static final class Entry {
+        final String hash;
+        final int sizeBytes;
+
+        Entry(String hash, int sizeBytes) {
+            this.hash = hash;
+            this.sizeBytes = sizeBytes;
+        }
+    }
+
+    // Access ordered by printer path, so iteration starts at the least recently used graphic
+    private final LinkedHashMap<String, Entry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long budgetBytes;
+    private long residentBytes = 0;
+
+    GraphicRegistry() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    GraphicRegistry(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Change the budget. Graphics over a lowered budget are deleted from the printer with the next download.
+     */
+    synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * True if this exact version of the graphic is on the printer, marking it as recently used
+     */
+    synchronized boolean isResident(ZplGraphic graphic) {
+        Entry entry = resident.get(graphic.getPrinterPath());
+        return entry != null && entry.hash.equals(graphic.hash);
+    }
+
+    /**
+     * Make room to download a graphic: forget any older version at its path, and evict the least
+     * recently used graphics until it fits the budget. The evicted graphics are forgotten right away,
+     * since the printer may have deleted them even if sending the commands fails.
+     * @param pendingBytes Size of downloads written into the same commands but not sent yet
+     * @return Printer paths of graphics to delete from the printer before the download
+     */
+    synchronized List<String> makeRoom(ZplGraphic graphic, long pendingBytes) {
+        Entry previous = resident.remove(graphic.getPrinterPath());
+        if (previous != null) {
+            residentBytes -= previous.sizeBytes;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> iterator = resident.entrySet().iterator();
+        while (residentBytes + pendingBytes + graphic.getSizeBytes() > budgetBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            residentBytes -= eldest.getValue().sizeBytes;
+            evicted.add(eldest.getKey());
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    /**
+     * Record that the graphic is on the printer, once its download was sent
+     */
+    synchronized void markResident(ZplGraphic graphic) {
+        Entry previous = resident.put(graphic.getPrinterPath(), new Entry(graphic.hash, graphic.getSizeBytes()));
+        if (previous != null) {
+            residentBytes -= previous.sizeBytes;
+        }
+        residentBytes += graphic.getSizeBytes();
+    }
+
+    /**
+     * Forget everything, e.g. after the printer was power cycled and its RAM cleared
+     */
+    synchronized void clear() {
+        resident.clear();
+        residentBytes = 0;
+    }
+
+    synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+}
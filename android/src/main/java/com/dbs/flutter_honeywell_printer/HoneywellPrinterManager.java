@@ -5,52 +5,88 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothManager;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.pdf.PdfRenderer;
-import android.os.ParcelFileDescriptor;
+import android.graphics.BitmapFactory;
 import android.util.Log;
 
-import com.rt.printerlibrary.bean.BluetoothEdrConfigBean;
-import com.rt.printerlibrary.bean.LableSizeBean;
-import com.rt.printerlibrary.bean.Position;
-import com.rt.printerlibrary.cmd.Cmd;
-import com.rt.printerlibrary.cmd.ZplFactory;
 import com.rt.printerlibrary.connect.PrinterInterface;
-import com.rt.printerlibrary.enumerate.CommonEnum;
-import com.rt.printerlibrary.enumerate.ConnectStateEnum;
 import com.rt.printerlibrary.enumerate.PrintDirection;
-import com.rt.printerlibrary.exception.SdkException;
-import com.rt.printerlibrary.factory.cmd.CmdFactory;
-import com.rt.printerlibrary.factory.connect.BluetoothFactory;
-import com.rt.printerlibrary.factory.printer.PrinterFactory;
-import com.rt.printerlibrary.factory.printer.UniversalPrinterFactory;
 import com.rt.printerlibrary.observer.PrinterObserver;
 import com.rt.printerlibrary.observer.PrinterObserverManager;
-import com.rt.printerlibrary.printer.RTPrinter;
-import com.rt.printerlibrary.setting.BitmapSetting;
-import com.rt.printerlibrary.setting.CommonSetting;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class HoneywellPrinterManager implements PrinterObserver {
     private static final String TAG = "HoneywellPrinterManager";
-    private RTPrinter rtPrinter;
     private Context context;
-    private boolean isConnected = false;
-    private final int CONNECTION_TIMEOUT = 10; // seconds
-
-    // Keep track of the last connection result for better debugging
-    private String lastConnectionError = null;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 10000;
+    private static final int RENDER_LOOKAHEAD_PAGES = 2; // pages rendered ahead of the one being printed
+    private static final int MAX_RENDER_WORKERS = 8;
+    private static final int TRIM_MARGIN_ROWS = 5; // blank rows kept next to trimmed content
+    private static final int MIN_SKIPPED_BAND_ROWS = 48; // blank runs of 6 mm or more are fed instead of sent
+    private static final long STATS_LOG_MAX_BYTES = 256 * 1024; // the stats log rolls over to one backup at this size
+    private static final long DEFAULT_RASTER_POOL_BUDGET = 24L * 1024 * 1024; // bytes of idle page bitmaps kept for reuse
+    private static final int PIXEL_STRIP_SIZE = 64 * 1024; // pixels read per getPixels call
+    private static final long PAYLOAD_CACHE_MEMORY_BUDGET = 8L * 1024 * 1024; // encoded jobs kept in memory for reprints
+    private static final long PAYLOAD_CACHE_DISK_BUDGET = 64L * 1024 * 1024; // encoded jobs kept in the app cache dir
+    private static final int MAX_CACHED_PAYLOAD_SIZE = 16 * 1024 * 1024; // larger jobs are printed without caching
+    private static final long PROFILE_QUERY_TIMEOUT_MS = 2000; // wait for each ~HI and ^HH reply
+
+    // Page bitmaps are reused across pages, print jobs and printers
+    private final BitmapPool bitmapPool = new BitmapPool(DEFAULT_RASTER_POOL_BUDGET);
+
+    // Pages rendered in parallel, each worker with its own PdfRenderer. One by default: pdfium calls
+    // of all renderers share one lock since API 26, so more workers mostly cost page bitmaps
+    private volatile int renderWorkers = 1;
+    // Native memory the rendered pages of one job may take, larger pages are rendered in bands
+    private volatile long renderMemoryBudget = MemoryGovernor.DEFAULT_BUDGET_BYTES;
+
+    // One session per printer, keyed by upper case MAC address
+    private final Map<String, PrinterSession> sessions = new ConcurrentHashMap<>();
+    // Printer used when a call does not name one: the one connected last
+    private volatile String defaultAddress;
+    // Keep-alive and background reconnect for every session, see PrinterSession
+    private volatile boolean persistentConnection = false;
+    // Command languages set per printer, applied to its session when it connects, ZPL if not set
+    private final Map<String, List<CommandLanguage>> commandLanguages = new ConcurrentHashMap<>();
+    private final Map<String, Long> graphicBudgets = new ConcurrentHashMap<>();
+    private final Map<String, Integer> queueCapacities = new ConcurrentHashMap<>();
+    private final Map<String, PrintJobQueue.RejectionPolicy> queuePolicies = new ConcurrentHashMap<>();
+    // Capabilities queried from each printer on its first connect, kept for later sessions
+    private final Map<String, PrinterProfile> profiles = new ConcurrentHashMap<>();
+
+    // Connection timeouts run on the scheduler thread
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Pipeline counters and latency histograms, see getPrintStats
+    private final PrintStats stats = new PrintStats();
+    // One line per finished job when enabled, see setStatsLogEnabled
+    private volatile RollingLogFile statsLog;
+
+    // Receives job progress events, e.g. forwarded to the Dart event stream
+    private volatile PrintEventListener printEventListener;
+
+    // Final command bytes of printed PDFs, so reprints skip rendering and encoding
+    private final PayloadCache payloadCache;
+
+    // Registered label formats by upper case name, uploaded to each printer on first use
+    private final Map<String, ZplTemplate> templates = new ConcurrentHashMap<>();
+    // Registered recurring images by upper case name, downloaded to each printer on first use
+    private final Map<String, ZplGraphic> graphics = new ConcurrentHashMap<>();
 
     public HoneywellPrinterManager(Context context) {
         this.context = context;
+        this.payloadCache = new PayloadCache(new File(context.getCacheDir(), "print-payloads"),
+                PAYLOAD_CACHE_MEMORY_BUDGET, PAYLOAD_CACHE_DISK_BUDGET);
         PrinterObserverManager.getInstance().add(this);
     }
 
@@ -58,104 +94,155 @@ public class HoneywellPrinterManager implements PrinterObserver {
      * Connect to a printer using its MAC address
      */
     public void connectPrinter(String macAddress, final PrinterCallback callback) {
-        try {
-            Log.d(TAG, "Connecting to printer with MAC address: " + macAddress);
-
-            // Reset connection status and error message
-            isConnected = false;
-            lastConnectionError = null;
-
-            // Check if printer is already connected
-            if (rtPrinter != null) {
-                try {
-                    rtPrinter.disConnect();
-                } catch (Exception e) {
-                    Log.w(TAG, "Error disconnecting previous printer connection", e);
-                }
-            }
+        connectPrinter(macAddress, DEFAULT_CONNECTION_TIMEOUT_MS, callback);
+    }
 
-            BluetoothDevice device = getDeviceByAddress(macAddress);
-            if (device == null) {
-                String errorMsg = "Device not found or not paired. Please check Bluetooth settings.";
-                Log.e(TAG, errorMsg);
-                callback.onResult(false, errorMsg);
-                return;
-            }
+    /**
+     * Connect to a printer using its MAC address, completing as soon as the printer reports the result.
+     * Other connected printers stay connected, and this printer becomes the default target.
+     * @param timeoutMs Time to wait for the printer before the attempt fails
+     */
+    public void connectPrinter(String macAddress, long timeoutMs, final PrinterCallback callback) {
+        Log.d(TAG, "Connecting to printer with MAC address: " + macAddress);
 
-            Log.d(TAG, "Found Bluetooth device: " + device.getName());
+        PrinterSession session = openSession(macAddress);
 
-            // Create printer instance
-            PrinterFactory printerFactory = new UniversalPrinterFactory();
-            rtPrinter = printerFactory.create();
+        BluetoothDevice device = getDeviceByAddress(session.address);
+        if (device == null) {
+            String errorMsg = "Device not found or not paired. Please check Bluetooth settings.";
+            Log.e(TAG, errorMsg);
+            session.fail(errorMsg);
+            callback.onResult(false, errorMsg);
+            return;
+        }
 
-            // Set up connection
-            BluetoothFactory bluetoothFactory = new BluetoothFactory();
-            PrinterInterface printerInterface = bluetoothFactory.create();
-            BluetoothEdrConfigBean configBean = new BluetoothEdrConfigBean(device);
-            printerInterface.setConfigObject(configBean);
-            rtPrinter.setPrinterInterface(printerInterface);
+        Log.d(TAG, "Found Bluetooth device: " + device.getName());
+        session.connect(new RtPrinterTransport(device), timeoutMs, queryingProfile(session, callback));
+    }
 
-            // Use a latch to wait for connection result
-            final CountDownLatch latch = new CountDownLatch(1);
+    /**
+     * Connect to a network printer on its raw TCP port, completing as soon as the connection is up.
+     * The printer is identified by "host:port" in later calls, e.g. "192.168.1.40:9100".
+     * Other connected printers stay connected, and this printer becomes the default target.
+     * @param port The printer's raw print port, usually 9100
+     * @param timeoutMs Time to wait for the printer before the attempt fails
+     */
+    public void connectNetworkPrinter(String host, int port, long timeoutMs, PrinterCallback callback) {
+        if (host == null || host.trim().isEmpty()) {
+            callback.onResult(false, "Host is required");
+            return;
+        }
+        if (port < 1 || port > TcpPrinterTransport.MAX_PORT) {
+            callback.onResult(false, "Port must be 1 to " + TcpPrinterTransport.MAX_PORT + ", was " + port);
+            return;
+        }
 
-            // Connect to the printer
-            Log.d(TAG, "Initiating connection to printer...");
-            rtPrinter.connect(configBean);
+        String address = TcpPrinterTransport.addressOf(host, port);
+        Log.d(TAG, "Connecting to network printer " + address);
+        PrinterSession session = openSession(address);
+        session.connect(new TcpPrinterTransport(host.trim(), port, timeoutMs), timeoutMs, queryingProfile(session, callback));
+    }
 
-            // Wait for connection result in a separate thread
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        // Wait for connection callback or timeout
-                        boolean completed = latch.await(CONNECTION_TIMEOUT, TimeUnit.SECONDS);
+    /**
+     * Connect to a printer over the given transport instead of Bluetooth,
+     * e.g. the in-process fake printer the tests use to exercise the print path without hardware
+     */
+    void connectPrinter(String macAddress, PrinterTransport transport, long timeoutMs, PrinterCallback callback) {
+        PrinterSession session = openSession(macAddress);
+        session.connect(transport, timeoutMs, queryingProfile(session, callback));
+    }
 
-                        if (!completed) {
-                            lastConnectionError = "Connection timed out after " + CONNECTION_TIMEOUT + " seconds";
-                            Log.e(TAG, lastConnectionError);
-                        }
+    /**
+     * Wrap a connect callback so that a printer connected for the first time is asked for its
+     * profile. The query is queued ahead of any job, so the first page is already rendered for it.
+     * Printers not driven in ZPL keep the default profile.
+     */
+    private PrinterCallback queryingProfile(final PrinterSession session, final PrinterCallback callback) {
+        return new PrinterCallback() {
+            @Override
+            public void onResult(boolean success, String message) {
+                if (success && !profiles.containsKey(session.address)
+                        && session.getBackends()[0].getLanguage() == CommandLanguage.ZPL) {
+                    queryProfile(session);
+                }
+                callback.onResult(success, message);
+            }
+        };
+    }
 
-                        if (isConnected) {
-                            Log.d(TAG, "Successfully connected to printer");
-                            callback.onResult(true, "Connected to " + device.getName());
-                        } else {
-                            String errorMsg = lastConnectionError != null ? lastConnectionError : "Failed to connect";
-                            Log.e(TAG, errorMsg);
-                            callback.onResult(false, errorMsg);
-
-                            // Cleanup if connection failed
-                            if (rtPrinter != null) {
-                                try {
-                                    rtPrinter.disConnect();
-                                } catch (Exception e) {
-                                    Log.w(TAG, "Error cleaning up after failed connection", e);
-                                }
-                            }
-                        }
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Connection thread interrupted", e);
-                        callback.onResult(false, "Connection interrupted: " + e.getMessage());
-                    }
+    private void queryProfile(final PrinterSession session) {
+        session.jobQueue.submit(PrintJobQueue.PRIORITY_HIGH, new PrintJobQueue.PrintTask() {
+            @Override
+            public String run() throws Exception {
+                PrintTransmitter transmitter = session.getTransmitter();
+                String model = transmitter.query(PrinterProfile.MODEL_QUERY, PROFILE_QUERY_TIMEOUT_MS);
+                if (model == null) {
+                    throw new IOException("Printer did not answer ~HI");
                 }
-            }).start();
-
-            // Release the latch after a short delay to allow connection callback to potentially be called
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        Thread.sleep(5000); // Wait 5 seconds before forcing result
-                        latch.countDown();
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Latch release thread interrupted", e);
-                    }
+                String config = transmitter.query(PrinterProfile.CONFIG_QUERY, PROFILE_QUERY_TIMEOUT_MS);
+                PrinterProfile profile = PrinterProfile.parse(model, config);
+                if (profile == null) {
+                    throw new IOException("Unexpected ~HI reply: " + model);
                 }
-            }).start();
+                profiles.put(session.address, profile);
+                session.setProfile(profile);
+                return profile.toString();
+            }
+        }, new PrinterCallback() {
+            @Override
+            public void onResult(boolean success, String message) {
+                if (success) {
+                    Log.d(TAG, "Profile of " + session.address + ": " + message);
+                } else {
+                    Log.w(TAG, "Keeping the default profile for " + session.address + ": " + message);
+                }
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error connecting to printer", e);
-            callback.onResult(false, "Error connecting: " + e.getMessage());
+    /**
+     * Get or create the session of a printer and make it the default target
+     */
+    private PrinterSession openSession(String macAddress) {
+        String address = normalizeAddress(macAddress);
+        PrinterSession session = sessions.get(address);
+        if (session == null) {
+            session = new PrinterSession(address, scheduler, stats);
+            session.setPersistent(persistentConnection);
+            List<CommandLanguage> languages = commandLanguages.get(address);
+            if (languages != null) {
+                session.setCommandLanguages(languages);
+            }
+            Long graphicBudget = graphicBudgets.get(address);
+            if (graphicBudget != null) {
+                session.graphicRegistry.setBudgetBytes(graphicBudget);
+            }
+            Integer queueCapacity = queueCapacities.get(address);
+            if (queueCapacity != null) {
+                session.jobQueue.setLimits(queueCapacity, queuePolicies.get(address));
+            }
+            PrinterProfile profile = profiles.get(address);
+            if (profile != null) {
+                session.setProfile(profile);
+            }
+            sessions.put(address, session);
         }
+        defaultAddress = address;
+        return session;
+    }
+
+    /**
+     * Find the session of a printer
+     * @param macAddress The printer's MAC address, or null for the default printer
+     * @return The session, or null if the printer was never connected
+     */
+    private PrinterSession getSession(String macAddress) {
+        String address = macAddress != null ? normalizeAddress(macAddress) : defaultAddress;
+        return address != null ? sessions.get(address) : null;
+    }
+
+    private static String normalizeAddress(String macAddress) {
+        return macAddress.trim().toUpperCase(Locale.ROOT);
     }
 
     /**
@@ -183,7 +270,7 @@ public class HoneywellPrinterManager implements PrinterObserver {
             Set<BluetoothDevice> pairedDevices = adapter.getBondedDevices();
             if (pairedDevices.size() > 0) {
                 for (BluetoothDevice device : pairedDevices) {
-                    if (device.getAddress().equals(address)) {
+                    if (device.getAddress().equalsIgnoreCase(address)) {
                         return device;
                     }
                 }
@@ -198,448 +285,1380 @@ public class HoneywellPrinterManager implements PrinterObserver {
     }
 
     /**
-     * Print a PDF document
+     * Print a PDF document as normal document rather than receipt
      */
+    public void printPdf(String pdfPath, boolean withGap, final PrinterCallback callback) {
+        printPdf(null, pdfPath, withGap, PrintJobQueue.PRIORITY_NORMAL, callback);
+    }
+
     /**
-     * Get all pages from a PDF file as bitmaps with proper scaling
-     * @param pdfPath Path to the PDF file
-     * @param printerWidthDots Width of the printer in dots (e.g., 384 dots for 48mm printer at 203 DPI)
-     * @return List of bitmaps representing PDF pages
+     * Queue a PDF document for printing
+     * @param macAddress Target printer, or null for the default printer
+     * @param priority Higher priorities jump ahead of waiting jobs, e.g. {@link PrintJobQueue#PRIORITY_HIGH} for reprints
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
      */
+    public long printPdf(String macAddress, final String pdfPath, final boolean withGap, int priority, final PrinterCallback callback) {
+        return printPdf(macAddress, pdfPath, withGap, priority, false, callback);
+    }
+
     /**
-     * Get all pages from a PDF file as bitmaps with proper scaling
-     * @param pdfPath Path to the PDF file
-     * @param printerWidthDots Width of the printer in dots
-     * @return List of bitmaps representing PDF pages
+     * Queue a PDF document for printing
+     * @param smallestPayload Encode each page in every command language the printer understands and send the smallest,
+     *                        see {@link #setCommandLanguages}
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
      */
-    private List<Bitmap> getAllPagesFromPDF(String pdfPath, int printHeadWidth) {
-        List<Bitmap> pageImages = new ArrayList<>();
-        ParcelFileDescriptor parcelFileDescriptor = null;
-        PdfRenderer renderer = null;
+    public long printPdf(String macAddress, final String pdfPath, final boolean withGap, int priority,
+                         final boolean smallestPayload, final PrinterCallback callback) {
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
 
-        File file = new File(pdfPath);
-        if (!file.exists()) {
-            Log.e(TAG, "PDF file does not exist: " + pdfPath);
-            return pageImages;
+        return submitJob(session, "pdf", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                printPdfPages(session, pdfPath, withGap, smallestPayload, tracker);
+                return "PDF printed successfully";
+            }
+        }, callback);
+    }
+
+    /**
+     * Queue a PDF document held in memory for printing, without writing it to storage first
+     * @param pdf The PDF document, not copied, so it must not be changed while the job is queued
+     * @param smallestPayload Send each page in whichever of the printer's command languages is smallest
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    public long printPdfBytes(String macAddress, final byte[] pdf, final boolean withGap, int priority,
+                              final boolean smallestPayload, final PrinterCallback callback) {
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
         }
 
-        try {
-            // Open the PDF file
-            parcelFileDescriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
-            renderer = new PdfRenderer(parcelFileDescriptor);
+        return submitJob(session, "pdf", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                printPdfBytesPages(session, pdf, withGap, smallestPayload, tracker);
+                return "PDF printed successfully";
+            }
+        }, callback);
+    }
 
-            Log.d(TAG, "PDF opened successfully, contains " + renderer.getPageCount() + " pages");
+    /**
+     * Queue printer commands built by the caller, such as a complete ZPL label. They are sent
+     * as they are, in order with the other jobs. They are not paced with {@code ~HS}, since a query
+     * could land inside a binary download such as {@code ~DY}; the link's own flow control applies.
+     * @param commands The commands, not copied
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    public long printRaw(String macAddress, final byte[] commands, int priority, final PrinterCallback callback) {
+        if (commands == null || commands.length == 0) {
+            callback.onResult(false, "No commands to send");
+            return -1;
+        }
 
-            // Render all pages
-            final int pageCount = renderer.getPageCount();
-            for (int i = 0; i < pageCount; i++) {
-                Log.d(TAG, "Rendering page " + (i+1) + " of " + pageCount);
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
 
-                PdfRenderer.Page page = renderer.openPage(i);
+        return submitJob(session, "raw", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                if (!session.isConnected()) {
+                    throw new IOException("Printer not connected");
+                }
+                Log.d(TAG, "Sending " + commands.length + " bytes of raw commands");
+                // Unpaced: nothing may be inserted into the caller's bytes
+                sendTracked(session, tracker, -1, commands, null);
+                return "Commands sent successfully";
+            }
+        }, callback);
+    }
 
-                // Get the original PDF page dimensions
-                float pdfWidth = page.getWidth();
-                float pdfHeight = page.getHeight();
+    /**
+     * Queue an image that is already rasterised at printer resolution, e.g. a widget captured in
+     * the app. It goes straight to packing, trimming and encoding, without a PDF round trip.
+     * @param pixels RGBA pixels (4 bytes each, straight alpha) or, if {@code packed}, rows of
+     *               1 bit per pixel, most significant bit first, set bit black, each row padded to whole bytes
+     * @param width Width in dots, at most the print head width of the printer's profile
+     * @param withGap Print as a separate label rather than trimming blank rows above and below the content
+     * @param smallestPayload Send the label in whichever of the printer's command languages is smallest
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    public long printRaster(String macAddress, final byte[] pixels, final int width, final int height,
+                            final boolean packed, final boolean withGap, final int copies, int priority,
+                            final boolean smallestPayload, final PrinterCallback callback) {
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
 
-                // Calculate scale to fit printer width
-                float scale = printHeadWidth / pdfWidth;
-                int scaledWidth = (int)(pdfWidth * scale);
-                int scaledHeight = (int)(pdfHeight * scale);
+        PrinterProfile profile = session.getProfile();
+        if (width <= 0 || height <= 0 || width > profile.printWidthDots) {
+            callback.onResult(false, "Raster must be 1 to " + profile.printWidthDots + " dots wide, was " + width + "x" + height);
+            return -1;
+        }
+        if (profile.maxLabelLengthDots > 0 && height > profile.maxLabelLengthDots) {
+            callback.onResult(false, "Raster must be at most " + profile.maxLabelLengthDots + " dots long, was " + height);
+            return -1;
+        }
+        long expectedSize = packed ? (long) ((width + 7) / 8) * height : 4L * width * height;
+        if (pixels == null || pixels.length != expectedSize) {
+            callback.onResult(false, "Raster data must be " + expectedSize + " bytes for " + width + "x" + height
+                    + (packed ? " packed" : " RGBA") + ", was " + (pixels == null ? 0 : pixels.length));
+            return -1;
+        }
 
-                Log.d(TAG, "Page dimensions: " + pdfWidth + "x" + pdfHeight + ", scaled: " + scaledWidth + "x" + scaledHeight);
+        return submitJob(session, "raster", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                if (!session.isConnected()) {
+                    throw new IOException("Printer not connected");
+                }
 
-                // Create bitmap with white background
-                Bitmap pageBitmap = Bitmap.createBitmap(scaledWidth, scaledHeight, Bitmap.Config.ARGB_8888);
-                Canvas canvas = new Canvas(pageBitmap);
-                canvas.drawColor(Color.WHITE);
+                long pageStart = System.nanoTime();
+                MonochromeRaster raster = session.pageRaster;
+                raster.reset(width, height);
+                if (packed) {
+                    raster.copyPackedRows(pixels, 0, raster.getBytesPerRow(), 0, height);
+                } else {
+                    raster.packRgbaRows(pixels, 0, width * 4, 0, height, MonochromeRaster.DEFAULT_THRESHOLD);
+                }
+                stats.recordSince(PrintStats.Stage.PACK, pageStart);
 
-                // Render page to bitmap
-                page.render(pageBitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
-                pageImages.add(pageBitmap);
-                page.close();
+                printPackedRaster(session, raster, 0, withGap, !withGap, !withGap, true, Math.max(1, copies),
+                        smallestPayload, null, tracker);
+                tracker.pageDone(0, 1, (System.nanoTime() - pageStart) / 1000000);
+                stats.add(PrintStats.Counter.PAGES_PRINTED, Math.max(1, copies));
+                return "Raster printed successfully";
             }
+        }, callback);
+    }
 
-            Log.d(TAG, "Successfully rendered all " + pageCount + " pages");
+    /**
+     * Queue several documents as one print job. Printer setup is sent once for the whole batch,
+     * identical copies of a page are printed with {@code ^PQ} instead of sending the graphic again,
+     * labels that need no rendering are sent together, and the next PDF renders while the
+     * current one prints. The two share the render memory budget.
+     * @param macAddress Target printer, or null for the default printer
+     * @param withGap Print the PDF pages as separate labels rather than one continuous receipt
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    public long printBatch(String macAddress, final List<BatchItem> items, final boolean withGap, int priority,
+                           final PrinterCallback callback) {
+        if (items == null || items.isEmpty()) {
+            callback.onResult(false, "Batch is empty");
+            return -1;
+        }
+        for (BatchItem item : items) {
+            if (item.templateName != null && !templates.containsKey(item.templateName.toUpperCase(Locale.ROOT))) {
+                Log.e(TAG, "Unknown template: " + item.templateName);
+                callback.onResult(false, "Unknown template: " + item.templateName);
+                return -1;
+            }
+        }
 
-        } catch (IOException e) {
-            Log.e(TAG, "IO error processing PDF", e);
-        } catch (Exception e) {
-            Log.e(TAG, "Error processing PDF", e);
-        } finally {
-            try {
-                if (renderer != null) {
-                    renderer.close();
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
+
+        return submitJob(session, "batch", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                printBatchItems(session, items, withGap, tracker);
+                return "Batch of " + items.size() + " documents printed successfully";
+            }
+        }, callback);
+    }
+
+    /**
+     * Print the documents of a batch in order, runs on the print queue worker
+     */
+    private void printBatchItems(PrinterSession session, List<BatchItem> items, boolean withGap, PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+        }
+
+        // Labels that need no rendering, sent together before the next PDF or at the end
+        CommandBuffer pending = new CommandBuffer(4 * 1024);
+        List<ZplGraphic> pendingGraphics = new ArrayList<>(); // downloads in pending, resident once it was sent
+        List<ZplTemplate> pendingTemplates = new ArrayList<>(); // formats stored by pending, likewise
+        boolean setupSent = false;
+        PdfPageStream prefetched = null;
+        int prefetchedIndex = -1;
+        PrinterProfile profile = session.getProfile();
+
+        // The next PDF renders while the current one prints, so with several PDFs each gets half the budget
+        int pdfCount = 0;
+        for (BatchItem item : items) {
+            if (item.pdfPath != null) {
+                pdfCount++;
+            }
+        }
+        long documentBudget = pdfCount > 1 ? renderMemoryBudget / 2 : renderMemoryBudget;
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                BatchItem item = items.get(i);
+                if (item.zpl != null) {
+                    writeZplCopies(pending, item.zpl, item.copies);
+                    continue;
+                }
+                if (item.templateName != null) {
+                    ZplTemplate template = templates.get(item.templateName.toUpperCase(Locale.ROOT));
+                    if (pendingTemplates.contains(template)) {
+                        // Stored by an earlier label of this batch that was not sent yet
+                        template.writeRecall(pending, item.fields, item.copies);
+                    } else if (writeTemplateLabel(session, template, item.fields, item.copies, pending, pendingGraphics)) {
+                        pendingTemplates.add(template);
+                    }
+                    continue;
                 }
-                if (parcelFileDescriptor != null) {
-                    parcelFileDescriptor.close();
+
+                if (pending.size() > 0) {
+                    sendPending(session, tracker, pending, pendingGraphics, pendingTemplates);
+                }
+
+                PdfPageStream pageStream = prefetchedIndex == i ? prefetched
+                        : openPdf(item.pdfPath, profile, documentBudget);
+                prefetched = null;
+                prefetchedIndex = -1;
+                try {
+                    // Start rendering the next document while this one prints
+                    for (int next = i + 1; next < items.size(); next++) {
+                        if (items.get(next).pdfPath != null) {
+                            prefetched = openPdf(items.get(next).pdfPath, profile, documentBudget);
+                            prefetchedIndex = next;
+                            break;
+                        }
+                    }
+
+                    Log.d(TAG, "Printing batch document " + (i + 1) + " of " + items.size() + ", " + item.copies + " copies");
+                    if (item.copies > 1 && pageStream.getPageCount() > 1) {
+                        // Copies of a multi-page document stay collated: the encoded pages are sent again,
+                        // or rendered again for each copy if the document is too large to keep
+                        CommandBuffer document = printPages(session, pageStream, withGap, 1, !setupSent, false,
+                                new CommandBuffer(256 * 1024), tracker);
+                        byte[] payload = document != null ? document.toByteArray() : null;
+                        for (int copy = 1; copy < item.copies; copy++) {
+                            if (payload != null) {
+                                sendTracked(session, tracker, -1, payload, session.getBackends()[0].getLanguage());
+                                continue;
+                            }
+                            Log.d(TAG, "Rendering copy " + (copy + 1) + " of " + item.pdfPath + " again");
+                            PdfPageStream copyStream = openPdf(item.pdfPath, profile, documentBudget);
+                            try {
+                                printPages(session, copyStream, withGap, 1, false, false, null, tracker);
+                            } finally {
+                                copyStream.close();
+                            }
+                        }
+                    } else {
+                        printPages(session, pageStream, withGap, item.copies, !setupSent, false, null, tracker);
+                    }
+                    setupSent = true;
+                } finally {
+                    pageStream.close();
                 }
-            } catch (IOException e) {
-                Log.e(TAG, "Error closing PDF resources", e);
+            }
+
+            if (pending.size() > 0) {
+                sendPending(session, tracker, pending, pendingGraphics, pendingTemplates);
+            }
+        } finally {
+            if (prefetched != null) {
+                prefetched.close();
             }
         }
+    }
 
-        return pageImages;
+    /**
+     * Send the labels of a batch collected so far, then record the graphics and formats they stored
+     */
+    private void sendPending(PrinterSession session, PrintJobTracker tracker, CommandBuffer pending,
+                             List<ZplGraphic> pendingGraphics, List<ZplTemplate> pendingTemplates)
+            throws IOException, InterruptedException {
+        sendTracked(session, tracker, -1, pending.toByteArray(), CommandLanguage.ZPL);
+        markGraphicsResident(session, pendingGraphics);
+        for (ZplTemplate template : pendingTemplates) {
+            session.markTemplateResident(template);
+        }
+        pending.reset();
+        pendingGraphics.clear();
+        pendingTemplates.clear();
     }
+
     /**
-     * Print a PDF document as normal document rather than receipt
+     * Write a ZPL payload for the given number of copies: a single format gets a {@code ^PQ}
+     * before its {@code ^XZ}, anything else is repeated
      */
-    public void printPdf(String pdfPath, boolean withGap, final PrinterCallback callback) {
-        if (!isConnected || rtPrinter == null) {
-            Log.e(TAG, "Printer not connected");
-            callback.onResult(false, "Printer not connected");
+    private static void writeZplCopies(CommandBuffer out, byte[] zpl, int copies) {
+        int formatEnd = -1;
+        int formats = 0;
+        boolean hasQuantity = false;
+        for (int i = 0; i + 2 < zpl.length; i++) {
+            if (zpl[i] == '^' || zpl[i] == '~') {
+                char c1 = Character.toUpperCase((char) zpl[i + 1]);
+                char c2 = Character.toUpperCase((char) zpl[i + 2]);
+                if (c1 == 'X' && c2 == 'Z') {
+                    formatEnd = i;
+                    formats++;
+                } else if (c1 == 'P' && c2 == 'Q') {
+                    hasQuantity = true;
+                }
+            }
+        }
+
+        if (copies > 1 && formats == 1 && !hasQuantity) {
+            out.write(zpl, 0, formatEnd);
+            out.writeAscii("^PQ" + copies);
+            out.write(zpl, formatEnd, zpl.length - formatEnd);
             return;
         }
+        for (int copy = 0; copy < Math.max(1, copies); copy++) {
+            out.write(zpl);
+        }
+    }
+
+    /**
+     * Work of a print job that reports its progress
+     */
+    private interface TrackedTask {
+        String run(PrintJobTracker tracker) throws Exception;
+    }
 
-        new Thread(new Runnable() {
+    /**
+     * Queue a job on a printer, reporting its progress to the print event listener
+     * @param kind Type of job reported in the events, e.g. "pdf"
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    private long submitJob(final PrinterSession session, final String kind, int priority, final TrackedTask task,
+                           final PrinterCallback callback) {
+        final PrintJobTracker tracker = new PrintJobTracker(PrintJobQueue.newJobId(), session.address, printEventListener);
+        tracker.queued(kind, priority);
+
+        long jobId = session.jobQueue.submit(tracker.jobId, priority, new PrintJobQueue.PrintTask() {
             @Override
-            public void run() {
+            public String run() throws Exception {
+                tracker.started();
+                long jobStart = System.nanoTime();
                 try {
-                    File file = new File(pdfPath);
-                    if (!file.exists()) {
-                        Log.e(TAG, "PDF file does not exist: " + pdfPath);
-                        callback.onResult(false, "PDF file not found: " + pdfPath);
-                        return;
+                    String message = task.run(tracker);
+                    // Network writes are queued, the job is done once the link actually sent them
+                    PrintTransmitter transmitter = session.getTransmitter();
+                    if (transmitter != null) {
+                        transmitter.drain();
                     }
+                    tracker.done();
+                    stats.increment(PrintStats.Counter.JOBS_COMPLETED);
+                    logJob(tracker, kind, "done");
+                    return message;
+                } catch (Exception e) {
+                    String message = e.getMessage() != null ? e.getMessage() : e.toString();
+                    tracker.failed(message);
+                    stats.increment(PrintStats.Counter.JOBS_FAILED);
+                    logJob(tracker, kind, "failed: " + message);
+                    throw e;
+                } finally {
+                    stats.recordSince(PrintStats.Stage.JOB, jobStart);
+                }
+            }
+        }, callback);
 
-                    Log.d(TAG, "Starting PDF print job for file: " + pdfPath + ", size: " + file.length() + " bytes");
+        if (jobId < 0) {
+            tracker.failed("Job was not queued");
+            stats.increment(PrintStats.Counter.JOBS_FAILED);
+        }
+        return jobId;
+    }
 
-                    // Get PDF pages as bitmaps
-                    List<Bitmap> pageImages = getAllPagesFromPDF(pdfPath, 576); // 72mm width at 203 DPI (8 dots per mm)
+    /**
+     * Append a summary of a finished job to the stats log, if enabled
+     */
+    private void logJob(PrintJobTracker tracker, String kind, String result) {
+        RollingLogFile log = statsLog;
+        if (log == null) {
+            return;
+        }
+        long elapsedMs = tracker.getElapsedMs();
+        String line = String.format(Locale.ROOT, "%tFT%<tT.%<tL job=%d kind=%s printer=%s pages=%d bytes=%d ms=%d bps=%d result=%s",
+                System.currentTimeMillis(), tracker.jobId, kind, tracker.printer, tracker.getPagesDone(),
+                tracker.getBytesSent(), elapsedMs, elapsedMs > 0 ? tracker.getBytesSent() * 1000 / elapsedMs : 0, result);
+        try {
+            log.append(line);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write stats log", e);
+        }
+    }
 
-                    if (pageImages.isEmpty()) {
-                        Log.e(TAG, "Failed to render PDF pages");
-                        callback.onResult(false, "Failed to render PDF");
-                        return;
-                    }
+    /**
+     * Send a payload to the printer, reporting it as sent for the given page
+     * @param language Command language of the payload, or null if it mixes languages, see {@link PrintTransmitter#send}
+     */
+    private void sendTracked(PrinterSession session, PrintJobTracker tracker, int page, byte[] payload,
+                             CommandLanguage language) throws IOException, InterruptedException {
+        long sendStart = System.nanoTime();
+        session.getTransmitter().send(payload, language);
+        long sendNanos = System.nanoTime() - sendStart;
+        stats.record(PrintStats.Stage.TRANSMIT, sendNanos);
+        stats.add(PrintStats.Counter.BYTES_SENT, payload.length);
+        tracker.bytesSent(page, payload.length, sendNanos / 1000000);
+    }
 
-                    Log.d(TAG, "Successfully rendered " + pageImages.size() + " PDF pages");
+    /**
+     * Register a label format for {@link #printTemplate}. Registering a changed format under the
+     * same name makes every printer receive the new version on its next use.
+     * @param name Template name, 1 to 16 letters, digits or underscores
+     * @param format ZPL format with {@code ^FN} placeholders for the variable fields
+     * @throws IllegalArgumentException if the name or format is invalid
+     */
+    public void registerTemplate(String name, String format) {
+        ZplTemplate template = new ZplTemplate(name, format);
+        templates.put(template.name, template);
+        Log.d(TAG, "Registered template " + template.name + " (" + template.hash.substring(0, 8) + ")");
+    }
 
-                    // Print each page
-                    for (int i = 0; i < pageImages.size(); i++) {
-                        Log.d(TAG, "Printing page " + (i+1) + " of " + pageImages.size());
-                        Bitmap pageBitmap = pageImages.get(i);
+    /**
+     * Queue a label from a registered template, sending only the variable fields
+     * once the printer holds the format
+     * @param macAddress Target printer, or null for the default printer
+     * @param fields Values keyed by {@code ^FN} field number, e.g. "1"
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
+     */
+    public long printTemplate(String macAddress, String name, final Map<String, String> fields, final int copies,
+                              int priority, final PrinterCallback callback) {
+        final ZplTemplate template = name != null ? templates.get(name.toUpperCase(Locale.ROOT)) : null;
+        if (template == null) {
+            Log.e(TAG, "Unknown template: " + name);
+            callback.onResult(false, "Unknown template: " + name);
+            return -1;
+        }
 
-                        // For all pages except the last one, trim bottom white space if no gap desired
-                        if (!withGap && i < pageImages.size() - 1) {
-                            pageBitmap = trimBottomWhitespace(pageBitmap);
-                        }
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
 
-                        printSingleBitmap(pageBitmap, i == 0, withGap);
+        return submitJob(session, "template", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                printTemplateLabel(session, template, fields, copies, tracker);
+                return "Template printed successfully";
+            }
+        }, callback);
+    }
 
-                        // Release bitmap memory
-                        if (!pageBitmap.isRecycled()) {
-                            pageBitmap.recycle();
-                        }
+    /**
+     * Upload the format if this printer does not hold it yet, then recall it with the field data
+     */
+    private void printTemplateLabel(PrinterSession session, ZplTemplate template, Map<String, String> fields, int copies,
+                                    PrintJobTracker tracker) throws IOException, InterruptedException {
+        if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+        }
 
-                        // Add a delay between print jobs to prevent printer buffer overflow
-                        Thread.sleep(500);
-                    }
+        CommandBuffer commands = new CommandBuffer(1024);
+        List<ZplGraphic> downloads = new ArrayList<>();
+        boolean upload = writeTemplateLabel(session, template, fields, copies, commands, downloads);
 
-                    Log.d(TAG, "PDF print job completed successfully");
-                    callback.onResult(true, "PDF printed successfully");
+        Log.d(TAG, "Sending template " + template.name + ", " + commands.size() + " bytes");
+        sendTracked(session, tracker, -1, commands.toByteArray(), CommandLanguage.ZPL);
+        markGraphicsResident(session, downloads);
+        if (upload) {
+            session.markTemplateResident(template);
+        }
+    }
 
-                } catch (Exception e) {
-                    Log.e(TAG, "Error printing PDF", e);
-                    callback.onResult(false, "Error printing PDF: " + e.getMessage());
-                }
+    /**
+     * Write the graphics and format the printer does not hold yet, then the recall with the field data
+     * @param downloads Receives the graphics written, to be marked resident once the commands were sent
+     * @return true if the format was written and the printer holds it once the commands were sent
+     */
+    private boolean writeTemplateLabel(PrinterSession session, ZplTemplate template, Map<String, String> fields,
+                                       int copies, CommandBuffer out, List<ZplGraphic> downloads) {
+        for (ZplGraphic graphic : graphics.values()) {
+            if (template.references(graphic.getPrinterPath())) {
+                writeGraphicIfMissing(session, graphic, out, downloads);
             }
-        }).start();
+        }
+
+        boolean upload = !session.holdsTemplate(template);
+        if (upload) {
+            Log.d(TAG, "Uploading template " + template.name + " to " + session.address);
+            template.writeStoreFormat(out);
+        }
+        template.writeRecall(out, fields, copies);
+        return upload;
     }
 
-/**
- * Get all pages from a PDF file as bitmaps
- */
     /**
-     * Print a single bitmap as a document page
-     * @return boolean indicating success
+     * Register a recurring image, such as a logo, to be kept in printer memory. Templates recall it
+     * with {@code ^XG} and its printer path {@code R:<NAME>.GRF}; it is downloaded to each printer
+     * the first time a job uses it there.
+     * @param name Graphic name, 1 to 8 letters, digits or underscores
+     * @param imagePath Path to a PNG, JPEG or other image BitmapFactory can decode
+     * @throws IOException if the image cannot be decoded
+     * @throws IllegalArgumentException if the name is invalid
      */
+    public void registerGraphic(String name, String imagePath) throws IOException {
+        Bitmap bitmap = BitmapFactory.decodeFile(imagePath);
+        if (bitmap == null) {
+            throw new IOException("Could not decode image: " + imagePath);
+        }
+
+        MonochromeRaster raster = new MonochromeRaster();
+        try {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            int[] pixels = new int[width * height];
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            raster.reset(width, height);
+            raster.packArgbRows(pixels, 0, width, 0, height, MonochromeRaster.DEFAULT_THRESHOLD);
+        } finally {
+            bitmap.recycle();
+        }
+
+        ZplGraphic graphic = new ZplGraphic(name, raster);
+        graphics.put(graphic.name, graphic);
+        Log.d(TAG, "Registered graphic " + graphic.getPrinterPath() + ", " + graphic.width + "x" + graphic.height);
+    }
+
     /**
-     * Print a single bitmap as a document page
-     * @return boolean indicating success
+     * Queue a label that prints a registered graphic, downloading it only if the printer does not hold it yet
+     * @param macAddress Target printer, or null for the default printer
+     * @param x Left position in dots
+     * @param y Top position in dots
+     * @return The job ID, or -1 if the job was not queued (the callback has been told why)
      */
+    public long printGraphic(String macAddress, String name, final int x, final int y, final int copies,
+                             int priority, final PrinterCallback callback) {
+        final ZplGraphic graphic = name != null ? graphics.get(name.toUpperCase(Locale.ROOT)) : null;
+        if (graphic == null) {
+            Log.e(TAG, "Unknown graphic: " + name);
+            callback.onResult(false, "Unknown graphic: " + name);
+            return -1;
+        }
 
-    private Bitmap trimBottomWhitespace(Bitmap bitmap) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+        final PrinterSession session = getSession(macAddress);
+        if (session == null || !session.isAvailable()) {
+            Log.e(TAG, "Printer not connected");
+            callback.onResult(false, "Printer not connected");
+            return -1;
+        }
 
-        // Find the last non-white row
-        int lastNonWhiteRow = height - 1;
-        boolean foundNonWhite;
-
-        // Start from the bottom and scan upward
-        while (lastNonWhiteRow > 0) {
-            foundNonWhite = false;
-            for (int x = 0; x < width; x += 10) { // Sample every 10 pixels for performance
-                if (bitmap.getPixel(x, lastNonWhiteRow) != Color.WHITE) {
-                    foundNonWhite = true;
-                    break;
+        return submitJob(session, "graphic", priority, new TrackedTask() {
+            @Override
+            public String run(PrintJobTracker tracker) throws Exception {
+                if (!session.isConnected()) {
+                    throw new IOException("Printer not connected");
                 }
-            }
 
-            if (foundNonWhite) {
-                break;
+                CommandBuffer commands = new CommandBuffer(1024);
+                List<ZplGraphic> downloads = new ArrayList<>();
+                writeGraphicIfMissing(session, graphic, commands, downloads);
+                commands.writeAscii("^XA");
+                graphic.writeRecall(commands, x, y);
+                if (copies > 1) {
+                    commands.writeAscii("^PQ" + copies);
+                }
+                commands.writeAscii("^XZ");
+
+                sendTracked(session, tracker, -1, commands.toByteArray(), CommandLanguage.ZPL);
+                markGraphicsResident(session, downloads);
+                return "Graphic printed successfully";
             }
+        }, callback);
+    }
 
-            lastNonWhiteRow--;
+    /**
+     * Write the {@code ~DG} download of a graphic the printer does not hold, preceded by deletes
+     * of the least recently used graphics that no longer fit the printer memory budget
+     * @param downloads Graphics already written into the same commands, the graphic is added if it is written
+     */
+    private void writeGraphicIfMissing(PrinterSession session, ZplGraphic graphic, CommandBuffer out,
+                                       List<ZplGraphic> downloads) {
+        if (downloads.contains(graphic) || session.graphicRegistry.isResident(graphic)) {
+            return;
         }
 
-        // Add a small margin to the bottom (just a few pixels)
-        lastNonWhiteRow = Math.min(lastNonWhiteRow + 5, height - 1);
+        long pendingBytes = 0;
+        for (ZplGraphic pending : downloads) {
+            pendingBytes += pending.getSizeBytes();
+        }
+        for (String evicted : session.graphicRegistry.makeRoom(graphic, pendingBytes)) {
+            Log.d(TAG, "Evicting graphic " + evicted + " from " + session.address);
+            ZplGraphic.writeDelete(out, evicted);
+        }
+        Log.d(TAG, "Downloading graphic " + graphic.getPrinterPath() + " to " + session.address
+                + ", " + graphic.getSizeBytes() + " bytes");
+        graphic.writeDownload(out, session.graphicCompressor);
+        downloads.add(graphic);
+    }
 
-        // Crop the bitmap
-        return Bitmap.createBitmap(bitmap, 0, 0, width, lastNonWhiteRow + 1);
+    /**
+     * Record graphic downloads as resident once the commands that carry them were sent. A failed send
+     * leaves them unknown, so the next job downloads them again rather than recalling a missing graphic.
+     */
+    private static void markGraphicsResident(PrinterSession session, List<ZplGraphic> downloads) {
+        for (ZplGraphic graphic : downloads) {
+            session.graphicRegistry.markResident(graphic);
+        }
     }
 
     /**
-     * Print a single bitmap
+     * Cancel a queued print job that has not started yet, on whichever printer it is queued
      */
-    private void printSingleBitmap(Bitmap mBitmap, boolean isFirstPage, boolean withGap) {
-        try {
-            if (mBitmap == null || mBitmap.isRecycled()) {
-                Log.e(TAG, "Invalid bitmap for printing");
-                return;
+    public boolean cancelJob(long jobId) {
+        for (PrinterSession session : sessions.values()) {
+            if (session.jobQueue.cancel(jobId)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            if (rtPrinter == null || !isConnected) {
-                Log.e(TAG, "Printer not connected");
-                return;
-            }
+    /**
+     * Render and print every page of a PDF, runs on the print queue worker
+     */
+    private void printPdfPages(PrinterSession session, String pdfPath, boolean withGap, boolean smallestPayload,
+                               PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        File file = new File(pdfPath);
+        if (!file.exists()) {
+            Log.e(TAG, "PDF file does not exist: " + pdfPath);
+            throw new IOException("PDF file not found: " + pdfPath);
+        }
+
+        Log.d(TAG, "Starting PDF print job for file: " + pdfPath + ", size: " + file.length() + " bytes");
+
+        String cacheKey = PayloadCache.keyFor(file, renderParameters(session, withGap, smallestPayload));
+        if (!sendCachedPayload(session, cacheKey, payloadLanguage(session, smallestPayload), tracker)) {
+            printDocument(session, PdfSource.ofFile(file), cacheKey, withGap, smallestPayload, tracker);
+        }
+    }
 
-            Log.d(TAG, "Preparing bitmap for printing, size: " + mBitmap.getWidth() + "x" + mBitmap.getHeight());
+    /**
+     * Render and print every page of a PDF held in memory, runs on the print queue worker
+     */
+    private void printPdfBytesPages(PrinterSession session, byte[] pdf, boolean withGap, boolean smallestPayload,
+                                    PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        Log.d(TAG, "Starting PDF print job for in-memory document, size: " + pdf.length + " bytes");
+
+        String cacheKey = PayloadCache.keyFor(pdf, renderParameters(session, withGap, smallestPayload));
+        if (!sendCachedPayload(session, cacheKey, payloadLanguage(session, smallestPayload), tracker)) {
+            printDocument(session, PdfSource.ofBytes(pdf, new File(context.getCacheDir(), "print-documents")),
+                    cacheKey, withGap, smallestPayload, tracker);
+        }
+    }
+
+    /**
+     * Settings that change the payload rendered from a document, part of its cache key.
+     * Render workers and the memory budget only matter through the band height of banded pages,
+     * see {@link #bandedKey}.
+     */
+    private static String renderParameters(PrinterSession session, boolean withGap, boolean smallestPayload) {
+        CommandBackend[] backends = session.getBackends();
+        StringBuilder languages = new StringBuilder(backends[0].getLanguage().name());
+        for (int i = 1; smallestPayload && i < backends.length; i++) {
+            languages.append(',').append(backends[i].getLanguage().name());
+        }
+        PrinterProfile profile = session.getProfile();
+        return "languages=" + languages + ";width=" + profile.printWidthDots + ";dpmm=" + profile.dotsPerMm
+                + ";media=" + profile.mediaType + ";maxLength=" + profile.maxLabelLengthDots
+                + ";bands=" + MIN_SKIPPED_BAND_ROWS
+                + ";gap=" + withGap + ";direction=" + PrintDirection.REVERSE
+                + ";compression=" + session.graphicEncoder.getCompression();
+    }
+
+    /**
+     * Command language of every page of a document encoded for a printer
+     * @return The language, or null if pages may be sent in different languages
+     */
+    private static CommandLanguage payloadLanguage(PrinterSession session, boolean smallestPayload) {
+        CommandBackend[] backends = session.getBackends();
+        CommandLanguage language = backends[0].getLanguage();
+        for (int i = 1; smallestPayload && i < backends.length; i++) {
+            if (backends[i].getLanguage() != language) {
+                return null;
+            }
+        }
+        return language;
+    }
 
-            // Create ZPL command
-            CmdFactory zplFac = new ZplFactory();
-            Cmd zplCmd = zplFac.create();
+    /**
+     * Cache key of a document of which some pages were rendered in bands. Each band is printed as
+     * its own label segment, so such a payload only matches while the settings give the same bands.
+     * A payload rendered whole matches its plain key whatever the render settings.
+     */
+    private static String bandedKey(String cacheKey, int bandRows) {
+        return cacheKey + "-b" + bandRows;
+    }
 
-            // Add header command
-            zplCmd.append(zplCmd.getHeaderCmd());
+    /**
+     * Reprints of the same document with the same settings are sent straight from the cache
+     * @param language Command language of the payload, or null if it mixes languages
+     * @return true if the payload was cached and has been sent
+     */
+    private boolean sendCachedPayload(PrinterSession session, String cacheKey, CommandLanguage language,
+                                      PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        byte[] cachedPayload = payloadCache.get(cacheKey);
+        if (cachedPayload == null) {
+            PrinterProfile profile = session.getProfile();
+            cachedPayload = payloadCache.get(bandedKey(cacheKey, PdfPageStream.bandRows(profile.printWidthDots,
+                    RENDER_LOOKAHEAD_PAGES, renderWorkers, renderMemoryBudget, profile.maxLabelLengthDots)));
+        }
+        if (cachedPayload == null) {
+            return false;
+        }
+        if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+        }
+        Log.d(TAG, "Sending cached payload, " + cachedPayload.length + " bytes");
+        stats.increment(PrintStats.Counter.CACHE_HITS);
+        sendTracked(session, tracker, -1, cachedPayload, language);
+        Log.d(TAG, "PDF print job completed successfully");
+        return true;
+    }
 
-            // Configure common settings
-            CommonSetting commonSetting = new CommonSetting();
+    /**
+     * Render and print a document, then cache what was sent
+     */
+    private void printDocument(PrinterSession session, PdfSource source, String cacheKey, boolean withGap,
+                               boolean smallestPayload, PrintJobTracker tracker) throws IOException, InterruptedException {
+        PdfPageStream pageStream = openPdf(source, session.getProfile(), renderMemoryBudget);
+        try {
+            // Everything sent for this job, cached once the whole document was printed
+            CommandBuffer jobPayload = printPages(session, pageStream, withGap, 1, true, smallestPayload,
+                    new CommandBuffer(256 * 1024), tracker);
+            if (jobPayload != null) {
+                payloadCache.put(pageStream.hasBandedPages() ? bandedKey(cacheKey, pageStream.getBandRows()) : cacheKey,
+                        jobPayload.toByteArray());
+            }
+            Log.d(TAG, "PDF print job completed successfully");
+        } finally {
+            pageStream.close();
+        }
+    }
 
-            // Set label size based on bitmap dimensions
-            // Height is calculated from bitmap height in dots to mm (8 dots per mm at 203 DPI)
-            int labelWidthMm = 80; // Fixed at 80mm width
-            int labelHeightMm = Math.max(mBitmap.getHeight() / 8, 10); // Ensure minimum 10mm height
+    /**
+     * Open a PDF and start rendering its pages in the background
+     * @param profile Printer the pages are rendered for, at its print head width
+     * @throws IOException if the file is missing, unreadable or has no pages
+     */
+    private PdfPageStream openPdf(String pdfPath, PrinterProfile profile, long memoryBudget) throws IOException {
+        File file = new File(pdfPath);
+        if (!file.exists()) {
+            Log.e(TAG, "PDF file does not exist: " + pdfPath);
+            throw new IOException("PDF file not found: " + pdfPath);
+        }
+        return openPdf(PdfSource.ofFile(file), profile, memoryBudget);
+    }
 
-            Log.d(TAG, "Setting label size to " + labelWidthMm + "x" + labelHeightMm + "mm");
-            commonSetting.setLableSizeBean(new LableSizeBean(labelWidthMm, labelHeightMm));
+    /**
+     * Start rendering the pages of a document, the stream closes the source
+     * @throws IOException if the document is unreadable or has no pages
+     */
+    private PdfPageStream openPdf(PdfSource source, PrinterProfile profile, long memoryBudget) throws IOException {
+        // Pages beyond the memory budget or the printer's longest label are rendered and printed in bands
+        PdfPageStream pageStream = new PdfPageStream(source, profile.printWidthDots, RENDER_LOOKAHEAD_PAGES, renderWorkers,
+                bitmapPool, memoryBudget, profile.maxLabelLengthDots);
+        try {
+            long openStart = System.nanoTime();
+            pageStream.open();
+            stats.recordSince(PrintStats.Stage.PDF_OPEN, openStart);
 
-            // Set minimum possible label gap only for the first page to establish printer settings
-            if (isFirstPage) {
-                int gapSize = withGap ? 3 : 0; // Use minimum gap if continuous printing is desired
-                Log.d(TAG, "Setting label gap to " + gapSize + "mm");
-                commonSetting.setLabelGap(gapSize);
+            if (pageStream.getPageCount() == 0) {
+                Log.e(TAG, "PDF contains no pages");
+                throw new IOException("Failed to render PDF");
             }
+            return pageStream;
+        } catch (IOException | RuntimeException e) {
+            pageStream.close();
+            throw e;
+        }
+    }
 
-            // Set print direction (REVERSE prints from top to bottom)
-            commonSetting.setPrintDirection(PrintDirection.REVERSE);
+    /**
+     * Print each page of an open PDF as soon as it is rendered
+     * @param copies Copies of each page, printed with {@code ^PQ}
+     * @param sendSetup Send the printer setup with the first page, later documents of a job reuse it
+     * @param smallestPayload Send each page in whichever of the printer's command languages is smallest
+     * @param sentPayload Receives a copy of every command sent, or null
+     * @return {@code sentPayload}, or null if it grew too large to keep
+     */
+    private CommandBuffer printPages(PrinterSession session, PdfPageStream pageStream, boolean withGap, int copies,
+                                     boolean sendSetup, boolean smallestPayload, CommandBuffer sentPayload,
+                                     PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        PdfPageStream.RenderedPage page;
+        long pageStart = System.nanoTime();
+        while ((page = pageStream.take()) != null) {
+            Log.d(TAG, "Printing page " + (page.index + 1) + " of " + page.pageCount);
+            if (page.isBanded()) {
+                sentPayload = printBands(session, pageStream, page, withGap, copies, sendSetup && page.index == 0,
+                        smallestPayload, sentPayload, tracker);
+                tracker.pageDone(page.index, page.pageCount, (System.nanoTime() - pageStart) / 1000000);
+                stats.add(PrintStats.Counter.PAGES_PRINTED, copies);
+                stats.increment(PrintStats.Counter.PAGES_BANDED);
+                pageStart = System.nanoTime();
+                continue;
+            }
+            stats.record(PrintStats.Stage.RENDER, page.renderNanos);
+            tracker.pageRendered(page.index, page.pageCount, page.renderNanos / 1000000);
+            Bitmap pageBitmap = page.bitmap;
+            try {
+                // Without gaps, trim top white space, and bottom white space on all pages except the last one
+                printSingleBitmap(session, pageBitmap, page.index, withGap, !withGap, !withGap && !page.isLastPage(),
+                        sendSetup && page.index == 0, copies, smallestPayload, sentPayload, tracker);
+                tracker.pageDone(page.index, page.pageCount, (System.nanoTime() - pageStart) / 1000000);
+                stats.add(PrintStats.Counter.PAGES_PRINTED, copies);
+                pageStart = System.nanoTime();
+                if (sentPayload != null && sentPayload.size() > MAX_CACHED_PAYLOAD_SIZE) {
+                    Log.d(TAG, "Job too large to keep its payload");
+                    sentPayload = null;
+                }
+            } finally {
+                // Return the bitmap to the pool for the next page
+                bitmapPool.release(pageBitmap);
+            }
+        }
+        return sentPayload;
+    }
 
-            // Apply common settings
-            byte[] commonSettingCmd = zplCmd.getCommonSettingCmd(commonSetting);
-            zplCmd.append(commonSettingCmd);
+    /**
+     * Print a page that was rendered in bands, each band as its own label as soon as it is packed.
+     * Without gaps the bands follow each other untrimmed, so the page still prints as one strip;
+     * with gaps a page longer than one label continues on the next.
+     * @param copies Copies of the page; bands are not kept, so copies resend the encoded page
+     * @return {@code sentPayload}, or null if it grew too large to keep
+     */
+    private CommandBuffer printBands(PrinterSession session, PdfPageStream pageStream, PdfPageStream.RenderedPage page,
+                                     boolean withGap, int copies, boolean sendSetup, boolean smallestPayload,
+                                     CommandBuffer sentPayload, PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+        }
 
-            // Set print position to start at the very top to minimize space
-            byte[] pointXY = commonSetting.setPointXY(0, 0);
-            rtPrinter.writeMsgAsync(pointXY);
+        // ^PQ on each band would print every band n times in a row, so copies repeat the whole page instead
+        CommandBuffer pagePayload = copies > 1 ? new CommandBuffer(64 * 1024) : sentPayload;
+        PdfPageStream.Band band;
+        long renderNanos = 0;
+        while ((band = pageStream.takeBand(page)) != null) {
+            stats.record(PrintStats.Stage.RENDER, band.renderNanos);
+            renderNanos += band.renderNanos;
+            boolean firstBand = band.index == 0;
+            boolean lastBand = band.index == page.bandCount - 1;
+            printPackedRaster(session, band.raster, page.index, withGap, !withGap && firstBand,
+                    !withGap && lastBand && !page.isLastPage(), sendSetup && firstBand, 1, smallestPayload,
+                    pagePayload, tracker);
+        }
+        // Reported once every band was rendered, the page is printing by then
+        tracker.pageRendered(page.index, page.pageCount, renderNanos / 1000000);
 
-            // Configure bitmap settings
-            BitmapSetting bitmapSetting = new BitmapSetting();
-            // Position the bitmap at the very top of the label
-            bitmapSetting.setPrintPostion(new Position(0, 0));
-            // Limit width to printer capacity (576 dots = 72mm at 8 dots/mm)
-            bitmapSetting.setBimtapLimitWidth(576);
+        if (copies > 1) {
+            byte[] pageCommands = pagePayload.toByteArray();
+            for (int copy = 1; copy < copies; copy++) {
+                sendTracked(session, tracker, page.index, pageCommands, payloadLanguage(session, smallestPayload));
+            }
+            for (int copy = 0; sentPayload != null && copy < copies; copy++) {
+                sentPayload.write(pageCommands);
+            }
+        }
+        if (sentPayload != null && sentPayload.size() > MAX_CACHED_PAYLOAD_SIZE) {
+            Log.d(TAG, "Job too large to keep its payload");
+            return null;
+        }
+        return sentPayload;
+    }
 
-            // Generate bitmap command
-            byte[] bitmapCmd = zplCmd.getBitmapCmd(bitmapSetting, mBitmap);
-            zplCmd.append(bitmapCmd);
+    /**
+     * Threshold a bitmap into a 1 bit per pixel raster, reading pixels in bulk row strips
+     */
+    private void packBitmap(PrinterSession session, Bitmap bitmap, MonochromeRaster raster) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        raster.reset(width, height);
 
-            // Print only one copy
-            zplCmd.append(zplCmd.getPrintCopies(1));
-            zplCmd.append(zplCmd.getEndCmd());
+        int stripRows = Math.max(1, PIXEL_STRIP_SIZE / width);
+        if (session.pixelStrip == null || session.pixelStrip.length < width * stripRows) {
+            session.pixelStrip = new int[width * stripRows];
+        }
+        int[] pixelStrip = session.pixelStrip;
 
-            // Send command to printer
-            Log.d(TAG, "Sending print command to printer");
-            rtPrinter.writeMsg(zplCmd.getAppendCmds());
-        } catch (SdkException e) {
-            Log.e(TAG, "SDK error printing bitmap", e);
-        } catch (Exception e) {
-            Log.e(TAG, "Error printing bitmap", e);
+        for (int y = 0; y < height; y += stripRows) {
+            int rows = Math.min(stripRows, height - y);
+            bitmap.getPixels(pixelStrip, 0, width, 0, y, width, rows);
+            raster.packArgbRows(pixelStrip, 0, width, y, rows, MonochromeRaster.DEFAULT_THRESHOLD);
         }
     }
+
     /**
-     * Alternative method to print bitmap if the standard method fails
+     * Print a single bitmap, see {@link #printPackedRaster}
+     * @throws IOException if the page could not be sent to the printer
      */
-    private boolean printBitmapAlternative(Bitmap original, boolean isFirstPage, boolean withGap) {
-        try {
-            // Create a new bitmap with slightly reduced size to avoid scaling issues
-            int newWidth = Math.min(original.getWidth(), 560); // Slightly less than 576
-            int newHeight = (int)(original.getHeight() * ((float)newWidth / original.getWidth()));
+    private void printSingleBitmap(PrinterSession session, Bitmap mBitmap, int pageIndex, boolean withGap,
+                                   boolean trimTop, boolean trimBottom, boolean sendSetup, int copies,
+                                   boolean smallestPayload, CommandBuffer sentPayload, PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        if (mBitmap == null || mBitmap.isRecycled()) {
+            Log.e(TAG, "Invalid bitmap for printing");
+            return;
+        }
 
-            // Create a scaled copy with explicit dimensions
-            Bitmap scaledBitmap = Bitmap.createScaledBitmap(original, newWidth, newHeight, true);
+        if (!session.isConnected()) {
+            Log.e(TAG, "Printer not connected: " + session.address);
+            throw new IOException("Printer not connected");
+        }
 
-            // Configure printer
-            CmdFactory cmdFactory = new ZplFactory();
-            Cmd cmd = cmdFactory.create();
+        Log.d(TAG, "Preparing bitmap for printing, size: " + mBitmap.getWidth() + "x" + mBitmap.getHeight());
 
-            // Header
-            cmd.append(cmd.getHeaderCmd());
+        // Pack the bitmap to 1 bit per pixel
+        long packStart = System.nanoTime();
+        packBitmap(session, mBitmap, session.pageRaster);
+        stats.recordSince(PrintStats.Stage.PACK, packStart);
 
-            // Common settings with simplified parameters
-            CommonSetting setting = new CommonSetting();
-            setting.setLableSizeBean(new LableSizeBean(70, 100)); // Fixed size label
+        printPackedRaster(session, session.pageRaster, pageIndex, withGap, trimTop, trimBottom, sendSetup, copies,
+                smallestPayload, sentPayload, tracker);
+    }
 
-            if (isFirstPage) {
-                setting.setLabelGap(3); // Fixed gap
+    /**
+     * Print a page packed to 1 bit per pixel. Blank rows are found on the packed raster: trimmed rows are dropped
+     * from the label, and long blank runs inside it are left out of the graphic data, the printer
+     * feeds over them since they are still part of the label length.
+     * @param trimTop Drop blank rows above the content
+     * @param trimBottom Drop blank rows below the content
+     * @param pageIndex Index of the page in its document
+     * @param sendSetup Send label gap, print direction and print position, which the printer keeps for later pages
+     * @param copies Number of copies, printed by the printer where the language allows it
+     * @param smallestPayload Encode the page in every language the printer understands and send the smallest
+     * @param sentPayload Receives a copy of every command sent, or null
+     * @param tracker Receives the page's encode and send progress
+     * @throws IOException if the page could not be sent to the printer
+     */
+    private void printPackedRaster(PrinterSession session, MonochromeRaster pageRaster, int pageIndex, boolean withGap,
+                                   boolean trimTop, boolean trimBottom, boolean sendSetup, int copies,
+                                   boolean smallestPayload, CommandBuffer sentPayload, PrintJobTracker tracker)
+            throws IOException, InterruptedException {
+        PrintTransmitter transmitter = session.getTransmitter();
+
+        // Find the rows to print
+        long trimStart = System.nanoTime();
+        int height = pageRaster.getHeight();
+        int firstRow = 0;
+        int endRow = height;
+        if (trimTop) {
+            firstRow = Math.max(0, pageRaster.findFirstInkRow(0, height) - TRIM_MARGIN_ROWS);
+        }
+        if (trimBottom) {
+            endRow = Math.min(height, pageRaster.findLastInkRow(firstRow, height) + 1 + TRIM_MARGIN_ROWS);
+        }
+        if (endRow <= firstRow) {
+            // Blank page, keep a minimal label so page count and spacing stay as requested
+            endRow = Math.min(height, firstRow + 1);
+        }
+        int[] bands = pageRaster.findInkBands(firstRow, endRow, MIN_SKIPPED_BAND_ROWS);
+        stats.recordSince(PrintStats.Stage.TRIM, trimStart);
+
+        // Encode the page in the printer's language, or in each language it understands to send the smallest.
+        // Label gap, print direction and position are only sent with the first page of a job,
+        // or when the language changes; later pages only change the label length.
+        long encodeStart = System.nanoTime();
+        CommandBackend[] backends = session.getBackends();
+        PrinterProfile profile = session.getProfile();
+        int candidates = smallestPayload ? backends.length : 1;
+        CommandBackend chosen = null;
+        byte[] printCmd = null;
+        for (int i = 0; i < candidates; i++) {
+            CommandBackend backend = backends[i];
+            boolean setup = sendSetup || backend.getLanguage() != session.lastLanguage;
+            CommandBuffer buffer = i == 0 ? session.commandBuffer : session.candidateBuffer;
+            buffer.reset();
+            backend.writeLabel(buffer, profile, pageRaster, firstRow, endRow, bands, setup, withGap, copies);
+            if (printCmd == null || buffer.size() < printCmd.length) {
+                chosen = backend;
+                printCmd = buffer.toByteArray();
             }
+        }
+        session.lastLanguage = chosen.getLanguage();
+        long encodeNanos = System.nanoTime() - encodeStart;
+        stats.record(PrintStats.Stage.ENCODE, encodeNanos);
+        long encodeMs = encodeNanos / 1000000;
+        tracker.pageEncoded(pageIndex, encodeMs, printCmd.length);
+        Log.d(TAG, "Encoded page in " + encodeMs + " ms, " + printCmd.length
+                + " bytes (" + chosen + ", rows " + firstRow + "-" + endRow + " of " + height
+                + " in " + bands.length / 2 + " bands)");
+
+        // Send command to printer, paced by the printer's buffer status where the language allows it
+        Log.d(TAG, "Sending print command to printer");
+        long sendStart = System.nanoTime();
+        transmitter.send(printCmd, chosen.getLanguage());
+        long sendNanos = System.nanoTime() - sendStart;
+        stats.record(PrintStats.Stage.TRANSMIT, sendNanos);
+        stats.add(PrintStats.Counter.BYTES_SENT, printCmd.length);
+        tracker.bytesSent(pageIndex, printCmd.length, sendNanos / 1000000);
+
+        if (sentPayload != null) {
+            sentPayload.write(printCmd);
+        }
+    }
 
-            setting.setPrintDirection(PrintDirection.NORMAL);
-            cmd.append(cmd.getCommonSettingCmd(setting));
+    /**
+     * Set the memory budget for idle page bitmaps kept for reuse
+     */
+    public void setRasterPoolBudget(long budgetBytes) {
+        Log.d(TAG, "Raster pool budget set to " + budgetBytes + " bytes");
+        bitmapPool.setBudgetBytes(budgetBytes);
+    }
 
-            // Bitmap settings with minimal configuration
-            BitmapSetting bmpSetting = new BitmapSetting();
-            bmpSetting.setPrintPostion(new Position(0, 0));
-            bmpSetting.setBimtapLimitWidth(560); // Fixed width limit
+    /**
+     * Set the native memory the rendered pages of a PDF job may take. Pages that would not fit,
+     * such as long continuous receipts, are rendered in horizontal bands and printed band by band.
+     * A batch with several PDFs gives each half, as the next one renders while the current one prints.
+     * @param budgetBytes Memory budget in bytes, e.g. lower on handhelds with little RAM
+     */
+    public void setRenderMemoryBudget(long budgetBytes) {
+        Log.d(TAG, "Render memory budget set to " + budgetBytes + " bytes");
+        renderMemoryBudget = budgetBytes;
+    }
 
-            // Add bitmap
-            cmd.append(cmd.getBitmapCmd(bmpSetting, scaledBitmap));
-            cmd.append(cmd.getPrintCopies(1));
-            cmd.append(cmd.getEndCmd());
+    /**
+     * Set how many pages of a PDF are rendered in parallel. Since API 26 all renderers share one
+     * pdfium lock, so extra workers only overlap bitmap packing with rendering, see {@link PdfPageStream}
+     * @param workers Number of render threads, 1 renders pages one at a time
+     */
+    public void setRenderWorkers(int workers) {
+        renderWorkers = Math.max(1, Math.min(workers, MAX_RENDER_WORKERS));
+        Log.d(TAG, "Render workers set to " + renderWorkers);
+    }
 
-            // Print
-            rtPrinter.writeMsg(cmd.getAppendCmds());
+    /**
+     * Drop every cached print payload, from memory and from the app cache dir
+     */
+    public void clearPayloadCache() {
+        Log.d(TAG, "Clearing payload cache");
+        payloadCache.clear();
+    }
 
-            // Clean up
-            if (!scaledBitmap.equals(original)) {
-                scaledBitmap.recycle();
-            }
+    /**
+     * Enable or disable persistent connections. When enabled, idle ZPL printers are probed with a
+     * {@code ~HS} keep-alive, a dropped link is reconnected in the background with exponential backoff,
+     * and queued jobs are held until the printer is back instead of failing, for at most
+     * {@link PrinterSession#RECONNECT_DEADLINE_MS}.
+     */
+    public void setPersistentConnection(boolean enabled) {
+        Log.d(TAG, "Persistent connection " + (enabled ? "enabled" : "disabled"));
+        persistentConnection = enabled;
+        for (PrinterSession session : sessions.values()) {
+            session.setPersistent(enabled);
+        }
+    }
 
-            return true;
-        } catch (Exception e) {
-            Log.e(TAG, "Alternative bitmap printing failed", e);
-            return false;
+    /**
+     * Set the command languages a printer is driven in, for jobs queued from now on. Pages are
+     * sent in the first language; jobs that ask for the smallest payload encode each page in
+     * every listed language and send whichever is smallest, so list only languages the printer
+     * understands without switching modes. Templates and graphics stay ZPL; raw commands are sent
+     * unchanged whatever the languages.
+     * @param macAddress The printer's MAC address, or null for the default printer
+     * @param languages Languages in order of preference, e.g. [TSC, ZPL] for a printer that runs TSPL natively
+     */
+    public void setCommandLanguages(String macAddress, List<CommandLanguage> languages) {
+        if (languages == null || languages.isEmpty()) {
+            throw new IllegalArgumentException("At least one command language is required");
+        }
+        String address = macAddress != null ? normalizeAddress(macAddress) : defaultAddress;
+        if (address == null) {
+            throw new IllegalArgumentException("No printer given and no default printer connected");
+        }
+
+        List<CommandLanguage> copy = new ArrayList<>(languages);
+        Log.d(TAG, "Command languages of " + address + ": " + copy);
+        commandLanguages.put(address, copy);
+        PrinterSession session = sessions.get(address);
+        if (session != null) {
+            session.setCommandLanguages(copy);
+        }
+    }
+
+    /**
+     * Limit how many jobs may wait for a printer. When the queue is full, a new job is rejected, or
+     * with {@code dropOldest} the oldest waiting job of the lowest priority fails to make room for it.
+     * @param macAddress The printer's MAC address, or null for the default printer
+     * @param capacity Maximum number of jobs waiting to start, at least 1 (default 32)
+     * @param dropOldest Drop the oldest waiting job instead of rejecting the new one, e.g. for live status labels
+     */
+    public void setPrintQueueLimits(String macAddress, int capacity, boolean dropOldest) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        String address = macAddress != null ? normalizeAddress(macAddress) : defaultAddress;
+        if (address == null) {
+            throw new IllegalArgumentException("No printer given and no default printer connected");
+        }
+
+        Log.d(TAG, "Print queue of " + address + " limited to " + capacity + " jobs"
+                + (dropOldest ? ", dropping the oldest" : ", rejecting new ones") + " when full");
+        PrintJobQueue.RejectionPolicy policy = dropOldest
+                ? PrintJobQueue.RejectionPolicy.DROP_OLDEST : PrintJobQueue.RejectionPolicy.REJECT_NEW;
+        queuePolicies.put(address, policy);
+        queueCapacities.put(address, capacity);
+        PrinterSession session = sessions.get(address);
+        if (session != null) {
+            session.jobQueue.setLimits(capacity, policy);
         }
     }
 
     /**
-     * Trim bottom whitespace from a bitmap
-     */
-//    private Bitmap trimBottomWhitespace(Bitmap bitmap) {
-//        int width = bitmap.getWidth();
-//        int height = bitmap.getHeight();
-//
-//        // Find the last non-white row
-//        int lastNonWhiteRow = height - 1;
-//        boolean foundNonWhite;
-//
-//        // Start from the bottom and scan upward
-//        while (lastNonWhiteRow > 0) {
-//            foundNonWhite = false;
-//            for (int x = 0; x < width; x += 10) { // Sample every 10 pixels for performance
-//                if (bitmap.getPixel(x, lastNonWhiteRow) != Color.WHITE) {
-//                    foundNonWhite = true;
-//                    break;
-//                }
-//            }
-//
-//            if (foundNonWhite) {
-//                break;
-//            }
-//
-//            lastNonWhiteRow--;
-//        }
-//
-//        // Add a small margin to the bottom
-//        lastNonWhiteRow = Math.min(lastNonWhiteRow + 5, height - 1);
-//
-//        // Crop the bitmap if we found white space to trim
-//        if (lastNonWhiteRow < height - 1) {
-//            Log.d(TAG, "Trimming bitmap from height " + height + " to " + (lastNonWhiteRow + 1));
-//            return Bitmap.createBitmap(bitmap, 0, 0, width, lastNonWhiteRow + 1);
-//        } else {
-//            // No significant whitespace found
-//            return bitmap;
-//        }
-//    }
+     * Set how much printer memory the registered graphics may take on a printer. The least recently
+     * used graphics are deleted from the printer before a download that would exceed it.
+     * @param macAddress The printer's MAC address, or null for the default printer
+     * @param budgetBytes Memory for stored graphics in bytes, e.g. lower for printers with little RAM
+     */
+    public void setGraphicMemoryBudget(String macAddress, long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("Graphic memory budget must not be negative");
+        }
+        String address = macAddress != null ? normalizeAddress(macAddress) : defaultAddress;
+        if (address == null) {
+            throw new IllegalArgumentException("No printer given and no default printer connected");
+        }
+
+        Log.d(TAG, "Graphic memory budget of " + address + " set to " + budgetBytes + " bytes");
+        graphicBudgets.put(address, budgetBytes);
+        PrinterSession session = sessions.get(address);
+        if (session != null) {
+            session.graphicRegistry.setBudgetBytes(budgetBytes);
+        }
+    }
 
     /**
-     * Check if a printer is connected
+     * Check if jobs can be sent to a printer: it is connected, or reconnecting in persistent mode
+     * @param macAddress The printer's MAC address, or null for the default printer
+     */
+    public boolean isPrinterAvailable(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        return session != null && session.isAvailable();
+    }
+
+    /**
+     * Check if the default printer is connected
      */
     public boolean isPrinterConnected() {
-        return isConnected && rtPrinter != null;
+        return isPrinterConnected(null);
     }
 
     /**
-     * Get the last connection error message
+     * Check if a printer is connected
+     * @param macAddress The printer's MAC address, or null for the default printer
      */
-    public String getLastConnectionError() {
-        return lastConnectionError;
+    public boolean isPrinterConnected(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        return session != null && session.isConnected();
     }
 
     /**
-     * Disconnect from the printer
+     * Get the connection state of a printer
+     * @param macAddress The printer's MAC address, or null for the default printer
      */
-    public void disconnectPrinter() {
-        if (rtPrinter != null) {
-            try {
-                Log.d(TAG, "Disconnecting printer");
-                rtPrinter.disConnect();
-            } catch (Exception e) {
-                Log.e(TAG, "Error disconnecting printer", e);
-            } finally {
-                isConnected = false;
+    public ConnectionState getConnectionState(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        return session != null ? session.getConnectionState() : ConnectionState.IDLE;
+    }
+
+    /**
+     * Get the last connection error message of a printer
+     * @param macAddress The printer's MAC address, or null for the default printer
+     */
+    public String getLastConnectionError(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        return session != null ? session.getLastConnectionError() : null;
+    }
+
+    /**
+     * Get what a printer can print, as queried when it first connected
+     * @param macAddress The printer's MAC address, or null for the default printer
+     * @return Model, dotsPerMm, dpi, printWidthDots, mediaType and maxLabelLengthDots (0 if unknown),
+     *         or null if the printer was never connected
+     */
+    public Map<String, Object> getPrinterProfile(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        return session != null ? session.getProfile().toMap() : null;
+    }
+
+    /**
+     * Get the MAC addresses of all connected printers
+     */
+    public List<String> getConnectedPrinters() {
+        List<String> connected = new ArrayList<>();
+        for (PrinterSession session : sessions.values()) {
+            if (session.isConnected()) {
+                connected.add(session.address);
             }
         }
+        return connected;
+    }
+
+    /**
+     * Disconnect from the default printer
+     */
+    public void disconnectPrinter() {
+        disconnectPrinter(null);
+    }
+
+    /**
+     * Disconnect from a printer
+     * @param macAddress The printer's MAC address, or null for the default printer
+     */
+    public void disconnectPrinter(String macAddress) {
+        PrinterSession session = getSession(macAddress);
+        if (session != null) {
+            session.disconnect();
+        }
     }
 
+    /**
+     * Disconnect every printer and stop all background work, the manager cannot be used afterwards
+     */
+    public void shutdown() {
+        for (PrinterSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+        scheduler.shutdownNow();
+        PrinterObserverManager.getInstance().remove(this);
+        bitmapPool.clear();
+    }
 
     @Override
     public void printerObserverCallback(PrinterInterface printerInterface, int state) {
         Log.d(TAG, "Printer observer callback state: " + state);
 
-        switch (state) {
-            case CommonEnum.CONNECT_STATE_SUCCESS:
-                Log.d(TAG, "Printer connected successfully");
-                isConnected = true;
-                break;
-//            case CommonEnum.CONNECT_STATE_FAILED:
-//                lastConnectionError = "Connection failed";
-//                Log.e(TAG, lastConnectionError);
-//                isConnected = false;
-//                break;
-//            case CommonEnum.CONNECT_STATE_INTERRUPTED:
-//                lastConnectionError = "Printer disconnected";
-//                Log.d(TAG, "Printer disconnected");
-//                isConnected = false;
-//                break;
-            case CommonEnum.CONNECT_STATE_INTERRUPTED:
-                lastConnectionError = "Connection interrupted";
-                Log.e(TAG, lastConnectionError);
-                isConnected = false;
-                break;
-            default:
-                // Handle any other states, including potential CONNECT_STATE_CONNECTING
-                if (state == 4) { // Assuming 4 might be CONNECT_STATE_CONNECTING in some versions
-                    Log.d(TAG, "Connecting to printer...");
-                } else {
-                    Log.d(TAG, "Unknown printer state: " + state);
-                }
-                break;
+        // Route to the printer the callback is about, ignoring connections that were already replaced
+        RtPrinterTransport transport = findTransport(printerInterface);
+        if (transport == null) {
+            Log.d(TAG, "Ignoring callback for a previous connection");
+            return;
         }
+        transport.onConnectStateChanged(state);
     }
 
     @Override
     public void printerReadMsgCallback(PrinterInterface printerInterface, byte[] bytes) {
         if (bytes != null && bytes.length > 0) {
             Log.d(TAG, "Received message from printer: length=" + bytes.length);
+            RtPrinterTransport transport = findTransport(printerInterface);
+            if (transport != null) {
+                transport.onBytesReceived(bytes);
+            }
         }
     }
 
+    private RtPrinterTransport findTransport(PrinterInterface printerInterface) {
+        for (PrinterSession session : sessions.values()) {
+            PrinterTransport transport = session.getTransport();
+            if (transport instanceof RtPrinterTransport && ((RtPrinterTransport) transport).owns(printerInterface)) {
+                return (RtPrinterTransport) transport;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a snapshot of the print pipeline counters and stage latencies, see {@link PrintStats#snapshot()}
+     */
+    public Map<String, Object> getPrintStats() {
+        Map<String, Object> snapshot = stats.snapshot();
+        RollingLogFile log = statsLog;
+        snapshot.put("logFile", log != null ? log.getFile().getAbsolutePath() : null);
+        return snapshot;
+    }
+
+    /**
+     * Reset all print pipeline counters and stage latencies
+     */
+    public void resetPrintStats() {
+        stats.reset();
+    }
+
+    /**
+     * Enable or disable the stats log, a rolling file in the app cache dir with one line per finished job
+     */
+    public void setStatsLogEnabled(boolean enabled) {
+        statsLog = enabled ? new RollingLogFile(new File(context.getCacheDir(), "print-stats.log"), STATS_LOG_MAX_BYTES) : null;
+        Log.d(TAG, "Stats log " + (enabled ? "enabled" : "disabled"));
+    }
+
+    /**
+     * Set the listener for print job progress events, or null to stop reporting.
+     * Events are delivered on the print queue threads.
+     */
+    public void setPrintEventListener(PrintEventListener listener) {
+        printEventListener = listener;
+    }
+
     /**
      * Callback interface for printer operations
      */
     public interface PrinterCallback {
         void onResult(boolean success, String message);
     }
+
+    /**
+     * One document of a {@link #printBatch} job: a PDF, raw ZPL or a registered template
+     */
+    public static final class BatchItem {
+        final String pdfPath;
+        final byte[] zpl;
+        final String templateName;
+        final Map<String, String> fields;
+        final int copies;
+
+        private BatchItem(String pdfPath, byte[] zpl, String templateName, Map<String, String> fields, int copies) {
+            this.pdfPath = pdfPath;
+            this.zpl = zpl;
+            this.templateName = templateName;
+            this.fields = fields;
+            this.copies = Math.max(1, copies);
+        }
+
+        public static BatchItem pdf(String pdfPath, int copies) {
+            return new BatchItem(pdfPath, null, null, null, copies);
+        }
+
+        public static BatchItem zpl(byte[] zpl, int copies) {
+            return new BatchItem(null, zpl, null, null, copies);
+        }
+
+        /**
+         * @param fields Values keyed by {@code ^FN} field number, e.g. "1"
+         */
+        public static BatchItem template(String name, Map<String, String> fields, int copies) {
+            return new BatchItem(null, null, name, fields, copies);
+        }
+    }
+
+    /**
+     * Listener for print job progress, see {@link PrintJobTracker} for the event types and fields
+     */
+    public interface PrintEventListener {
+        void onPrintEvent(Map<String, Object> event);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parsed reply to the ZPL {@code ~HS} host status query.
+ * The printer answers with three STX ... ETX framed strings; only the flags
+ * relevant for pacing transmission are kept.
+ */
+final class HostStatus {
+    static final byte[] QUERY = "~HS".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte STX = 0x02;
+    private static final byte ETX = 0x03;
+    private static final int STRING_COUNT = 3;
+
+    final boolean paperOut;
+    final boolean paused;
+    final int formatsInBuffer;
+    final boolean bufferFull;
+    final boolean headUp;
+    final boolean ribbonOut;
+    final int labelsRemaining;
+
+    HostStatus(boolean paperOut, boolean paused, int formatsInBuffer, boolean bufferFull,
+               boolean headUp, boolean ribbonOut, int labelsRemaining) {
+        this.paperOut = paperOut;
+        this.paused = paused;
+        this.formatsInBuffer = formatsInBuffer;
+        this.bufferFull = bufferFull;
+        this.headUp = headUp;
+        this.ribbonOut = ribbonOut;
+        this.labelsRemaining = labelsRemaining;
+    }
+
+    /**
+     * True if the printer can take more data right now
+     */
+    boolean canAcceptData() {
+        return !bufferFull && !paused && !paperOut && !headUp;
+    }
+
+    /**
+     * Human readable reason why the printer is not accepting data
+     */
+    String describeProblem() {
+        if (paperOut) {
+            return "Printer is out of paper";
+        }
+        if (headUp) {
+            return "Printer head is open";
+        }
+        if (paused) {
+            return "Printer is paused";
+        }
+        if (bufferFull) {
+            return "Printer buffer is full";
+        }
+        return "Printer is ready";
+    }
+
+    /**
+     * Find the end of a complete ~HS reply in received data
+     * @return Index just past the third ETX, or -1 if the reply is not complete yet
+     */
+    static int findReplyEnd(byte[] data, int offset, int length) {
+        int found = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] == ETX && ++found == STRING_COUNT) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a complete ~HS reply
+     * @return The status, or null if the reply is malformed
+     */
+    static HostStatus parse(byte[] data, int offset, int length) {
+        String[] strings = new String[STRING_COUNT];
+        int count = 0;
+        int start = -1;
+        for (int i = offset; i < offset + length && count < STRING_COUNT; i++) {
+            if (data[i] == STX) {
+                start = i + 1;
+            } else if (data[i] == ETX && start >= 0) {
+                strings[count++] = new String(data, start, i - start, StandardCharsets.US_ASCII);
+                start = -1;
+            }
+        }
+        if (count < 2) {
+            return null;
+        }
+
+        String[] first = strings[0].split(",");
+        String[] second = strings[1].split(",");
+        if (first.length < 6 || second.length < 9) {
+            return null;
+        }
+
+        try {
+            return new HostStatus(
+                    flag(first[1]),
+                    flag(first[2]),
+                    Integer.parseInt(first[4].trim()),
+                    flag(first[5]),
+                    flag(second[2]),
+                    flag(second[3]),
+                    Integer.parseInt(second[8].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean flag(String value) {
+        return "1".equals(value.trim());
+    }
+
+    @Override
+    public String toString() {
+        return "HostStatus{paperOut=" + paperOut + ", paused=" + paused + ", formatsInBuffer=" + formatsInBuffer
+                + ", bufferFull=" + bufferFull + ", headUp=" + headUp + ", ribbonOut=" + ribbonOut
+                + ", labelsRemaining=" + labelsRemaining + "}";
+    }
+}
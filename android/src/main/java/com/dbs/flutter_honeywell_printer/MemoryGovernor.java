@@ -0,0 +1,62 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * Decides how a PDF page is rendered within a native memory budget.
+ * <p>
+ * A page rendered whole costs an ARGB_8888 bitmap of its full size, and up to a window of
+ * rendered pages wait to be printed. A long continuous receipt scaled to the print head can
+ * be tens of thousands of rows, so a few such pages exceed what a low-end handheld can
+ * allocate. Pages that do not fit are rendered in horizontal bands instead: each render
+ * worker holds one band bitmap, and every band is packed to 1 bit per pixel before it is
+ * queued for printing, so memory stays bounded however long the page or document is.
+ */
+final class MemoryGovernor {
+    static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+    static final int MIN_BAND_ROWS = 256; // below this the per-band overhead outweighs the saving
+    static final int QUEUED_BANDS_PER_PAGE = 2; // packed bands of one page waiting to be printed
+
+    private static final int BYTES_PER_PIXEL = 4; // ARGB_8888
+
+    private final long budgetBytes;
+    private final int workers;
+    private final int window;
+
+    /**
+     * @param budgetBytes Native memory the rendered pages of one job may take
+     * @param workers Pages rendered in parallel, each holding one bitmap
+     * @param window Rendered pages that may wait to be printed, see {@link PdfPageStream}
+     */
+    MemoryGovernor(long budgetBytes, int workers, int window) {
+        this.budgetBytes = budgetBytes;
+        this.workers = Math.max(1, workers);
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * Rows to render at a time for a page
+     * @param width Page width in dots
+     * @param height Page height in dots
+     * @param maxBandRows Longest label the printer takes, each band is printed as its own label; 0 if unlimited
+     * @return {@code height} to render the page whole, otherwise the height of each band
+     */
+    int bandRows(int width, int height, int maxBandRows) {
+        long pageBytes = (long) width * height * BYTES_PER_PIXEL;
+        boolean fits = pageBytes * window <= budgetBytes;
+        if (fits && (maxBandRows <= 0 || height <= maxBandRows)) {
+            return height;
+        }
+
+        // Band bitmaps being rendered, plus packed bands waiting for every page in the window
+        long bytesPerBandRow = (long) width * BYTES_PER_PIXEL * workers
+                + (long) (width + 7) / 8 * window * (QUEUED_BANDS_PER_PAGE + 1);
+        long rows = Math.max(MIN_BAND_ROWS, budgetBytes / bytesPerBandRow);
+        if (maxBandRows > 0) {
+            rows = Math.min(rows, maxBandRows);
+        }
+        return (int) Math.min(rows, height);
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+}
@@ -0,0 +1,218 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.Arrays;
+
+/**
+ * A 1 bit per pixel image as sent to thermal printers: rows of packed bytes,
+ * most significant bit first, with a set bit meaning a black dot.
+ * The buffer is reused between pages and only grows when a larger page arrives.
+ */
+final class MonochromeRaster {
+    static final int DEFAULT_THRESHOLD = 128; // luminance below this prints black
+
+    private byte[] data = new byte[0];
+    private int width;
+    private int height;
+    private int bytesPerRow;
+
+    /**
+     * Resize the raster to the given dimensions and clear it to white
+     */
+    void reset(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bytesPerRow = (width + 7) / 8;
+
+        int size = bytesPerRow * height;
+        if (data.length < size) {
+            data = new byte[size];
+        } else {
+            Arrays.fill(data, 0, size, (byte) 0);
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    int getBytesPerRow() {
+        return bytesPerRow;
+    }
+
+    /**
+     * Packed rows, valid for the first {@code bytesPerRow * height} bytes
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Threshold ARGB pixels into packed rows, compositing transparent pixels over white
+     * @param pixels ARGB pixels as returned by {@code Bitmap.getPixels}
+     * @param offset Index of the first pixel in {@code pixels}
+     * @param stride Number of pixels between the starts of two rows in {@code pixels}
+     * @param firstRow First raster row to fill
+     * @param rowCount Number of rows to fill
+     * @param threshold Luminance (0-255) below which a pixel prints black
+     */
+    void packArgbRows(int[] pixels, int offset, int stride, int firstRow, int rowCount, int threshold) {
+        for (int row = 0; row < rowCount; row++) {
+            int in = offset + row * stride;
+            int out = (firstRow + row) * bytesPerRow;
+
+            int x = 0;
+            for (int byteIndex = 0; byteIndex < bytesPerRow; byteIndex++) {
+                int bits = 0;
+                int end = Math.min(x + 8, width);
+                int shift = 7;
+                for (; x < end; x++, shift--) {
+                    if (isBlack(pixels[in + x], threshold)) {
+                        bits |= 1 << shift;
+                    }
+                }
+                data[out + byteIndex] = (byte) bits;
+            }
+        }
+    }
+
+    /**
+     * Threshold RGBA pixels into packed rows, compositing transparent pixels over white
+     * @param rgba Pixels of 4 bytes in R, G, B, A order with straight alpha, as from Flutter's {@code toByteData(format: rawStraightRgba)}
+     * @param offset Index of the first byte in {@code rgba}
+     * @param stride Number of bytes between the starts of two rows in {@code rgba}
+     * @param firstRow First raster row to fill
+     * @param rowCount Number of rows to fill
+     * @param threshold Luminance (0-255) below which a pixel prints black
+     */
+    void packRgbaRows(byte[] rgba, int offset, int stride, int firstRow, int rowCount, int threshold) {
+        for (int row = 0; row < rowCount; row++) {
+            int in = offset + row * stride;
+            int out = (firstRow + row) * bytesPerRow;
+
+            int x = 0;
+            for (int byteIndex = 0; byteIndex < bytesPerRow; byteIndex++) {
+                int bits = 0;
+                int end = Math.min(x + 8, width);
+                int shift = 7;
+                for (; x < end; x++, shift--, in += 4) {
+                    if (isBlack(rgba[in] & 0xFF, rgba[in + 1] & 0xFF, rgba[in + 2] & 0xFF, rgba[in + 3] & 0xFF, threshold)) {
+                        bits |= 1 << shift;
+                    }
+                }
+                data[out + byteIndex] = (byte) bits;
+            }
+        }
+    }
+
+    /**
+     * Copy rows that are already packed in this raster's format. Bits past the width in the
+     * last byte of a row are cleared, so padding never counts as ink.
+     * @param packed Rows of 1 bit per pixel, most significant bit first, set bit black
+     * @param offset Index of the first byte in {@code packed}
+     * @param stride Number of bytes between the starts of two rows in {@code packed}, at least {@code bytesPerRow}
+     * @param firstRow First raster row to fill
+     * @param rowCount Number of rows to fill
+     */
+    void copyPackedRows(byte[] packed, int offset, int stride, int firstRow, int rowCount) {
+        int padding = bytesPerRow * 8 - width;
+        int lastByteMask = (0xFF << padding) & 0xFF;
+        for (int row = 0; row < rowCount; row++) {
+            int out = (firstRow + row) * bytesPerRow;
+            System.arraycopy(packed, offset + row * stride, data, out, bytesPerRow);
+            if (padding > 0) {
+                data[out + bytesPerRow - 1] &= (byte) lastByteMask;
+            }
+        }
+    }
+
+    /**
+     * True if no dot in the row prints
+     */
+    boolean isRowBlank(int row) {
+        int start = row * bytesPerRow;
+        int end = start + bytesPerRow;
+        int bits = 0;
+        for (int i = start; i < end; i++) {
+            bits |= data[i];
+        }
+        return bits == 0;
+    }
+
+    /**
+     * @return The first row in {@code [fromRow, toRow)} with a black dot, or {@code toRow} if all are blank
+     */
+    int findFirstInkRow(int fromRow, int toRow) {
+        int row = fromRow;
+        while (row < toRow && isRowBlank(row)) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * @return The last row in {@code [fromRow, toRow)} with a black dot, or {@code fromRow - 1} if all are blank
+     */
+    int findLastInkRow(int fromRow, int toRow) {
+        int row = toRow - 1;
+        while (row >= fromRow && isRowBlank(row)) {
+            row--;
+        }
+        return row;
+    }
+
+    /**
+     * Split rows {@code [fromRow, toRow)} into bands separated by blank runs of at least
+     * {@code minBlankRows} rows, so the blank runs need not be sent at all. Shorter blank runs
+     * stay inside their band.
+     * @return Start and end (exclusive) row of each band, as consecutive pairs
+     */
+    int[] findInkBands(int fromRow, int toRow, int minBlankRows) {
+        int[] bands = new int[8];
+        int count = 0;
+
+        int row = findFirstInkRow(fromRow, toRow);
+        while (row < toRow) {
+            int bandStart = row;
+            int bandEnd = row + 1;
+            int blankRun = 0;
+            for (row++; row < toRow; row++) {
+                if (isRowBlank(row)) {
+                    if (++blankRun >= minBlankRows) {
+                        break;
+                    }
+                } else {
+                    blankRun = 0;
+                    bandEnd = row + 1;
+                }
+            }
+
+            if (count + 2 > bands.length) {
+                bands = Arrays.copyOf(bands, bands.length * 2);
+            }
+            bands[count++] = bandStart;
+            bands[count++] = bandEnd;
+            row = findFirstInkRow(row, toRow);
+        }
+        return Arrays.copyOf(bands, count);
+    }
+
+    private static boolean isBlack(int argb, int threshold) {
+        return isBlack((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, argb >>> 24, threshold);
+    }
+
+    private static boolean isBlack(int red, int green, int blue, int alpha, int threshold) {
+        if (alpha == 0) {
+            return false;
+        }
+        int luminance = (red * 77 + green * 150 + blue * 29) >> 8;
+        if (alpha != 0xFF) {
+            // Composite over a white background
+            luminance = 255 - ((255 - luminance) * alpha) / 255;
+        }
+        return luminance < threshold;
+    }
+}
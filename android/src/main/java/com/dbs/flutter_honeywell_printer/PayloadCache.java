@@ -0,0 +1,257 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of encoded print payloads, so a reprint of the same document
+ * skips rendering and encoding and goes straight to transmission.
+ * <p>
+ * Entries are keyed by a SHA-256 of the document bytes plus the render parameters.
+ * Recently used payloads are kept in memory; every payload is also written to a
+ * directory (normally in the app cache dir) that is trimmed oldest-first to its budget.
+ */
+final class PayloadCache {
+    private static final String SUFFIX = ".zpl";
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+    private final long memoryBudgetBytes;
+    private final long diskBudgetBytes;
+
+    // Access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes = 0;
+
+    PayloadCache(File directory, long memoryBudgetBytes, long diskBudgetBytes) {
+        this.directory = directory;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.diskBudgetBytes = diskBudgetBytes;
+    }
+
+    /**
+     * Cache key for a document rendered with the given parameters
+     * @param parameters Everything besides the document that changes the payload, e.g. width, gap mode and direction
+     */
+    static String keyFor(File document, String parameters) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(document)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return finishKey(digest, parameters);
+    }
+
+    /**
+     * Cache key for a document held in memory, equal to the key of the same bytes in a file
+     */
+    static String keyFor(byte[] document, String parameters) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(document);
+        return finishKey(digest, parameters);
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    private static String finishKey(MessageDigest digest, String parameters) {
+        digest.update((byte) 0);
+        digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+
+        byte[] hash = digest.digest();
+        char[] key = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            key[i * 2] = HEX[(hash[i] >>> 4) & 0x0F];
+            key[i * 2 + 1] = HEX[hash[i] & 0x0F];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Look up a payload, from memory first and then from disk
+     * @return The payload, or null if it is not cached
+     */
+    synchronized byte[] get(String key) {
+        byte[] payload = memory.get(key);
+        if (payload != null) {
+            return payload;
+        }
+
+        File file = fileFor(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            payload = readFile(file);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis()); // Used as the disk tier's LRU order
+        putInMemory(key, payload);
+        return payload;
+    }
+
+    /**
+     * Store a payload in both tiers
+     */
+    synchronized void put(String key, byte[] payload) {
+        putInMemory(key, payload);
+
+        if (payload.length > diskBudgetBytes) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+
+        // Write to a temp file first, so a crash never leaves a truncated payload behind
+        File file = fileFor(key);
+        File temp = new File(directory, key + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(payload);
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        trimDisk(file);
+    }
+
+    /**
+     * Drop every cached payload from both tiers
+     */
+    synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    synchronized long getDiskBytes() {
+        long total = 0;
+        for (File file : listPayloadFiles()) {
+            total += file.length();
+        }
+        return total;
+    }
+
+    private void putInMemory(String key, byte[] payload) {
+        // Very large payloads would evict everything else, they are only kept on disk
+        if (payload.length > memoryBudgetBytes / 4) {
+            return;
+        }
+
+        byte[] previous = memory.put(key, payload);
+        if (previous != null) {
+            memoryBytes -= previous.length;
+        }
+        memoryBytes += payload.length;
+
+        Iterator<Map.Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudgetBytes && iterator.hasNext()) {
+            Map.Entry<String, byte[]> eldest = iterator.next();
+            memoryBytes -= eldest.getValue().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Evict least recently used files until the directory fits its budget, never the one just written
+     */
+    private void trimDisk(File newest) {
+        File[] files = listPayloadFiles();
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= diskBudgetBytes) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (total <= diskBudgetBytes) {
+                break;
+            }
+            if (file.equals(newest)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private File[] listPayloadFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Payload file truncated: " + file);
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+}
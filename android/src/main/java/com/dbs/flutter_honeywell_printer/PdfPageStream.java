@@ -0,0 +1,434 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.pdf.PdfRenderer;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Renders the pages of a PDF on background threads and hands them out in page order.
+ * {@link PdfRenderer} is not thread-safe, so each worker opens its own renderer over its
+ * own file descriptor and renders every {@code workers}-th page; a reorder buffer puts
+ * the pages back in document order. At most {@code lookahead + workers - 1} rendered
+ * pages wait in memory, so rendering runs ahead of printing without peak memory
+ * growing with the page count.
+ * <p>
+ * Since API 26 every {@code PdfRenderer} serialises its pdfium calls on one lock shared
+ * by all instances, so several workers do not rasterise in parallel; they overlap only
+ * packing with rendering, while each one widens the window by a full page bitmap.
+ * One worker is the default for that reason.
+ * <p>
+ * Pages too large for the {@link MemoryGovernor}'s budget are rendered in horizontal bands
+ * and handed out one packed band at a time with {@link #takeBand}, each to be printed as
+ * its own label segment; only a few bands of a page are held at once.
+ * Page bitmaps come from a {@link BitmapPool} and must be released back to it.
+ * The stream owns its {@link PdfSource} and closes it with the stream.
+ */
+class PdfPageStream implements Closeable {
+    private static final String TAG = "PdfPageStream";
+    private static final int PIXEL_STRIP_SIZE = 64 * 1024; // pixels read per getPixels call when packing bands
+
+    private final PdfSource source;
+    private final int printHeadWidth;
+    private final BitmapPool bitmapPool;
+    private final int workerCount;
+    private final int window;
+    private final MemoryGovernor governor;
+    private final int maxBandRows;
+
+    // Rendered pages not taken yet, indexed by page number
+    private RenderedPage[] ready;
+    private int nextPage = 0;
+
+    private ParcelFileDescriptor firstFileDescriptor;
+    private PdfRenderer firstRenderer;
+    private Thread[] workers;
+    private int pageCount;
+    private volatile boolean closed = false;
+    private volatile boolean bandedPages = false;
+    private Exception renderError = null;
+
+    /**
+     * A rendered page together with its position in the document
+     */
+    static class RenderedPage {
+        final Bitmap bitmap; // the whole page, or null if it is rendered in bands
+        final int index;
+        final int pageCount;
+        final long renderNanos;
+        final int bandCount; // 0 if the page was rendered whole
+
+        // Packed bands rendered but not taken yet, guarded by the stream
+        private final ArrayDeque<Band> bands = new ArrayDeque<>();
+        private int bandsTaken = 0;
+
+        RenderedPage(Bitmap bitmap, int index, int pageCount, long renderNanos) {
+            this(bitmap, index, pageCount, renderNanos, 0);
+        }
+
+        private RenderedPage(Bitmap bitmap, int index, int pageCount, long renderNanos, int bandCount) {
+            this.bitmap = bitmap;
+            this.index = index;
+            this.pageCount = pageCount;
+            this.renderNanos = renderNanos;
+            this.bandCount = bandCount;
+        }
+
+        boolean isLastPage() {
+            return index == pageCount - 1;
+        }
+
+        boolean isBanded() {
+            return bitmap == null;
+        }
+    }
+
+    /**
+     * One horizontal band of a page, packed to 1 bit per pixel
+     */
+    static class Band {
+        final MonochromeRaster raster;
+        final int index;
+        final long renderNanos;
+
+        Band(MonochromeRaster raster, int index, long renderNanos) {
+            this.raster = raster;
+            this.index = index;
+            this.renderNanos = renderNanos;
+        }
+    }
+
+    /**
+     * @param source The PDF to render, e.g. a file or a document held in memory
+     * @param printHeadWidth Width of the printer in dots, pages are scaled to fit it
+     * @param lookahead Maximum number of rendered pages waiting to be printed
+     * @param workers Number of pages rendered in parallel, each worker with its own renderer
+     * @param bitmapPool Pool the page bitmaps are taken from
+     * @param memoryBudget Native memory the rendered pages may take, larger pages are rendered in bands
+     * @param maxBandRows Longest label the printer takes, taller pages are rendered in bands; 0 if unlimited
+     */
+    PdfPageStream(PdfSource source, int printHeadWidth, int lookahead, int workers, BitmapPool bitmapPool,
+                  long memoryBudget, int maxBandRows) {
+        this.source = source;
+        this.printHeadWidth = printHeadWidth;
+        this.bitmapPool = bitmapPool;
+        this.workerCount = Math.max(1, workers);
+        this.window = Math.max(1, lookahead) + workerCount - 1;
+        this.governor = new MemoryGovernor(memoryBudget, workerCount, window);
+        this.maxBandRows = maxBandRows;
+    }
+
+    /**
+     * Rows per band of the pages too large to be rendered whole, with the given render settings
+     * @see #PdfPageStream(PdfSource, int, int, int, BitmapPool, long, int)
+     */
+    static int bandRows(int printHeadWidth, int lookahead, int workers, long memoryBudget, int maxBandRows) {
+        int workerCount = Math.max(1, workers);
+        return new MemoryGovernor(memoryBudget, workerCount, Math.max(1, lookahead) + workerCount - 1)
+                .bandRows(printHeadWidth, Integer.MAX_VALUE, maxBandRows);
+    }
+
+    /**
+     * Open the PDF and start rendering pages in the background
+     */
+    void open() throws IOException {
+        firstFileDescriptor = source.open();
+        firstRenderer = new PdfRenderer(firstFileDescriptor);
+        pageCount = firstRenderer.getPageCount();
+        ready = new RenderedPage[pageCount];
+
+        // No point in more workers than pages
+        int count = Math.max(1, Math.min(workerCount, pageCount));
+        Log.d(TAG, "PDF opened successfully, contains " + pageCount + " pages, rendering with " + count + " workers");
+
+        workers = new Thread[count];
+        for (int w = 0; w < count; w++) {
+            final int worker = w;
+            workers[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    renderPages(worker, workers.length);
+                }
+            }, "pdf-page-render-" + w);
+        }
+        for (Thread thread : workers) {
+            thread.start();
+        }
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Rows per band of the pages this stream renders in bands
+     */
+    int getBandRows() {
+        return governor.bandRows(printHeadWidth, Integer.MAX_VALUE, maxBandRows);
+    }
+
+    /**
+     * True if at least one page was rendered in bands so far
+     */
+    boolean hasBandedPages() {
+        return bandedPages;
+    }
+
+    /**
+     * Wait for the next rendered page
+     * @return The next page in document order, or null once all pages were delivered
+     * @throws IOException if rendering failed
+     */
+    synchronized RenderedPage take() throws IOException, InterruptedException {
+        while (nextPage < pageCount && ready[nextPage] == null && renderError == null) {
+            wait();
+        }
+        if (nextPage >= pageCount) {
+            return null;
+        }
+        RenderedPage page = ready[nextPage];
+        if (page == null) {
+            throw new IOException("Error rendering PDF: " + renderError.getMessage(), renderError);
+        }
+
+        ready[nextPage++] = null;
+        // A slot in the window is free, let the workers continue
+        notifyAll();
+        return page;
+    }
+
+    /**
+     * Wait for the next band of a page rendered in bands
+     * @return The next band from the top, or null once all bands of the page were delivered
+     * @throws IOException if rendering failed
+     */
+    synchronized Band takeBand(RenderedPage page) throws IOException, InterruptedException {
+        while (page.bands.isEmpty() && page.bandsTaken < page.bandCount && renderError == null && !closed) {
+            wait();
+        }
+        if (page.bandsTaken >= page.bandCount) {
+            return null;
+        }
+        Band band = page.bands.poll();
+        if (band == null) {
+            throw new IOException(renderError != null ? "Error rendering PDF: " + renderError.getMessage() : "Rendering stopped",
+                    renderError);
+        }
+
+        page.bandsTaken++;
+        // Room for another band, let the worker continue
+        notifyAll();
+        return band;
+    }
+
+    private void renderPages(int worker, int stride) {
+        ParcelFileDescriptor fileDescriptor = null;
+        PdfRenderer renderer = null;
+        try {
+            // The first worker reuses the renderer opened for the page count
+            if (worker == 0) {
+                synchronized (this) {
+                    fileDescriptor = firstFileDescriptor;
+                    renderer = firstRenderer;
+                    firstFileDescriptor = null;
+                    firstRenderer = null;
+                }
+            } else {
+                fileDescriptor = source.open();
+                renderer = new PdfRenderer(fileDescriptor);
+            }
+
+            for (int i = worker; i < pageCount && !closed; i += stride) {
+                // Stay within the window ahead of the page being printed
+                synchronized (this) {
+                    while (i >= nextPage + window && !closed && renderError == null) {
+                        wait();
+                    }
+                    if (closed || renderError != null) {
+                        break;
+                    }
+                }
+
+                Log.d(TAG, "Rendering page " + (i + 1) + " of " + pageCount + " on worker " + worker);
+                if (!renderPage(renderer, i)) {
+                    break;
+                }
+            }
+            Log.d(TAG, "Worker " + worker + " finished rendering");
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Page rendering stopped");
+        } catch (Exception e) {
+            Log.e(TAG, "Error rendering PDF page", e);
+            synchronized (this) {
+                if (renderError == null) {
+                    renderError = e;
+                }
+                notifyAll();
+            }
+        } finally {
+            closeRenderer(renderer, fileDescriptor);
+        }
+    }
+
+    /**
+     * Render a page whole, or in bands if it does not fit the memory budget, and hand it over
+     * @return false if the stream was closed meanwhile
+     */
+    private boolean renderPage(PdfRenderer renderer, int index) throws InterruptedException {
+        long renderStart = System.nanoTime();
+        PdfRenderer.Page page = renderer.openPage(index);
+        try {
+            // Get the original PDF page dimensions
+            float pdfWidth = page.getWidth();
+            float pdfHeight = page.getHeight();
+
+            // Calculate scale to fit printer width
+            float scale = printHeadWidth / pdfWidth;
+            int scaledWidth = (int) (pdfWidth * scale);
+            int scaledHeight = (int) (pdfHeight * scale);
+
+            Log.d(TAG, "Page dimensions: " + pdfWidth + "x" + pdfHeight + ", scaled: " + scaledWidth + "x" + scaledHeight);
+
+            int bandRows = governor.bandRows(scaledWidth, scaledHeight, maxBandRows);
+            if (bandRows < scaledHeight) {
+                return renderBands(page, index, scale, scaledWidth, scaledHeight, bandRows);
+            }
+
+            // Reuse a pooled bitmap, already cleared to a white background
+            Bitmap pageBitmap = bitmapPool.acquire(scaledWidth, scaledHeight);
+
+            // Render page to bitmap
+            page.render(pageBitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            long renderNanos = System.nanoTime() - renderStart;
+
+            synchronized (this) {
+                if (closed) {
+                    bitmapPool.release(pageBitmap);
+                    return false;
+                }
+                ready[index] = new RenderedPage(pageBitmap, index, pageCount, renderNanos);
+                notifyAll();
+            }
+            return true;
+        } finally {
+            page.close();
+        }
+    }
+
+    /**
+     * Render a page band by band through one band bitmap, packing each band as soon as it is drawn.
+     * The page is handed over before its first band, and rendering waits while the printer is
+     * {@link MemoryGovernor#QUEUED_BANDS_PER_PAGE} bands behind.
+     * @return false if the stream was closed meanwhile
+     */
+    private boolean renderBands(PdfRenderer.Page page, int index, float scale, int width, int height, int bandRows)
+            throws InterruptedException {
+        int bandCount = (height + bandRows - 1) / bandRows;
+        Log.d(TAG, "Rendering page " + (index + 1) + " in " + bandCount + " bands of " + bandRows + " rows");
+        bandedPages = true;
+        RenderedPage rendered = new RenderedPage(null, index, pageCount, 0, bandCount);
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            ready[index] = rendered;
+            notifyAll();
+        }
+
+        int[] pixelStrip = new int[Math.max(width, PIXEL_STRIP_SIZE / width * width)];
+        Matrix transform = new Matrix();
+        for (int b = 0; b < bandCount; b++) {
+            synchronized (this) {
+                while (rendered.bands.size() >= MemoryGovernor.QUEUED_BANDS_PER_PAGE && !closed) {
+                    wait();
+                }
+                if (closed) {
+                    return false;
+                }
+            }
+
+            long bandStart = System.nanoTime();
+            int top = b * bandRows;
+            int rows = Math.min(bandRows, height - top);
+            Bitmap bandBitmap = bitmapPool.acquire(width, rows);
+            MonochromeRaster raster = new MonochromeRaster();
+            try {
+                // Page points to band pixels: scale to the print head, then shift the band to the top
+                transform.setScale(scale, scale);
+                transform.postTranslate(0, -top);
+                page.render(bandBitmap, null, transform, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+
+                raster.reset(width, rows);
+                int stripRows = pixelStrip.length / width;
+                for (int y = 0; y < rows; y += stripRows) {
+                    int count = Math.min(stripRows, rows - y);
+                    bandBitmap.getPixels(pixelStrip, 0, width, 0, y, width, count);
+                    raster.packArgbRows(pixelStrip, 0, width, y, count, MonochromeRaster.DEFAULT_THRESHOLD);
+                }
+            } finally {
+                bitmapPool.release(bandBitmap);
+            }
+
+            synchronized (this) {
+                rendered.bands.add(new Band(raster, b, System.nanoTime() - bandStart));
+                notifyAll();
+            }
+        }
+        return true;
+    }
+
+    private static void closeRenderer(PdfRenderer renderer, ParcelFileDescriptor fileDescriptor) {
+        try {
+            if (renderer != null) {
+                renderer.close();
+            }
+            if (fileDescriptor != null) {
+                fileDescriptor.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing PDF resources", e);
+        }
+    }
+
+    /**
+     * Stop rendering and release every page that was not taken
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (workers != null) {
+            for (Thread thread : workers) {
+                thread.interrupt();
+            }
+            for (Thread thread : workers) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        synchronized (this) {
+            // Only set if open() failed before the first worker took it over
+            closeRenderer(firstRenderer, firstFileDescriptor);
+            firstRenderer = null;
+            firstFileDescriptor = null;
+
+            if (ready != null) {
+                for (int i = 0; i < ready.length; i++) {
+                    if (ready[i] != null && ready[i].bitmap != null) {
+                        bitmapPool.release(ready[i].bitmap);
+                    }
+                    ready[i] = null;
+                }
+            }
+        }
+        source.close();
+    }
+}
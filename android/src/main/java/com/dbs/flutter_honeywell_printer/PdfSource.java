@@ -0,0 +1,146 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A PDF document that {@link PdfPageStream} can open once per render worker.
+ * <p>
+ * Documents passed as bytes are written to an anonymous in-memory file ({@code memfd_create},
+ * Android 11 and later) and every worker reads a duplicate of its descriptor, so printing
+ * them never touches flash. {@link android.graphics.pdf.PdfRenderer} needs a seekable
+ * descriptor, which rules out a pipe; older versions fall back to a temporary file that is
+ * deleted when the source is closed.
+ */
+abstract class PdfSource implements Closeable {
+    private static final String TAG = "PdfSource";
+
+    /**
+     * Open a new read-only descriptor, owned and closed by the caller
+     */
+    abstract ParcelFileDescriptor open() throws IOException;
+
+    /**
+     * Release what the source holds; descriptors opened earlier stay valid
+     */
+    @Override
+    public void close() {
+    }
+
+    static PdfSource ofFile(final File file) {
+        return new PdfSource() {
+            @Override
+            ParcelFileDescriptor open() throws IOException {
+                return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+            }
+
+            @Override
+            public String toString() {
+                return file.getPath();
+            }
+        };
+    }
+
+    /**
+     * @param document The PDF, not copied
+     * @param tempDir Directory for the temporary file on versions without {@code memfd_create}
+     */
+    static PdfSource ofBytes(byte[] document, File tempDir) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            try {
+                return new MemoryFileSource(document);
+            } catch (ErrnoException e) {
+                Log.w(TAG, "memfd_create failed, using a temporary file", e);
+            }
+        }
+        return new TempFileSource(document, tempDir);
+    }
+
+    private static final class MemoryFileSource extends PdfSource {
+        private FileDescriptor memoryFile;
+
+        MemoryFileSource(byte[] document) throws ErrnoException, IOException {
+            memoryFile = Os.memfd_create("print-document", OsConstants.MFD_CLOEXEC);
+            try {
+                int offset = 0;
+                while (offset < document.length) {
+                    offset += Os.write(memoryFile, document, offset, document.length - offset);
+                }
+            } catch (ErrnoException | IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        synchronized ParcelFileDescriptor open() throws IOException {
+            if (memoryFile == null) {
+                throw new IOException("Document already closed");
+            }
+            // PdfRenderer reads with pread, so duplicates sharing one file offset do not get in each other's way
+            return ParcelFileDescriptor.dup(memoryFile);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (memoryFile != null) {
+                try {
+                    Os.close(memoryFile);
+                } catch (ErrnoException e) {
+                    Log.w(TAG, "Error closing in-memory document", e);
+                }
+                memoryFile = null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "in-memory document";
+        }
+    }
+
+    private static final class TempFileSource extends PdfSource {
+        private final File file;
+
+        TempFileSource(byte[] document, File tempDir) throws IOException {
+            if (!tempDir.isDirectory() && !tempDir.mkdirs()) {
+                throw new IOException("Cannot create " + tempDir);
+            }
+            file = File.createTempFile("print-", ".pdf", tempDir);
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(document);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        ParcelFileDescriptor open() throws IOException {
+            return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        }
+
+        @Override
+        public void close() {
+            // Open descriptors keep the data readable after the file is deleted
+            if (file.exists() && !file.delete()) {
+                Log.w(TAG, "Could not delete " + file);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file.getPath();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serial print job queue for one printer.
+ * A single worker thread runs jobs one after another, so commands of different jobs
+ * never interleave on the connection. Jobs run in FIFO order within a priority, and
+ * higher priority jobs (e.g. reprints) jump ahead of waiting ones. While the queue is
+ * held, e.g. during a reconnect, jobs are accepted but none is started. At most
+ * {@code capacity} jobs wait; the {@link RejectionPolicy} decides what a full queue does.
+ */
+class PrintJobQueue {
+    private static final String TAG = "PrintJobQueue";
+
+    static final int PRIORITY_NORMAL = 0;
+    static final int PRIORITY_HIGH = 10;
+    static final int DEFAULT_CAPACITY = 32;
+
+    // Job IDs are unique across all queues
+    private static final AtomicLong nextJobId = new AtomicLong(1);
+
+    /**
+     * What to do when a job is submitted to a full queue
+     */
+    enum RejectionPolicy {
+        /** Fail the new job */
+        REJECT_NEW,
+        /** Fail the oldest waiting job of the lowest priority to make room */
+        DROP_OLDEST
+    }
+
+    /**
+     * Work done by a print job
+     */
+    interface PrintTask {
+        /**
+         * @return Message reported to the caller on success
+         * @throws Exception with a message reported to the caller on failure
+         */
+        String run() throws Exception;
+    }
+
+    /**
+     * A submitted print job
+     */
+    static class PrintJob implements Comparable<PrintJob> {
+        final long id;
+        final int priority;
+        private final long sequence;
+        private final PrintTask task;
+        private final HoneywellPrinterManager.PrinterCallback callback;
+
+        PrintJob(long id, int priority, long sequence, PrintTask task, HoneywellPrinterManager.PrinterCallback callback) {
+            this.id = id;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        @Override
+        public int compareTo(PrintJob other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final String name;
+    private int capacity = DEFAULT_CAPACITY; // guarded by this
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.REJECT_NEW;
+    private final PriorityBlockingQueue<PrintJob> jobs = new PriorityBlockingQueue<>();
+    private long nextSequence = 0;
+    private Thread worker;
+    private volatile boolean shutdown = false;
+    private boolean held = false;
+
+    PrintJobQueue(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Limit the number of waiting jobs, for jobs submitted from now on. Jobs already waiting stay queued.
+     * @param capacity Maximum number of jobs waiting to start, at least 1
+     */
+    synchronized void setLimits(int capacity, RejectionPolicy rejectionPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Allocate a job ID ahead of {@link #submit(long, int, PrintTask, HoneywellPrinterManager.PrinterCallback)},
+     * e.g. to report the job before it can start
+     */
+    static long newJobId() {
+        return nextJobId.getAndIncrement();
+    }
+
+    /**
+     * Queue a job
+     * @return The job ID, or -1 if the job was rejected (its callback has been told why)
+     */
+    long submit(int priority, PrintTask task, HoneywellPrinterManager.PrinterCallback callback) {
+        return submit(newJobId(), priority, task, callback);
+    }
+
+    /**
+     * Queue a job under an ID from {@link #newJobId()}
+     * @return The job ID, or -1 if the job was rejected (its callback has been told why)
+     */
+    long submit(long jobId, int priority, PrintTask task, HoneywellPrinterManager.PrinterCallback callback) {
+        PrintJob dropped = null;
+        PrintJob job = null;
+        String rejection = null;
+
+        synchronized (this) {
+            if (shutdown) {
+                rejection = "Print queue is shut down";
+            } else if (jobs.size() >= capacity && rejectionPolicy == RejectionPolicy.REJECT_NEW) {
+                Log.w(TAG, "Print queue " + name + " is full, rejecting job");
+                rejection = "Print queue is full";
+            } else {
+                if (jobs.size() >= capacity) {
+                    dropped = removeOldestLowestPriority();
+                }
+                job = new PrintJob(jobId, priority, nextSequence++, task, callback);
+                jobs.add(job);
+                startWorkerIfNeeded();
+            }
+        }
+
+        // Callbacks run outside the lock, they may submit or cancel jobs
+        if (rejection != null) {
+            callback.onResult(false, rejection);
+            return -1;
+        }
+
+        if (dropped != null) {
+            Log.w(TAG, "Print queue " + name + " is full, dropped job " + dropped.id);
+            dropped.callback.onResult(false, "Dropped from full print queue");
+        }
+
+        Log.d(TAG, "Queued job " + job.id + " on " + name + " with priority " + priority + ", " + jobs.size() + " waiting");
+        return job.id;
+    }
+
+    /**
+     * Remove a job that has not started yet
+     * @return true if the job was waiting and has been cancelled
+     */
+    boolean cancel(long jobId) {
+        for (PrintJob job : jobs) {
+            if (job.id == jobId && jobs.remove(job)) {
+                Log.d(TAG, "Cancelled job " + jobId);
+                job.callback.onResult(false, "Print job cancelled");
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Hold or release waiting jobs, a job that is already running is not affected
+     */
+    synchronized void setHeld(boolean held) {
+        if (this.held != held) {
+            Log.d(TAG, (held ? "Holding" : "Releasing") + " print queue " + name + ", " + jobs.size() + " waiting");
+        }
+        this.held = held;
+        notifyAll();
+    }
+
+    synchronized boolean isHeld() {
+        return held;
+    }
+
+    /**
+     * Stop the worker and fail every job that has not started
+     */
+    void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        PrintJob job;
+        while ((job = jobs.poll()) != null) {
+            job.callback.onResult(false, "Print queue is shut down");
+        }
+    }
+
+    private PrintJob removeOldestLowestPriority() {
+        PrintJob candidate = null;
+        Iterator<PrintJob> iterator = jobs.iterator();
+        while (iterator.hasNext()) {
+            PrintJob job = iterator.next();
+            if (candidate == null || job.priority < candidate.priority
+                    || (job.priority == candidate.priority && job.sequence < candidate.sequence)) {
+                candidate = job;
+            }
+        }
+        if (candidate != null) {
+            jobs.remove(candidate);
+        }
+        return candidate;
+    }
+
+    private synchronized void awaitRelease() throws InterruptedException {
+        while (held && !shutdown) {
+            wait();
+        }
+    }
+
+    private void startWorkerIfNeeded() {
+        if (worker != null) {
+            return;
+        }
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runJobs();
+            }
+        }, "print-queue-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void runJobs() {
+        while (!shutdown) {
+            PrintJob job;
+            try {
+                awaitRelease();
+                job = jobs.take();
+                synchronized (this) {
+                    if (held) {
+                        // Held while waiting for a job, put it back until the queue is released
+                        jobs.add(job);
+                        continue;
+                    }
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            Log.d(TAG, "Running job " + job.id + " on " + name);
+            try {
+                String message = job.task.run();
+                job.callback.onResult(true, message);
+            } catch (Exception e) {
+                Log.e(TAG, "Print job " + job.id + " failed", e);
+                job.callback.onResult(false, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+        Log.d(TAG, "Print queue " + name + " stopped");
+    }
+}
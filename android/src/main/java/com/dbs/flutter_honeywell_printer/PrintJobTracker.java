@@ -0,0 +1,147 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reports the progress of one print job as events: queued, started, page rendered,
+ * page encoded, bytes sent, page done, and done or failed. Timings are in milliseconds
+ * and throughput in bytes per second since the job started.
+ * Without a listener nothing is built, so tracking costs nothing when no one listens.
+ */
+class PrintJobTracker {
+    static final String QUEUED = "queued";
+    static final String STARTED = "started";
+    static final String PAGE_RENDERED = "pageRendered";
+    static final String PAGE_ENCODED = "pageEncoded";
+    static final String BYTES_SENT = "bytesSent";
+    static final String PAGE_DONE = "pageDone";
+    static final String DONE = "done";
+    static final String FAILED = "failed";
+
+    final long jobId;
+    final String printer;
+    private final HoneywellPrinterManager.PrintEventListener listener;
+
+    private long startNanos;
+    private long bytesSent = 0;
+    private int pagesDone = 0;
+
+    PrintJobTracker(long jobId, String printer, HoneywellPrinterManager.PrintEventListener listener) {
+        this.jobId = jobId;
+        this.printer = printer;
+        this.listener = listener;
+    }
+
+    void queued(String kind, int priority) {
+        if (listener != null) {
+            Map<String, Object> event = event(QUEUED);
+            event.put("kind", kind);
+            event.put("priority", priority);
+            listener.onPrintEvent(event);
+        }
+    }
+
+    void started() {
+        startNanos = System.nanoTime();
+        if (listener != null) {
+            listener.onPrintEvent(event(STARTED));
+        }
+    }
+
+    /**
+     * @param renderMs Time the renderer spent on the page, summed over its bands if it was rendered in bands
+     */
+    void pageRendered(int page, int pageCount, long renderMs) {
+        if (listener != null) {
+            Map<String, Object> event = event(PAGE_RENDERED);
+            event.put("page", page);
+            event.put("pageCount", pageCount);
+            event.put("renderMs", renderMs);
+            listener.onPrintEvent(event);
+        }
+    }
+
+    void pageEncoded(int page, long encodeMs, int bytes) {
+        if (listener != null) {
+            Map<String, Object> event = event(PAGE_ENCODED);
+            event.put("page", page);
+            event.put("encodeMs", encodeMs);
+            event.put("bytes", bytes);
+            listener.onPrintEvent(event);
+        }
+    }
+
+    /**
+     * @param page Page the bytes belong to, or -1 for jobs without pages
+     */
+    void bytesSent(int page, int bytes, long sendMs) {
+        bytesSent += bytes;
+        if (listener != null) {
+            Map<String, Object> event = event(BYTES_SENT);
+            event.put("page", page);
+            event.put("bytes", bytes);
+            event.put("sendMs", sendMs);
+            event.put("totalBytes", bytesSent);
+            event.put("bytesPerSecond", bytesPerSecond());
+            listener.onPrintEvent(event);
+        }
+    }
+
+    void pageDone(int page, int pageCount, long pageMs) {
+        pagesDone++;
+        if (listener != null) {
+            Map<String, Object> event = event(PAGE_DONE);
+            event.put("page", page);
+            event.put("pageCount", pageCount);
+            event.put("pageMs", pageMs);
+            listener.onPrintEvent(event);
+        }
+    }
+
+    void done() {
+        if (listener != null) {
+            Map<String, Object> event = event(DONE);
+            event.put("pages", pagesDone);
+            event.put("totalBytes", bytesSent);
+            event.put("bytesPerSecond", bytesPerSecond());
+            listener.onPrintEvent(event);
+        }
+    }
+
+    void failed(String message) {
+        if (listener != null) {
+            Map<String, Object> event = event(FAILED);
+            event.put("message", message);
+            event.put("pages", pagesDone);
+            event.put("totalBytes", bytesSent);
+            listener.onPrintEvent(event);
+        }
+    }
+
+    int getPagesDone() {
+        return pagesDone;
+    }
+
+    long getBytesSent() {
+        return bytesSent;
+    }
+
+    long getElapsedMs() {
+        return startNanos == 0 ? 0 : (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    private long bytesPerSecond() {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return startNanos == 0 || elapsedNanos <= 0 ? 0 : bytesSent * 1000000000L / elapsedNanos;
+    }
+
+    private Map<String, Object> event(String type) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", type);
+        event.put("jobId", jobId);
+        event.put("printer", printer);
+        event.put("elapsedMs", getElapsedMs());
+        return event;
+    }
+}
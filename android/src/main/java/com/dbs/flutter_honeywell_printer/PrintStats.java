@@ -0,0 +1,183 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the print pipeline, cheap enough to record on every
+ * page. Recording is lock-free; a snapshot is a plain map for the method channel.
+ * <p>
+ * Latencies are bucketed by powers of two microseconds, so percentiles are upper bounds
+ * within a factor of two, which is enough to tell which stage dominates.
+ */
+final class PrintStats {
+
+    /**
+     * Timed stages of connecting and printing
+     */
+    enum Stage {
+        CONNECT,
+        PDF_OPEN,
+        RENDER,
+        PACK,
+        TRIM,
+        ENCODE,
+        TRANSMIT,
+        JOB
+    }
+
+    /**
+     * Event counters
+     */
+    enum Counter {
+        CONNECT_ATTEMPTS,
+        CONNECT_FAILURES,
+        RECONNECTS,
+        JOBS_COMPLETED,
+        JOBS_FAILED,
+        PAGES_PRINTED,
+        PAGES_BANDED,
+        BYTES_SENT,
+        CACHE_HITS,
+        FLOW_CONTROL_WAITS,
+        STATUS_TIMEOUTS
+    }
+
+    private static final int BUCKETS = 40; // 2^39 us is about 6 days
+    private static final int COUNT = 0;
+    private static final int TOTAL_MICROS = 1;
+    private static final int MAX_MICROS = 2;
+    private static final int FIRST_BUCKET = 3;
+    private static final int STAGE_SLOTS = FIRST_BUCKET + BUCKETS;
+
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLongArray stages = new AtomicLongArray(Stage.values().length * STAGE_SLOTS);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    /**
+     * Record the duration of a stage
+     */
+    void record(Stage stage, long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int base = stage.ordinal() * STAGE_SLOTS;
+        stages.incrementAndGet(base + COUNT);
+        stages.addAndGet(base + TOTAL_MICROS, micros);
+        stages.incrementAndGet(base + FIRST_BUCKET + bucketOf(micros));
+
+        long max;
+        while (micros > (max = stages.get(base + MAX_MICROS))) {
+            if (stages.compareAndSet(base + MAX_MICROS, max, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Record the duration of a stage that started at {@code startNanos} ({@link System#nanoTime()})
+     */
+    void recordSince(Stage stage, long startNanos) {
+        record(stage, System.nanoTime() - startNanos);
+    }
+
+    void increment(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    void add(Counter counter, long amount) {
+        counters.addAndGet(counter.ordinal(), amount);
+    }
+
+    long get(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    long getCount(Stage stage) {
+        return stages.get(stage.ordinal() * STAGE_SLOTS + COUNT);
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    void reset() {
+        for (int i = 0; i < stages.length(); i++) {
+            stages.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Counters by camel case name, and per stage count, totalMs, meanMs, maxMs, p50Ms, p90Ms and p99Ms
+     */
+    Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("sinceMs", System.currentTimeMillis() - startedAt);
+
+        Map<String, Object> counterValues = new LinkedHashMap<>();
+        for (Counter counter : Counter.values()) {
+            counterValues.put(camelCase(counter.name()), get(counter));
+        }
+        snapshot.put("counters", counterValues);
+
+        Map<String, Object> stageValues = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            int base = stage.ordinal() * STAGE_SLOTS;
+            long count = stages.get(base + COUNT);
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = stages.get(base + FIRST_BUCKET + i);
+            }
+
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", count);
+            values.put("totalMs", stages.get(base + TOTAL_MICROS) / 1000.0);
+            values.put("meanMs", count == 0 ? 0.0 : stages.get(base + TOTAL_MICROS) / 1000.0 / count);
+            values.put("maxMs", stages.get(base + MAX_MICROS) / 1000.0);
+            values.put("p50Ms", percentileMicros(buckets, count, 0.50) / 1000.0);
+            values.put("p90Ms", percentileMicros(buckets, count, 0.90) / 1000.0);
+            values.put("p99Ms", percentileMicros(buckets, count, 0.99) / 1000.0);
+            stageValues.put(camelCase(stage.name()), values);
+        }
+        snapshot.put("stages", stageValues);
+        return snapshot;
+    }
+
+    /**
+     * Bucket {@code b} holds durations below {@code 2^b} microseconds (bucket 0 holds zero)
+     */
+    static int bucketOf(long micros) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long percentileMicros(long[] buckets, long count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : 1L << i;
+            }
+        }
+        return 1L << (buckets.length - 1);
+    }
+
+    private static String camelCase(String constant) {
+        StringBuilder name = new StringBuilder(constant.length());
+        boolean upper = false;
+        for (char c : constant.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
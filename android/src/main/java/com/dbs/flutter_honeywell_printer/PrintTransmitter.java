@@ -0,0 +1,263 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends command payloads to a printer in transport-sized chunks, pacing itself on
+ * {@code ~HS} host status replies instead of fixed delays.
+ * <p>
+ * After every {@code windowBytes} bytes in flight the printer is asked for its status.
+ * Sending continues as soon as it reports that it can take more data, and waits while
+ * its buffer is full or it is paused. Printers that never answer {@code ~HS} are sent
+ * to without pacing, limited only by the blocking writes of the link.
+ * <p>
+ * {@code ~HS} is ZPL, so only ZPL payloads are paced. In CPCL, TSPL and ESC/POS the query
+ * would land inside binary graphic data or be printed as text, so those payloads are written
+ * in plain chunks and do not count towards the window.
+ */
+class PrintTransmitter {
+    private static final String TAG = "PrintTransmitter";
+
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024; // bytes per write, sized for Bluetooth SPP
+    static final int DEFAULT_WINDOW_BYTES = 32 * 1024; // bytes sent before asking for the printer status
+    private static final long STATUS_TIMEOUT_MS = 2000;
+    private static final long STATUS_POLL_INTERVAL_MS = 200;
+    private static final long MAX_STALL_MS = 60000; // give up if the printer stays busy this long
+    private static final int MAX_QUEUED_FORMATS = 2; // labels waiting in the printer before we hold back
+
+    private final PrinterTransport transport;
+    private final PrintStats stats;
+    private final int chunkSize;
+    private final int windowBytes;
+    private final LinkedBlockingQueue<HostStatus> statusReplies = new LinkedBlockingQueue<>();
+    private final LinkedBlockingQueue<String> framedReplies = new LinkedBlockingQueue<>();
+
+    // Held while sending, keep-alive probes skip the link instead of waiting for it
+    private final ReentrantLock sendLock = new ReentrantLock();
+
+    // Partial ~HS or query reply received so far
+    private final CommandBuffer replyBuffer = new CommandBuffer(256);
+
+    private long bytesInFlight = 0;
+    private boolean statusSupported = true;
+    private volatile long lastReplyTime = 0;
+    private volatile boolean framedReplyPending = false; // a query() waits for a single STX ... ETX reply
+
+    PrintTransmitter(PrinterTransport transport) {
+        this(transport, DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW_BYTES, null);
+    }
+
+    PrintTransmitter(PrinterTransport transport, PrintStats stats) {
+        this(transport, DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW_BYTES, stats);
+    }
+
+    /**
+     * @param stats Receives flow control waits and status timeouts, or null
+     */
+    PrintTransmitter(PrinterTransport transport, int chunkSize, int windowBytes, PrintStats stats) {
+        this.transport = transport;
+        this.stats = stats;
+        this.chunkSize = chunkSize;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Send a payload, blocking until all of it was handed to the link
+     * @param language Command language of the whole payload, or null if it mixes languages; only ZPL is paced
+     * @throws IOException if the printer stays unable to accept data
+     */
+    void send(byte[] payload, CommandLanguage language) throws IOException, InterruptedException {
+        boolean paced = language == CommandLanguage.ZPL;
+        sendLock.lockInterruptibly();
+        try {
+            for (int offset = 0; offset < payload.length; offset += chunkSize) {
+                if (paced && bytesInFlight >= windowBytes) {
+                    awaitCapacity();
+                }
+
+                int end = Math.min(offset + chunkSize, payload.length);
+                transport.write(offset == 0 && end == payload.length ? payload : Arrays.copyOfRange(payload, offset, end));
+                if (paced) {
+                    bytesInFlight += end - offset;
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Block until the link has sent every payload handed to it. Network links queue writes,
+     * so a job only counts as sent once this returns.
+     * @throws IOException if the link dropped or the printer stopped taking data first
+     */
+    void drain() throws IOException, InterruptedException {
+        transport.drain();
+    }
+
+    /**
+     * Keep-alive: send a {@code ~HS} query unless a payload is being sent right now
+     * @param maxSilenceMs How long a printer that answers {@code ~HS} may stay silent before the link counts as dead
+     * @return false if the link looks dead
+     */
+    boolean probe(long maxSilenceMs) {
+        if (!sendLock.tryLock()) {
+            // Busy sending, the blocking writes already prove the link
+            return true;
+        }
+        try {
+            if (statusSupported && lastReplyTime > 0 && System.currentTimeMillis() - lastReplyTime > maxSilenceMs) {
+                Log.w(TAG, "No reply from printer for " + (System.currentTimeMillis() - lastReplyTime) + " ms");
+                return false;
+            }
+            transport.write(HostStatus.QUERY);
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Keep-alive write failed", e);
+            return false;
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Send a query answered with one STX ... ETX framed string, such as {@code ~HI} or {@code ^HH},
+     * and wait for the reply. Payloads and keep-alive probes wait until it is answered.
+     * @return The text between STX and ETX, or null if the printer did not answer in time
+     */
+    String query(byte[] command, long timeoutMs) throws IOException, InterruptedException {
+        sendLock.lockInterruptibly();
+        try {
+            synchronized (replyBuffer) {
+                framedReplies.clear();
+                framedReplyPending = true;
+            }
+            transport.write(command);
+            return framedReplies.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            synchronized (replyBuffer) {
+                framedReplyPending = false;
+            }
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the printer reports that it can take more data
+     */
+    private void awaitCapacity() throws IOException, InterruptedException {
+        if (!statusSupported) {
+            bytesInFlight = 0;
+            return;
+        }
+
+        long stallStart = System.currentTimeMillis();
+        while (true) {
+            HostStatus status = queryStatus();
+            if (status == null) {
+                count(PrintStats.Counter.STATUS_TIMEOUTS);
+                Log.w(TAG, "Printer did not answer ~HS, sending without flow control");
+                statusSupported = false;
+                bytesInFlight = 0;
+                return;
+            }
+
+            if (status.canAcceptData() && status.formatsInBuffer <= MAX_QUEUED_FORMATS) {
+                bytesInFlight = 0;
+                return;
+            }
+
+            if (System.currentTimeMillis() - stallStart > MAX_STALL_MS) {
+                throw new IOException(status.describeProblem());
+            }
+
+            count(PrintStats.Counter.FLOW_CONTROL_WAITS);
+            Log.d(TAG, "Printer busy, waiting: " + status);
+            Thread.sleep(STATUS_POLL_INTERVAL_MS);
+        }
+    }
+
+    private void count(PrintStats.Counter counter) {
+        if (stats != null) {
+            stats.increment(counter);
+        }
+    }
+
+    private HostStatus queryStatus() throws IOException, InterruptedException {
+        statusReplies.clear();
+        transport.write(HostStatus.QUERY);
+        return statusReplies.poll(STATUS_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Feed bytes read from the printer, as delivered to {@code printerReadMsgCallback}
+     */
+    void onBytesReceived(byte[] bytes) {
+        lastReplyTime = System.currentTimeMillis();
+        synchronized (replyBuffer) {
+            replyBuffer.write(bytes);
+
+            if (framedReplyPending) {
+                takeFramedReply();
+                if (framedReplyPending) {
+                    return;
+                }
+            }
+
+            int end;
+            while ((end = HostStatus.findReplyEnd(replyBuffer.array(), 0, replyBuffer.size())) >= 0) {
+                HostStatus status = HostStatus.parse(replyBuffer.array(), 0, end);
+                if (status != null) {
+                    statusReplies.offer(status);
+                }
+
+                // Keep anything received after this reply
+                byte[] rest = Arrays.copyOfRange(replyBuffer.array(), end, replyBuffer.size());
+                replyBuffer.reset();
+                replyBuffer.write(rest);
+            }
+        }
+    }
+
+    /**
+     * Hand the first complete STX ... ETX string received to a waiting query, called with the reply buffer locked
+     */
+    private void takeFramedReply() {
+        byte[] data = replyBuffer.array();
+        int size = replyBuffer.size();
+        int start = -1;
+        for (int i = 0; i < size; i++) {
+            if (data[i] == 0x02 && start < 0) {
+                start = i + 1;
+            } else if (data[i] == 0x03 && start >= 0) {
+                framedReplies.offer(new String(data, start, i - start, StandardCharsets.US_ASCII));
+                framedReplyPending = false;
+
+                byte[] rest = Arrays.copyOfRange(data, i + 1, size);
+                replyBuffer.reset();
+                replyBuffer.write(rest);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forget the pacing state, e.g. after a reconnect
+     */
+    void reset() {
+        synchronized (replyBuffer) {
+            replyBuffer.reset();
+        }
+        statusReplies.clear();
+        framedReplies.clear();
+        statusSupported = true;
+        lastReplyTime = 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What a printer can print: resolution, print head width, media and longest label.
+ * <p>
+ * ZPL printers are asked once with {@code ~HI} (model and dots per mm) and {@code ^HH}
+ * (the configuration label as text). Pages are then rendered at exactly the head width and
+ * label sizes are written in the printer's own dots. Printers that do not answer keep
+ * {@link #DEFAULT}, a 3 inch head at 203 DPI.
+ */
+final class PrinterProfile {
+    static final byte[] MODEL_QUERY = "~HI".getBytes(StandardCharsets.US_ASCII);
+    static final byte[] CONFIG_QUERY = "^XA^HH^XZ".getBytes(StandardCharsets.US_ASCII);
+
+    static final String MEDIA_GAP = "GAP/NOTCH";
+    static final String MEDIA_MARK = "MARK";
+    static final String MEDIA_CONTINUOUS = "CONTINUOUS";
+
+    static final PrinterProfile DEFAULT = new PrinterProfile(null, 8, 576, MEDIA_GAP, 0);
+
+    // Configuration label lines: value, a run of dots, then the setting name
+    private static final Pattern CONFIG_LINE = Pattern.compile("^\\s*(.*?)\\s*\\.{2,}\\s*(.+?)\\s*$");
+    private static final Pattern LEADING_NUMBER = Pattern.compile("^\\s*(\\d+)");
+    private static final Pattern MILLIMETRES = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*MM");
+
+    final String model; // null if unknown
+    final int dotsPerMm;
+    final int printWidthDots;
+    final String mediaType;
+    final int maxLabelLengthDots; // 0 if unknown
+
+    PrinterProfile(String model, int dotsPerMm, int printWidthDots, String mediaType, int maxLabelLengthDots) {
+        this.model = model;
+        this.dotsPerMm = dotsPerMm;
+        this.printWidthDots = printWidthDots;
+        this.mediaType = mediaType;
+        this.maxLabelLengthDots = maxLabelLengthDots;
+    }
+
+    /**
+     * Resolution in DPI as printers are usually labelled, e.g. 203 for 8 dots per mm
+     */
+    int getDpi() {
+        return Math.round(dotsPerMm * 25.4f);
+    }
+
+    /**
+     * Print head width in whole mm
+     */
+    int getPrintWidthMm() {
+        return printWidthDots / dotsPerMm;
+    }
+
+    /**
+     * True if the media has no gaps or marks between labels
+     */
+    boolean isContinuous() {
+        return MEDIA_CONTINUOUS.equals(mediaType);
+    }
+
+    /**
+     * Build a profile from the replies to {@link #MODEL_QUERY} and {@link #CONFIG_QUERY}
+     * @param modelReply Text of the {@code ~HI} reply, e.g. "ZT230-300dpi,V72.20.01Z,12,8192KB"
+     * @param configReply Text of the {@code ^HH} reply, or null if the printer did not send it
+     * @return The profile, or null if the {@code ~HI} reply is malformed
+     */
+    static PrinterProfile parse(String modelReply, String configReply) {
+        String[] fields = modelReply.split(",");
+        if (fields.length < 3) {
+            return null;
+        }
+        int dotsPerMm;
+        try {
+            dotsPerMm = Integer.parseInt(fields[2].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (dotsPerMm <= 0) {
+            return null;
+        }
+        String model = fields[0].trim();
+
+        // Without a configuration, assume the head of the default profile at this resolution
+        int printWidthDots = DEFAULT.getPrintWidthMm() * dotsPerMm;
+        String mediaType = DEFAULT.mediaType;
+        int maxLabelLengthDots = 0;
+        if (configReply != null) {
+            Map<String, String> settings = parseConfig(configReply);
+            Integer width = leadingNumber(settings.get("PRINT WIDTH"));
+            if (width != null && width > 0) {
+                printWidthDots = width;
+            }
+            String media = settings.get("MEDIA TYPE");
+            if (media != null) {
+                mediaType = media.toUpperCase(Locale.ROOT);
+            }
+            String maxLength = settings.get("MAXIMUM LENGTH");
+            if (maxLength != null) {
+                Matcher mm = MILLIMETRES.matcher(maxLength.toUpperCase(Locale.ROOT));
+                if (mm.find()) {
+                    maxLabelLengthDots = Math.round(Float.parseFloat(mm.group(1)) * dotsPerMm);
+                }
+            }
+        }
+        return new PrinterProfile(model, dotsPerMm, printWidthDots, mediaType, maxLabelLengthDots);
+    }
+
+    /**
+     * Setting name to value for each line of a configuration label, names in upper case
+     */
+    static Map<String, String> parseConfig(String configReply) {
+        Map<String, String> settings = new HashMap<>();
+        for (String line : configReply.split("[\r\n]+")) {
+            Matcher matcher = CONFIG_LINE.matcher(line);
+            if (matcher.matches()) {
+                settings.put(matcher.group(2).toUpperCase(Locale.ROOT), matcher.group(1));
+            }
+        }
+        return settings;
+    }
+
+    private static Integer leadingNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = LEADING_NUMBER.matcher(value);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    /**
+     * The profile as reported to Dart
+     */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("model", model);
+        map.put("dotsPerMm", dotsPerMm);
+        map.put("dpi", getDpi());
+        map.put("printWidthDots", printWidthDots);
+        map.put("mediaType", mediaType);
+        map.put("maxLabelLengthDots", maxLabelLengthDots);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "PrinterProfile{model=" + model + ", dotsPerMm=" + dotsPerMm + ", printWidthDots=" + printWidthDots
+                + ", mediaType=" + mediaType + ", maxLabelLengthDots=" + maxLabelLengthDots + "}";
+    }
+}
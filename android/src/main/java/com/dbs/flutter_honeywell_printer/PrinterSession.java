@@ -0,0 +1,528 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection and print state of one printer, identified by its MAC address.
+ * Each session has its own connection, transmitter, job queue and encoding buffers,
+ * so jobs for different printers run in parallel. The link itself is a {@link PrinterTransport}.
+ * <p>
+ * In persistent mode a lost link is not the end of the session: the printer is probed with
+ * a keep-alive while idle, reconnected in the background with exponential backoff, and
+ * queued jobs are held until the link is back. A printer that stays away longer than the
+ * reconnect deadline is given up on, and the held jobs fail.
+ */
+class PrinterSession {
+    private static final String TAG = "PrinterSession";
+
+    static final long KEEP_ALIVE_INTERVAL_MS = 15000;
+    private static final int KEEP_ALIVE_MISSES = 3; // unanswered intervals before the link counts as dead
+    static final long RECONNECT_INITIAL_DELAY_MS = 1000;
+    static final long RECONNECT_MAX_DELAY_MS = 30000;
+    static final long RECONNECT_DEADLINE_MS = 5 * 60 * 1000; // held jobs fail if the printer is not back by then
+
+    final String address;
+    final PrintJobQueue jobQueue;
+    private final ScheduledExecutorService scheduler;
+    private final PrintStats stats;
+
+    // Buffers for packing and encoding pages, only used by this printer's queue worker
+    final CommandBuffer commandBuffer = new CommandBuffer(128 * 1024);
+    final MonochromeRaster pageRaster = new MonochromeRaster();
+    final ZplGraphicEncoder graphicEncoder = new ZplGraphicEncoder();
+    final CommandBuffer candidateBuffer = new CommandBuffer(16 * 1024); // page encoded in another language, to compare sizes
+    final ZplCompressor graphicCompressor = new ZplCompressor(); // stored graphic downloads
+    int[] pixelStrip;
+    CommandLanguage lastLanguage; // language of the last page sent, setup is sent again when it changes
+
+    // Command languages this printer understands, the first is used unless a job asks for the smallest payload
+    private volatile CommandBackend[] backends = {new ZplBackend(graphicEncoder)};
+    // Resolution, head width and media, pages are rendered and sized for it
+    private volatile PrinterProfile profile = PrinterProfile.DEFAULT;
+
+    // Stored formats this printer holds in RAM, name to content hash. Cleared on every new link,
+    // since the printer may have been power cycled while it was away.
+    private final Map<String, String> residentTemplates = new ConcurrentHashMap<>();
+    // Graphics this printer holds in RAM, cleared for the same reason
+    final GraphicRegistry graphicRegistry = new GraphicRegistry();
+
+    private volatile PrinterTransport transport;
+    private volatile PrintTransmitter transmitter;
+
+    // Connection state machine, completed by the observer callback or the timeout
+    private volatile ConnectionState connectionState = ConnectionState.IDLE;
+    private PrinterTransport.Listener linkListener; // listener of the current attempt, older ones are ignored
+    private HoneywellPrinterManager.PrinterCallback pendingConnectCallback;
+    private String pendingConnectName;
+    private ScheduledFuture<?> connectTimeout;
+    private long connectStartNanos;
+
+    // Keep track of the last connection result for better debugging
+    private volatile String lastConnectionError = null;
+
+    // Persistent mode: the transport and timeout of the last connect are reused by background reconnects
+    private volatile boolean persistent = false;
+    private long connectTimeoutMs;
+    private boolean autoReconnect = false; // cleared by disconnect() so a user disconnect stays final
+    private long reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+    private long reconnectDeadlineMs = RECONNECT_DEADLINE_MS;
+    private long linkLostAtMs; // when the current round of reconnects started
+    private ScheduledFuture<?> reconnectTask;
+    private ScheduledFuture<?> keepAliveTask;
+
+    PrinterSession(String address, ScheduledExecutorService scheduler, PrintStats stats) {
+        this.address = address;
+        this.scheduler = scheduler;
+        this.stats = stats;
+        this.jobQueue = new PrintJobQueue(address);
+    }
+
+    /**
+     * @param languages Languages this printer understands, the first is its default
+     */
+    void setCommandLanguages(List<CommandLanguage> languages) {
+        if (languages.isEmpty()) {
+            throw new IllegalArgumentException("At least one command language is required");
+        }
+        CommandBackend[] selected = new CommandBackend[languages.size()];
+        for (int i = 0; i < selected.length; i++) {
+            selected[i] = CommandBackend.forLanguage(languages.get(i), graphicEncoder);
+        }
+        backends = selected;
+    }
+
+    /**
+     * Backends of the printer's command languages, the default first
+     */
+    CommandBackend[] getBackends() {
+        return backends;
+    }
+
+    /**
+     * True if the printer understands the given language, the default or one of the alternatives
+     */
+    boolean speaks(CommandLanguage language) {
+        for (CommandBackend backend : backends) {
+            if (backend.getLanguage() == language) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    PrinterProfile getProfile() {
+        return profile;
+    }
+
+    void setProfile(PrinterProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Enable or disable keep-alive and background reconnects
+     */
+    void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+        if (persistent) {
+            synchronized (this) {
+                autoReconnect = transport != null && connectionState == ConnectionState.CONNECTED;
+            }
+            if (isConnected()) {
+                startKeepAlive();
+            }
+        } else {
+            stopKeepAlive();
+            cancelReconnect();
+            synchronized (this) {
+                autoReconnect = false;
+                if (connectionState == ConnectionState.RECONNECTING) {
+                    connectionState = ConnectionState.IDLE;
+                }
+            }
+            // Held jobs run now and fail fast instead of waiting for a reconnect that will not come
+            jobQueue.setHeld(false);
+        }
+    }
+
+    boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * Set how long background reconnects keep trying before the held jobs fail
+     */
+    synchronized void setReconnectDeadlineMs(long deadlineMs) {
+        reconnectDeadlineMs = deadlineMs;
+    }
+
+    /**
+     * Connect over the given transport, completing as soon as the printer reports the result
+     * @param timeoutMs Time to wait for the printer before the attempt fails
+     */
+    void connect(PrinterTransport transport, final long timeoutMs, HoneywellPrinterManager.PrinterCallback callback) {
+        cancelReconnect();
+        PrinterTransport previous;
+        synchronized (this) {
+            previous = this.transport;
+            this.transport = transport;
+            this.connectTimeoutMs = timeoutMs;
+            reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+        }
+        if (previous != null && previous != transport) {
+            previous.disconnect();
+        }
+        open(timeoutMs, callback);
+    }
+
+    private void open(final long timeoutMs, HoneywellPrinterManager.PrinterCallback callback) {
+        try {
+            // Fail any attempt that is still waiting, then reset error message
+            completeConnect(ConnectionState.FAILED, "Superseded by a new connection attempt");
+            lastConnectionError = null;
+
+            // Check if printer is already connected
+            stopKeepAlive();
+            closeConnection();
+
+            PrinterTransport link = transport;
+            Log.d(TAG, "Connecting to printer: " + link.getName());
+            transmitter = new PrintTransmitter(link, stats);
+            PrinterTransport.Listener listener = newLinkListener();
+
+            // The listener completes the attempt, the timeout fails it if the printer stays silent
+            synchronized (this) {
+                connectionState = ConnectionState.CONNECTING;
+                connectStartNanos = System.nanoTime();
+                stats.increment(PrintStats.Counter.CONNECT_ATTEMPTS);
+                linkListener = listener;
+                pendingConnectCallback = callback;
+                pendingConnectName = link.getName();
+                connectTimeout = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        completeConnect(ConnectionState.FAILED, "Connection timed out after " + timeoutMs + " ms");
+                    }
+                }, timeoutMs, TimeUnit.MILLISECONDS);
+            }
+
+            // Connect to the printer
+            Log.d(TAG, "Initiating connection to printer " + address + "...");
+            link.connect(listener);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error connecting to printer " + address, e);
+            if (!completeConnect(ConnectionState.FAILED, "Error connecting: " + e.getMessage())) {
+                fail("Error connecting: " + e.getMessage());
+                callback.onResult(false, "Error connecting: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Record a connection failure that happened before an attempt could start
+     */
+    void fail(String message) {
+        lastConnectionError = message;
+        connectionState = ConnectionState.FAILED;
+    }
+
+    /**
+     * Finish the running connection attempt, if any
+     * @return true if an attempt was waiting and its callback has been called
+     */
+    private boolean completeConnect(ConnectionState state, String message) {
+        HoneywellPrinterManager.PrinterCallback callback;
+        String deviceName;
+        synchronized (this) {
+            if (connectionState != ConnectionState.CONNECTING || pendingConnectCallback == null) {
+                return false;
+            }
+            callback = pendingConnectCallback;
+            deviceName = pendingConnectName;
+            pendingConnectCallback = null;
+            connectionState = state;
+            if (connectTimeout != null) {
+                connectTimeout.cancel(false);
+                connectTimeout = null;
+            }
+        }
+
+        if (state == ConnectionState.CONNECTED) {
+            stats.recordSince(PrintStats.Stage.CONNECT, connectStartNanos);
+            Log.d(TAG, "Successfully connected to printer " + address);
+            onLinkUp();
+            callback.onResult(true, "Connected to " + deviceName);
+        } else {
+            if (state == ConnectionState.FAILED) {
+                stats.increment(PrintStats.Counter.CONNECT_FAILURES);
+            }
+            lastConnectionError = message;
+            Log.e(TAG, message);
+            callback.onResult(false, message);
+
+            // Cleanup if connection failed
+            closeConnection();
+        }
+        return true;
+    }
+
+    /**
+     * A listener for one connection attempt, ignoring events once a newer attempt started
+     */
+    private PrinterTransport.Listener newLinkListener() {
+        return new PrinterTransport.Listener() {
+            @Override
+            public void onConnected() {
+                if (!isCurrent(this)) {
+                    return;
+                }
+                Log.d(TAG, "Printer " + address + " connected successfully");
+                if (!completeConnect(ConnectionState.CONNECTED, null)) {
+                    connectionState = ConnectionState.CONNECTED;
+                    onLinkUp();
+                }
+            }
+
+            @Override
+            public void onDisconnected() {
+                if (!isCurrent(this)) {
+                    Log.d(TAG, "Ignoring disconnect of a previous connection");
+                    return;
+                }
+                // Fails a running attempt right away, or marks an established link as lost
+                if (!completeConnect(ConnectionState.FAILED, "Connection failed")
+                        && connectionState != ConnectionState.RECONNECTING) {
+                    lastConnectionError = "Connection interrupted";
+                    Log.e(TAG, lastConnectionError + ": " + address);
+                    onLinkLost();
+                }
+            }
+
+            @Override
+            public void onBytesReceived(byte[] bytes) {
+                PrintTransmitter current = transmitter;
+                if (current != null && isCurrent(this)) {
+                    current.onBytesReceived(bytes);
+                }
+            }
+        };
+    }
+
+    private synchronized boolean isCurrent(PrinterTransport.Listener listener) {
+        return linkListener == listener;
+    }
+
+    boolean isConnected() {
+        return connectionState == ConnectionState.CONNECTED && transport != null;
+    }
+
+    /**
+     * True if jobs can be queued: connected, or reconnecting with jobs held until the link is back
+     */
+    synchronized boolean isAvailable() {
+        return isConnected() || (persistent && autoReconnect && connectionState != ConnectionState.IDLE);
+    }
+
+    ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
+    String getLastConnectionError() {
+        return lastConnectionError;
+    }
+
+    PrintTransmitter getTransmitter() {
+        return transmitter;
+    }
+
+    PrinterTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * True if this exact version of the template was uploaded over the current link
+     */
+    boolean holdsTemplate(ZplTemplate template) {
+        return template.hash.equals(residentTemplates.get(template.name));
+    }
+
+    void markTemplateResident(ZplTemplate template) {
+        residentTemplates.put(template.name, template.hash);
+    }
+
+    /**
+     * Disconnect from the printer
+     */
+    void disconnect() {
+        synchronized (this) {
+            autoReconnect = false;
+        }
+        cancelReconnect();
+        stopKeepAlive();
+        completeConnect(ConnectionState.IDLE, "Disconnected");
+        if (transport != null) {
+            Log.d(TAG, "Disconnecting printer " + address);
+            closeConnection();
+        }
+        connectionState = ConnectionState.IDLE;
+        jobQueue.setHeld(false);
+    }
+
+    /**
+     * Disconnect and fail every queued job
+     */
+    void close() {
+        disconnect();
+        jobQueue.shutdown();
+    }
+
+    private void onLinkUp() {
+        residentTemplates.clear();
+        graphicRegistry.clear();
+        synchronized (this) {
+            reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+            autoReconnect = persistent;
+        }
+        jobQueue.setHeld(false);
+        if (persistent) {
+            startKeepAlive();
+        }
+    }
+
+    /**
+     * The established link dropped: reconnect in persistent mode, otherwise go idle
+     */
+    private void onLinkLost() {
+        stopKeepAlive();
+        synchronized (this) {
+            if (!persistent || !autoReconnect || transport == null) {
+                connectionState = ConnectionState.IDLE;
+                return;
+            }
+            if (connectionState == ConnectionState.RECONNECTING) {
+                return;
+            }
+            connectionState = ConnectionState.RECONNECTING;
+            linkLostAtMs = System.currentTimeMillis();
+        }
+        jobQueue.setHeld(true);
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        final long delay;
+        synchronized (this) {
+            if (!autoReconnect || connectionState != ConnectionState.RECONNECTING) {
+                return;
+            }
+            if (System.currentTimeMillis() - linkLostAtMs >= reconnectDeadlineMs) {
+                // Stop trying, the held jobs run now and fail instead of waiting forever
+                autoReconnect = false;
+                connectionState = ConnectionState.FAILED;
+                lastConnectionError = "Printer not back after " + reconnectDeadlineMs + " ms of reconnecting";
+                Log.e(TAG, lastConnectionError + ": " + address);
+                delay = -1;
+            } else {
+                delay = reconnectDelayMs;
+                reconnectDelayMs = Math.min(reconnectDelayMs * 2, RECONNECT_MAX_DELAY_MS);
+                reconnectTask = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        reconnect();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (delay < 0) {
+            jobQueue.setHeld(false);
+            return;
+        }
+        Log.d(TAG, "Reconnecting to printer " + address + " in " + delay + " ms");
+    }
+
+    private void reconnect() {
+        final long timeoutMs;
+        synchronized (this) {
+            if (!autoReconnect || connectionState != ConnectionState.RECONNECTING) {
+                return;
+            }
+            timeoutMs = connectTimeoutMs;
+        }
+        stats.increment(PrintStats.Counter.RECONNECTS);
+
+        open(timeoutMs, new HoneywellPrinterManager.PrinterCallback() {
+            @Override
+            public void onResult(boolean success, String message) {
+                if (success) {
+                    Log.d(TAG, "Reconnected to printer " + address);
+                    return;
+                }
+                synchronized (PrinterSession.this) {
+                    if (!autoReconnect || connectionState != ConnectionState.FAILED) {
+                        return;
+                    }
+                    connectionState = ConnectionState.RECONNECTING;
+                }
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private synchronized void cancelReconnect() {
+        if (reconnectTask != null) {
+            reconnectTask.cancel(false);
+            reconnectTask = null;
+        }
+    }
+
+    private synchronized void startKeepAlive() {
+        if (keepAliveTask != null) {
+            return;
+        }
+        keepAliveTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                keepAlive();
+            }
+        }, KEEP_ALIVE_INTERVAL_MS, KEEP_ALIVE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopKeepAlive() {
+        if (keepAliveTask != null) {
+            keepAliveTask.cancel(false);
+            keepAliveTask = null;
+        }
+    }
+
+    private void keepAlive() {
+        PrintTransmitter current = transmitter;
+        if (current == null || connectionState != ConnectionState.CONNECTED) {
+            return;
+        }
+        if (!speaks(CommandLanguage.ZPL)) {
+            // ~HS would be printed or misread by a printer without ZPL, such a link is
+            // only watched by the transport, which reports a closed socket or Bluetooth drop
+            return;
+        }
+        if (!current.probe(KEEP_ALIVE_INTERVAL_MS * KEEP_ALIVE_MISSES)) {
+            lastConnectionError = "Keep-alive failed";
+            Log.e(TAG, lastConnectionError + ": " + address);
+            onLinkLost();
+            closeConnection();
+        }
+    }
+
+    private void closeConnection() {
+        PrinterTransport link = transport;
+        if (link != null) {
+            link.disconnect();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.io.IOException;
+
+/**
+ * The link to one printer. {@link PrinterSession} drives connecting, writing and reconnecting
+ * through this interface, so the print path runs the same over Bluetooth
+ * ({@link RtPrinterTransport}), over the network ({@link TcpPrinterTransport}) and against the
+ * in-process fake printer of the tests.
+ * <p>
+ * A transport can be connected again after it was disconnected, which is how background
+ * reconnects reuse it.
+ */
+interface PrinterTransport {
+
+    /**
+     * Receives what happens on the link, from any thread
+     */
+    interface Listener {
+        /**
+         * The link is up and bytes can be written
+         */
+        void onConnected();
+
+        /**
+         * A connection attempt failed, or the established link dropped
+         */
+        void onDisconnected();
+
+        /**
+         * Bytes read from the printer, such as {@code ~HS} replies
+         */
+        void onBytesReceived(byte[] bytes);
+    }
+
+    /**
+     * Name of the printer for messages, e.g. its Bluetooth name
+     */
+    String getName();
+
+    /**
+     * Start connecting; the result is reported to the listener, which replaces the listener of any earlier connection
+     * @throws Exception if the attempt could not be started
+     */
+    void connect(Listener listener) throws Exception;
+
+    /**
+     * Write bytes to the printer, blocking until the link took them or queued them for sending
+     * @throws IOException if the link is down
+     */
+    void write(byte[] bytes) throws IOException;
+
+    /**
+     * Block until every byte written so far has been sent to the printer
+     * @throws IOException if the link went down first or the printer stopped taking data
+     */
+    void drain() throws IOException, InterruptedException;
+
+    /**
+     * Close the link, without reporting {@link Listener#onDisconnected()}
+     */
+    void disconnect();
+}
@@ -0,0 +1,48 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Append-only text log that rolls over to a single {@code .1} backup once it reaches
+ * its size limit, so it never holds more than twice that on disk.
+ */
+final class RollingLogFile {
+    private final File file;
+    private final File backup;
+    private final long maxBytes;
+
+    RollingLogFile(File file, long maxBytes) {
+        this.file = file;
+        this.backup = new File(file.getPath() + ".1");
+        this.maxBytes = maxBytes;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Append one line, rolling the file over first if it is full
+     */
+    synchronized void append(String line) throws IOException {
+        if (file.length() >= maxBytes) {
+            backup.delete();
+            if (!file.renameTo(backup)) {
+                file.delete();
+            }
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+    }
+}
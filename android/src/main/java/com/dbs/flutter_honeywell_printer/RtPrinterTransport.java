@@ -0,0 +1,121 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+import com.rt.printerlibrary.bean.BluetoothEdrConfigBean;
+import com.rt.printerlibrary.connect.PrinterInterface;
+import com.rt.printerlibrary.enumerate.CommonEnum;
+import com.rt.printerlibrary.factory.connect.BluetoothFactory;
+import com.rt.printerlibrary.factory.printer.PrinterFactory;
+import com.rt.printerlibrary.factory.printer.UniversalPrinterFactory;
+import com.rt.printerlibrary.printer.RTPrinter;
+
+import java.io.IOException;
+
+/**
+ * Bluetooth Classic link through the printer SDK. Every connect creates a fresh
+ * {@link RTPrinter}; the SDK reports connection states and received bytes to the global
+ * printer observer, which {@link HoneywellPrinterManager} routes here by {@link #owns}.
+ */
+class RtPrinterTransport implements PrinterTransport {
+    private static final String TAG = "RtPrinterTransport";
+
+    private final BluetoothDevice device;
+    private volatile RTPrinter rtPrinter;
+    private volatile Listener listener;
+
+    RtPrinterTransport(BluetoothDevice device) {
+        this.device = device;
+    }
+
+    @Override
+    public String getName() {
+        return device.getName();
+    }
+
+    @Override
+    public void connect(Listener listener) throws Exception {
+        disconnect();
+        this.listener = listener;
+
+        // Create printer instance
+        PrinterFactory printerFactory = new UniversalPrinterFactory();
+        RTPrinter printer = printerFactory.create();
+
+        // Set up connection
+        BluetoothFactory bluetoothFactory = new BluetoothFactory();
+        PrinterInterface printerInterface = bluetoothFactory.create();
+        BluetoothEdrConfigBean configBean = new BluetoothEdrConfigBean(device);
+        printerInterface.setConfigObject(configBean);
+        printer.setPrinterInterface(printerInterface);
+
+        // Keep reading from the printer so ~HS status replies reach the transmitter
+        printer.setAlwaysReadInputStream(true);
+        rtPrinter = printer;
+
+        printer.connect(configBean);
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        RTPrinter printer = rtPrinter;
+        if (printer == null) {
+            throw new IOException("Printer is not connected");
+        }
+        printer.writeMsg(bytes);
+    }
+
+    @Override
+    public void drain() {
+        // The SDK's writes return once the bytes were sent, nothing is queued here
+    }
+
+    @Override
+    public void disconnect() {
+        RTPrinter printer = rtPrinter;
+        // Forget the connection first, so its interrupted callback is ignored
+        rtPrinter = null;
+        if (printer != null) {
+            try {
+                printer.disConnect();
+            } catch (Exception e) {
+                Log.w(TAG, "Error disconnecting printer " + device.getAddress(), e);
+            }
+        }
+    }
+
+    /**
+     * True if an observer callback is about the current connection rather than one already replaced
+     */
+    boolean owns(PrinterInterface printerInterface) {
+        RTPrinter printer = rtPrinter;
+        return printer != null && printer.getPrinterInterface() == printerInterface;
+    }
+
+    /**
+     * Handle a connection state reported to {@code printerObserverCallback}
+     */
+    void onConnectStateChanged(int state) {
+        Listener current = listener;
+        switch (state) {
+            case CommonEnum.CONNECT_STATE_SUCCESS:
+                current.onConnected();
+                break;
+            case CommonEnum.CONNECT_STATE_INTERRUPTED:
+                current.onDisconnected();
+                break;
+            default:
+                // The SDK only defines success and interrupted, other states are informational
+                Log.d(TAG, "Printer " + device.getAddress() + " reported connection state " + state);
+                break;
+        }
+    }
+
+    /**
+     * Handle bytes reported to {@code printerReadMsgCallback}
+     */
+    void onBytesReceived(byte[] bytes) {
+        listener.onBytesReceived(bytes);
+    }
+}
@@ -0,0 +1,346 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.util.Log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Network link to a printer's raw TCP port, usually 9100.
+ * <p>
+ * Each connection runs a non-blocking {@link SocketChannel} on its own I/O thread. Writes
+ * are queued and return at once, so the next chunk is encoded while earlier ones are still
+ * on the wire; a writer only blocks while more than {@link #MAX_PENDING_BYTES} are waiting,
+ * and {@link #drain()} waits for the queue to empty.
+ * The same thread reads the printer's replies, such as {@code ~HS} status, and reports a
+ * closed or failed socket as a dropped link.
+ */
+class TcpPrinterTransport implements PrinterTransport {
+    private static final String TAG = "TcpPrinterTransport";
+
+    static final int DEFAULT_PORT = 9100;
+    static final int MAX_PORT = 65535;
+    static final int MAX_PENDING_BYTES = 256 * 1024; // queued bytes before write() waits for the socket
+    private static final int READ_BUFFER_SIZE = 4 * 1024;
+    private static final long DRAIN_TIMEOUT_MS = 60000; // give up if the printer takes no data this long
+
+    private final String host;
+    private final int port;
+    private final long connectTimeoutMs;
+
+    private Link link; // the current connection, guarded by this
+
+    /**
+     * @param connectTimeoutMs Time allowed for name resolution and the TCP handshake together
+     * @throws IllegalArgumentException if the port is out of range
+     */
+    TcpPrinterTransport(String host, int port, long connectTimeoutMs) {
+        if (port < 1 || port > MAX_PORT) {
+            throw new IllegalArgumentException("Port must be 1 to " + MAX_PORT + ", was " + port);
+        }
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    /**
+     * Address that identifies the printer, as used for its session
+     */
+    static String addressOf(String host, int port) {
+        return host.trim() + ":" + port;
+    }
+
+    @Override
+    public String getName() {
+        return addressOf(host, port);
+    }
+
+    @Override
+    public void connect(Listener listener) throws IOException {
+        disconnect();
+        Link next = new Link(listener);
+        synchronized (this) {
+            link = next;
+        }
+        next.start();
+    }
+
+    /**
+     * Queue bytes to be sent, the array is not copied and must not change afterwards
+     */
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        Link current;
+        synchronized (this) {
+            current = link;
+        }
+        if (current == null) {
+            throw new IOException("Printer " + getName() + " is not connected");
+        }
+        current.enqueue(bytes);
+    }
+
+    @Override
+    public void drain() throws IOException, InterruptedException {
+        Link current;
+        synchronized (this) {
+            current = link;
+        }
+        if (current == null) {
+            throw new IOException("Printer " + getName() + " is not connected");
+        }
+        current.drain(DRAIN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void disconnect() {
+        Link current;
+        synchronized (this) {
+            current = link;
+            link = null;
+        }
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * One connection and its I/O thread
+     */
+    private final class Link implements Runnable {
+        private final Listener listener;
+        private final Selector selector;
+        private final Thread thread;
+
+        // Guarded by this link
+        private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+        private int pendingBytes = 0;
+        private boolean connected = false;
+        private boolean down = false; // closed by disconnect() or failed, nothing more is sent
+        private boolean closedByUser = false;
+
+        Link(Listener listener) throws IOException {
+            this.listener = listener;
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "tcp-printer-" + getName());
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void enqueue(byte[] bytes) throws IOException {
+            synchronized (this) {
+                // Pipelined writes, bounded so a stalled printer pushes back on the sender
+                while (!down && pendingBytes > 0 && pendingBytes + bytes.length > MAX_PENDING_BYTES) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Write to " + getName() + " interrupted");
+                    }
+                }
+                if (down || !connected) {
+                    throw new IOException("Link to " + getName() + " is down");
+                }
+                pending.add(ByteBuffer.wrap(bytes));
+                pendingBytes += bytes.length;
+            }
+            selector.wakeup();
+        }
+
+        /**
+         * Wait until the queue is empty, failing if the socket takes nothing for {@code timeoutMs}
+         */
+        synchronized void drain(long timeoutMs) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + timeoutMs * 1000000L;
+            int lastPending = pendingBytes;
+            while (!down && pendingBytes > 0) {
+                if (pendingBytes < lastPending) {
+                    // A slow printer is fine as long as it keeps taking data
+                    lastPending = pendingBytes;
+                    deadline = System.nanoTime() + timeoutMs * 1000000L;
+                }
+                long remainingMs = (deadline - System.nanoTime()) / 1000000L;
+                if (remainingMs <= 0) {
+                    throw new IOException("Printer " + getName() + " took no data for " + timeoutMs + " ms");
+                }
+                wait(remainingMs);
+            }
+            if (pendingBytes > 0) {
+                throw new IOException("Link to " + getName() + " went down with " + pendingBytes + " bytes unsent");
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closedByUser = true;
+                down = true;
+                notifyAll();
+            }
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                // Status queries are a few bytes and must not wait for more data to fill a segment
+                channel.socket().setTcpNoDelay(true);
+                channel.socket().setKeepAlive(true);
+                connect(channel);
+
+                synchronized (this) {
+                    if (down) {
+                        return;
+                    }
+                    connected = true;
+                }
+                Log.d(TAG, "Connected to " + getName());
+                listener.onConnected();
+
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+                while (true) {
+                    synchronized (this) {
+                        if (down) {
+                            return;
+                        }
+                        key.interestOps(pending.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                    selector.select();
+                    selector.selectedKeys().clear();
+
+                    // Both are non-blocking, so trying them after every wakeup costs nothing
+                    read(channel, readBuffer);
+                    flush(channel);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Also a failing listener or selector, so writers waiting for room are released
+                boolean report;
+                synchronized (this) {
+                    report = !closedByUser;
+                    down = true;
+                    notifyAll();
+                }
+                if (report) {
+                    Log.w(TAG, "Link to " + getName() + " failed: " + e);
+                    listener.onDisconnected();
+                }
+            } finally {
+                closeQuietly(channel);
+            }
+        }
+
+        private void connect(SocketChannel channel) throws IOException {
+            long deadline = System.nanoTime() + connectTimeoutMs * 1000000L;
+            InetSocketAddress address = resolve(deadline);
+            synchronized (this) {
+                if (down) {
+                    return;
+                }
+            }
+            if (channel.connect(address)) {
+                return;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT);
+            while (!channel.finishConnect()) {
+                long remainingMs = (deadline - System.nanoTime()) / 1000000L;
+                if (remainingMs <= 0) {
+                    throw new SocketTimeoutException("Connect to " + getName() + " timed out");
+                }
+                selector.select(remainingMs);
+                selector.selectedKeys().clear();
+                synchronized (this) {
+                    if (down) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Look up the host on a helper thread, since a DNS lookup cannot be interrupted or given a timeout
+         */
+        private InetSocketAddress resolve(long deadline) throws IOException {
+            FutureTask<InetSocketAddress> lookup = new FutureTask<>(new Callable<InetSocketAddress>() {
+                @Override
+                public InetSocketAddress call() {
+                    return new InetSocketAddress(host, port);
+                }
+            });
+            Thread resolver = new Thread(lookup, "tcp-printer-resolve-" + getName());
+            resolver.setDaemon(true);
+            resolver.start();
+
+            InetSocketAddress address;
+            try {
+                address = lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new SocketTimeoutException("Resolving " + host + " timed out");
+            } catch (ExecutionException e) {
+                throw new UnknownHostException(host + ": " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Resolving " + host + " interrupted");
+            }
+            if (address.isUnresolved()) {
+                throw new UnknownHostException(host);
+            }
+            return address;
+        }
+
+        private void read(SocketChannel channel, ByteBuffer readBuffer) throws IOException {
+            int read;
+            while ((read = channel.read(readBuffer)) > 0) {
+                listener.onBytesReceived(Arrays.copyOf(readBuffer.array(), read));
+                readBuffer.clear();
+            }
+            if (read < 0) {
+                throw new EOFException("Printer " + getName() + " closed the connection");
+            }
+        }
+
+        private void flush(SocketChannel channel) throws IOException {
+            synchronized (this) {
+                while (!pending.isEmpty()) {
+                    ByteBuffer buffer = pending.peek();
+                    pendingBytes -= channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        break; // socket buffer full, continue when it is writable
+                    }
+                    pending.poll();
+                }
+                notifyAll();
+            }
+        }
+
+        private void closeQuietly(SocketChannel channel) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                selector.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing link to " + getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.dbs.flutter_honeywell_printer;
+
+/**
+ * TSPL labels: each band as a binary {@code BITMAP} command. Identical copies are printed
+ * with the copy count of {@code PRINT}.
+ */
+final class TscBackend implements CommandBackend {
+
+    @Override
+    public CommandLanguage getLanguage() {
+        return CommandLanguage.TSC;
+    }
+
+    @Override
+    public void writeLabel(CommandBuffer out, PrinterProfile profile, MonochromeRaster raster, int firstRow, int endRow,
+                           int[] bands, boolean sendSetup, boolean withGap, int copies) {
+        boolean gaps = withGap && !profile.isContinuous();
+        if (sendSetup) {
+            out.writeAscii("GAP " + (gaps ? 3 : 0) + " mm,0 mm\r\n");
+            // Same direction the printer SDK writes for PrintDirection.REVERSE
+            out.writeAscii("DIRECTION 1\r\n");
+        }
+        out.writeAscii("SIZE " + profile.getPrintWidthMm() + " mm," + CommandBackend.labelHeightMm(profile, endRow - firstRow) + " mm\r\n");
+        out.writeAscii("CLS\r\n");
+
+        int bytesPerRow = raster.getBytesPerRow();
+        byte[] data = raster.getData();
+        for (int i = 0; i < bands.length; i += 2) {
+            int rows = bands[i + 1] - bands[i];
+            out.writeAscii("BITMAP 0," + (bands[i] - firstRow) + "," + bytesPerRow + "," + rows + ",0,");
+            // A cleared bit prints black in TSPL bitmaps
+            int start = out.reserve(rows * bytesPerRow);
+            byte[] target = out.array();
+            int from = bands[i] * bytesPerRow;
+            for (int b = 0; b < rows * bytesPerRow; b++) {
+                target[start + b] = (byte) ~data[from + b];
+            }
+            out.writeAscii("\r\n");
+        }
+        out.writeAscii("PRINT 1," + copies + "\r\n");
+    }
+
+    @Override
+    public String toString() {
+        return "TSC";
+    }
+}
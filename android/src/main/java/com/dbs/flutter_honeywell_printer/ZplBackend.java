@@ -0,0 +1,59 @@
+package com.dbs.flutter_honeywell_printer;
+
+import android.util.Log;
+
+/**
+ * ZPL labels: each band as a {@code ^GFA} graphic field at its position on the label.
+ * Identical copies are printed with {@code ^PQ}. Print width and label length are written
+ * in dots, so they are exact at any resolution.
+ * <p>
+ * The commands are the ones the printer SDK's {@code ZplFactory} writes for the same settings,
+ * written directly so the backend does not depend on the SDK classes.
+ */
+final class ZplBackend implements CommandBackend {
+    private static final String TAG = "ZplBackend";
+
+    private final ZplGraphicEncoder graphicEncoder;
+
+    ZplBackend(ZplGraphicEncoder graphicEncoder) {
+        this.graphicEncoder = graphicEncoder;
+    }
+
+    @Override
+    public CommandLanguage getLanguage() {
+        return CommandLanguage.ZPL;
+    }
+
+    @Override
+    public void writeLabel(CommandBuffer out, PrinterProfile profile, MonochromeRaster raster, int firstRow, int endRow,
+                           int[] bands, boolean sendSetup, boolean withGap, int copies) {
+        // Gaps between labels are found by the printer's media sensing, ZPL needs no gap setting
+        if (sendSetup) {
+            // Set print position to start at the very top to minimize space (FS z x y)
+            out.write(0x1C).write('z').write(0).write(0);
+        }
+
+        out.writeAscii("^XA");
+        // Label size in the printer's dots; the SDK's label size assumes 8 dots per mm
+        int labelHeightDots = CommandBackend.labelHeightDots(profile, endRow - firstRow);
+        Log.d(TAG, "Setting label size to " + profile.printWidthDots + "x" + labelHeightDots + " dots");
+        out.writeAscii("^PW" + profile.printWidthDots + "\n\r^LL" + labelHeightDots + "\n\r");
+        if (sendSetup) {
+            // Inverted print orientation, what the SDK writes for PrintDirection.REVERSE (prints from top to bottom)
+            out.writeAscii("^POI\n\r");
+        }
+        for (int i = 0; i < bands.length; i += 2) {
+            graphicEncoder.writeGraphicField(out, raster, bands[i], bands[i + 1] - bands[i], 0, bands[i] - firstRow);
+        }
+
+        // Identical copies are printed by the printer from the same format
+        int quantity = Math.max(1, copies);
+        out.writeAscii("^RTPQ" + quantity + "^PQ" + quantity + "\n\r\n\r");
+        out.writeAscii("^XZ\r\n");
+    }
+
+    @Override
+    public String toString() {
+        return "ZPL (" + graphicEncoder.getCompression() + ")";
+    }
+}
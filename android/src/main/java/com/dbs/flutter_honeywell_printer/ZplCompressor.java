@@ -0,0 +1,197 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Compressed encodings for ZPL {@code ^GFA} graphic data.
+ * <ul>
+ *   <li>ASCII compression: hex digits with repeat counts (G-Y for 1-19, g-z for 20-400),
+ *   {@code ,} to fill the rest of a row with 0, {@code !} to fill it with F and
+ *   {@code :} to repeat the previous row.</li>
+ *   <li>Z64: the packed rows deflated (zlib format), Base64 encoded and followed by a CRC.</li>
+ * </ul>
+ * Buffers and the deflater are reused between pages, so instances are not thread-safe.
+ */
+final class ZplCompressor {
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] Z64_PREFIX = ":Z64:".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_RUN = 419; // z (400) + Y (19)
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private byte[] rowHex = new byte[0];
+    private byte[] previousRowHex = new byte[0];
+    private byte[] deflated = new byte[0];
+    private int deflatedLength = 0;
+
+    /**
+     * Write {@code rowCount} packed rows using ZPL ASCII compression
+     */
+    void writeAscii(CommandBuffer out, byte[] data, int offset, int bytesPerRow, int rowCount) {
+        int hexPerRow = bytesPerRow * 2;
+        if (rowHex.length < hexPerRow) {
+            rowHex = new byte[hexPerRow];
+            previousRowHex = new byte[hexPerRow];
+        }
+
+        for (int row = 0; row < rowCount; row++) {
+            int rowStart = offset + row * bytesPerRow;
+            for (int i = 0; i < bytesPerRow; i++) {
+                int value = data[rowStart + i] & 0xFF;
+                rowHex[i * 2] = HEX_DIGITS[value >>> 4];
+                rowHex[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+            }
+
+            if (row > 0 && sameRow(rowHex, previousRowHex, hexPerRow)) {
+                out.write(':');
+            } else {
+                writeAsciiRow(out, rowHex, hexPerRow);
+            }
+
+            byte[] swap = previousRowHex;
+            previousRowHex = rowHex;
+            rowHex = swap;
+        }
+    }
+
+    private static boolean sameRow(byte[] a, byte[] b, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeAsciiRow(CommandBuffer out, byte[] hex, int length) {
+        // Trailing zeros or Fs collapse into a single fill character
+        int end = length;
+        byte fill = 0;
+        byte last = hex[length - 1];
+        if (last == '0' || last == 'F') {
+            while (end > 0 && hex[end - 1] == last) {
+                end--;
+            }
+            fill = last == '0' ? (byte) ',' : (byte) '!';
+        }
+
+        int i = 0;
+        while (i < end) {
+            byte digit = hex[i];
+            int run = 1;
+            while (i + run < end && hex[i + run] == digit) {
+                run++;
+            }
+            writeRun(out, digit, run);
+            i += run;
+        }
+
+        if (fill != 0) {
+            out.write(fill);
+        }
+    }
+
+    private static void writeRun(CommandBuffer out, byte digit, int run) {
+        while (run > 0) {
+            int count = Math.min(run, MAX_RUN);
+            run -= count;
+            if (count > 1) {
+                if (count >= 20) {
+                    out.write('g' + count / 20 - 1);
+                }
+                if (count % 20 != 0) {
+                    out.write('G' + count % 20 - 1);
+                }
+            }
+            out.write(digit);
+        }
+    }
+
+    /**
+     * Write {@code count} packed bytes as {@code :Z64:<base64 deflated data>:<crc>}
+     */
+    void writeZ64(CommandBuffer out, byte[] data, int offset, int count) {
+        prepareZ64(data, offset, count);
+        writePreparedZ64(out);
+    }
+
+    /**
+     * Deflate {@code count} packed bytes for a following {@link #writePreparedZ64} call
+     * @return Size of the resulting Z64 encoding in bytes
+     */
+    int prepareZ64(byte[] data, int offset, int count) {
+        deflatedLength = deflate(data, offset, count);
+        return Z64_PREFIX.length + (deflatedLength + 2) / 3 * 4 + 5;
+    }
+
+    /**
+     * Write the data deflated by the last {@link #prepareZ64} call
+     */
+    void writePreparedZ64(CommandBuffer out) {
+        out.write(Z64_PREFIX);
+        int base64Start = out.size();
+        writeBase64(out, deflated, deflatedLength);
+        int crc = crc16(out.array(), base64Start, out.size() - base64Start);
+        out.write(':');
+        for (int shift = 12; shift >= 0; shift -= 4) {
+            out.write(HEX_DIGITS[(crc >>> shift) & 0x0F]);
+        }
+    }
+
+    private int deflate(byte[] data, int offset, int count) {
+        deflater.reset();
+        deflater.setInput(data, offset, count);
+        deflater.finish();
+
+        if (deflated.length < count / 2 + 64) {
+            deflated = new byte[count / 2 + 64];
+        }
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == deflated.length) {
+                deflated = Arrays.copyOf(deflated, deflated.length * 2);
+            }
+            length += deflater.deflate(deflated, length, deflated.length - length);
+        }
+        return length;
+    }
+
+    // android.util.Base64 is not available off-device and java.util.Base64 needs API 26
+    private static void writeBase64(CommandBuffer out, byte[] data, int length) {
+        int position = out.reserve((length + 2) / 3 * 4);
+        byte[] target = out.array();
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+            target[position++] = BASE64_DIGITS[bits >>> 18];
+            target[position++] = BASE64_DIGITS[(bits >>> 12) & 0x3F];
+            target[position++] = BASE64_DIGITS[(bits >>> 6) & 0x3F];
+            target[position++] = BASE64_DIGITS[bits & 0x3F];
+        }
+        int remaining = length - i;
+        if (remaining > 0) {
+            int bits = (data[i] & 0xFF) << 16 | (remaining == 2 ? (data[i + 1] & 0xFF) << 8 : 0);
+            target[position++] = BASE64_DIGITS[bits >>> 18];
+            target[position++] = BASE64_DIGITS[(bits >>> 12) & 0x3F];
+            target[position++] = remaining == 2 ? BASE64_DIGITS[(bits >>> 6) & 0x3F] : (byte) '=';
+            target[position] = '=';
+        }
+    }
+
+    /**
+     * CRC-16/CCITT (polynomial 0x1021, initial value 0) as used for Z64 data
+     */
+    static int crc16(byte[] data, int offset, int count) {
+        int crc = 0;
+        for (int i = offset; i < offset + count; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+}
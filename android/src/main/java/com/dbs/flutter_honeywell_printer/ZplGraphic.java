@@ -0,0 +1,99 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A recurring image, such as a logo, downloaded to printer memory once with {@code ~DG}
+ * and recalled by name with {@code ^XG} in later labels.
+ */
+final class ZplGraphic {
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_]{1,8}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    final String name;
+    final String hash;
+    final int width;
+    final int height;
+    final int bytesPerRow;
+    private final byte[] data;
+
+    /**
+     * @param name Graphic name, 1 to 8 letters, digits or underscores
+     * @param raster Packed image, copied so the raster can be reused
+     * @throws IllegalArgumentException if the name is invalid or the image is empty
+     */
+    ZplGraphic(String name, MonochromeRaster raster) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Graphic name must be 1 to 8 letters, digits or underscores");
+        }
+        if (raster.getWidth() == 0 || raster.getHeight() == 0) {
+            throw new IllegalArgumentException("Graphic is empty");
+        }
+
+        this.name = name.toUpperCase(Locale.ROOT);
+        this.width = raster.getWidth();
+        this.height = raster.getHeight();
+        this.bytesPerRow = raster.getBytesPerRow();
+        this.data = Arrays.copyOf(raster.getData(), bytesPerRow * height);
+        this.hash = sha256(data, width);
+    }
+
+    /**
+     * Location of the graphic in printer RAM
+     */
+    String getPrinterPath() {
+        return "R:" + name + ".GRF";
+    }
+
+    /**
+     * Bytes of printer memory the graphic occupies
+     */
+    int getSizeBytes() {
+        return data.length;
+    }
+
+    /**
+     * Write {@code ~DG}, downloading the graphic with ZPL ASCII compression
+     */
+    void writeDownload(CommandBuffer out, ZplCompressor compressor) {
+        out.writeAscii("~DG" + getPrinterPath() + "," + data.length + "," + bytesPerRow + ",");
+        compressor.writeAscii(out, data, 0, bytesPerRow, height);
+        out.writeAscii("\r\n");
+    }
+
+    /**
+     * Write {@code ^FOx,y^XG...^FS}, placing the stored graphic in a label
+     */
+    void writeRecall(CommandBuffer out, int x, int y) {
+        out.writeAscii("^FO" + x + "," + y + "^XG" + getPrinterPath() + ",1,1^FS");
+    }
+
+    /**
+     * Write a format that deletes the graphic from printer memory
+     */
+    static void writeDelete(CommandBuffer out, String printerPath) {
+        out.writeAscii("^XA^ID" + printerPath + "^FS^XZ");
+    }
+
+    private static String sha256(byte[] data, int width) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Integer.toString(width).getBytes(StandardCharsets.US_ASCII));
+            digest.update(data);
+            byte[] hash = digest.digest();
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >>> 4) & 0x0F];
+                hex[i * 2 + 1] = HEX[hash[i] & 0x0F];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
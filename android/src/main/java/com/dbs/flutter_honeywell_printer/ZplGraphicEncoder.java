@@ -0,0 +1,106 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes a {@link MonochromeRaster} as a ZPL {@code ^GFA} graphic field.
+ * Output is written straight into a {@link CommandBuffer} and is byte-for-byte
+ * deterministic for a given raster and compression mode.
+ */
+final class ZplGraphicEncoder {
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * How the graphic data is written
+     */
+    enum Compression {
+        /** Plain hex, two characters per byte */
+        NONE,
+        /** ZPL ASCII compression with repeat counts and fill/repeat-row codes */
+        ASCII,
+        /** Deflate + Base64 with CRC */
+        Z64,
+        /** Whichever of ASCII and Z64 is smaller for each graphic */
+        AUTO
+    }
+
+    private final ZplCompressor compressor = new ZplCompressor();
+    private Compression compression;
+
+    ZplGraphicEncoder() {
+        this(Compression.AUTO);
+    }
+
+    ZplGraphicEncoder(Compression compression) {
+        this.compression = compression;
+    }
+
+    Compression getCompression() {
+        return compression;
+    }
+
+    void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Write {@code ^FOx,y^GFA,...^FS} for the whole raster
+     */
+    void writeGraphicField(CommandBuffer out, MonochromeRaster raster, int x, int y) {
+        writeGraphicField(out, raster, 0, raster.getHeight(), x, y);
+    }
+
+    /**
+     * Write {@code ^FOx,y^GFA,...^FS} for rows {@code firstRow} to {@code firstRow + rowCount - 1}
+     */
+    void writeGraphicField(CommandBuffer out, MonochromeRaster raster, int firstRow, int rowCount, int x, int y) {
+        int bytesPerRow = raster.getBytesPerRow();
+        int totalBytes = bytesPerRow * rowCount;
+
+        out.writeAscii("^FO" + x + "," + y);
+        out.writeAscii("^GFA," + totalBytes + "," + totalBytes + "," + bytesPerRow + ",");
+        writeGraphicData(out, raster.getData(), firstRow * bytesPerRow, bytesPerRow, rowCount);
+        out.writeAscii("^FS");
+    }
+
+    /**
+     * Write packed rows in the configured compression, as used after the {@code ^GFA} parameters
+     */
+    void writeGraphicData(CommandBuffer out, byte[] data, int offset, int bytesPerRow, int rowCount) {
+        int totalBytes = bytesPerRow * rowCount;
+        switch (compression) {
+            case NONE:
+                writeHex(out, data, offset, totalBytes);
+                break;
+            case ASCII:
+                compressor.writeAscii(out, data, offset, bytesPerRow, rowCount);
+                break;
+            case Z64:
+                compressor.writeZ64(out, data, offset, totalBytes);
+                break;
+            case AUTO:
+            default:
+                int start = out.size();
+                compressor.writeAscii(out, data, offset, bytesPerRow, rowCount);
+                int asciiLength = out.size() - start;
+                if (compressor.prepareZ64(data, offset, totalBytes) < asciiLength) {
+                    out.truncate(start);
+                    compressor.writePreparedZ64(out);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Write {@code count} bytes as upper case hex digits
+     */
+    static void writeHex(CommandBuffer out, byte[] data, int offset, int count) {
+        int position = out.reserve(count * 2);
+        byte[] target = out.array();
+        for (int i = 0; i < count; i++) {
+            int value = data[offset + i] & 0xFF;
+            target[position++] = HEX_DIGITS[value >>> 4];
+            target[position++] = HEX_DIGITS[value & 0x0F];
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A label format stored in printer memory with {@code ^DF} and recalled with {@code ^XF}.
+ * The static layout is uploaded once; each label then only carries the {@code ^FN}
+ * variable fields.
+ */
+final class ZplTemplate {
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_]{1,16}");
+    private static final Pattern FIELD_PATTERN = Pattern.compile("[0-9]{1,4}");
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte ESCAPE = '_'; // ^FH default escape character
+
+    final String name;
+    final String hash;
+    private final String body;
+
+    /**
+     * @param name Template name, 1 to 16 letters, digits or underscores
+     * @param format ZPL format with {@code ^FN} placeholders, with or without the surrounding {@code ^XA ... ^XZ}
+     * @throws IllegalArgumentException if the name is invalid or the format is empty
+     */
+    ZplTemplate(String name, String format) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Template name must be 1 to 16 letters, digits or underscores");
+        }
+        String trimmed = format != null ? format.trim() : "";
+        if (trimmed.startsWith("^XA")) {
+            trimmed = trimmed.substring(3);
+        }
+        if (trimmed.endsWith("^XZ")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 3);
+        }
+        if (trimmed.trim().isEmpty()) {
+            throw new IllegalArgumentException("Template format is empty");
+        }
+
+        this.name = name.toUpperCase(Locale.ROOT);
+        this.body = trimmed;
+        this.hash = sha256(this.name + "\u0000" + trimmed);
+    }
+
+    /**
+     * Location of the stored format in printer RAM
+     */
+    String getPrinterPath() {
+        return "R:" + name + ".ZPL";
+    }
+
+    /**
+     * True if the format refers to the given printer path, e.g. a graphic recalled with {@code ^XG}
+     */
+    boolean references(String printerPath) {
+        return body.toUpperCase(Locale.ROOT).contains(printerPath);
+    }
+
+    /**
+     * Write {@code ^XA^DF...^FS <format> ^XZ}, storing the format in printer memory
+     */
+    void writeStoreFormat(CommandBuffer out) {
+        out.writeAscii("^XA^DF" + getPrinterPath() + "^FS");
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+        out.writeAscii("^XZ");
+    }
+
+    /**
+     * Write a label that recalls the stored format and fills its variable fields
+     * @param fields Values keyed by {@code ^FN} field number
+     * @param copies Number of copies, sent as {@code ^PQ}
+     * @throws IllegalArgumentException if a field number is invalid
+     */
+    void writeRecall(CommandBuffer out, Map<String, String> fields, int copies) {
+        // ^CI28 makes the printer read field data as UTF-8
+        out.writeAscii("^XA^CI28^XF" + getPrinterPath() + "^FS");
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String number = field.getKey();
+            if (number == null || !FIELD_PATTERN.matcher(number).matches()) {
+                throw new IllegalArgumentException("Invalid field number: " + number);
+            }
+            out.writeAscii("^FN" + number + "^FH^FD");
+            writeFieldData(out, field.getValue() != null ? field.getValue() : "");
+            out.writeAscii("^FS");
+        }
+        if (copies > 1) {
+            out.writeAscii("^PQ" + copies);
+        }
+        out.writeAscii("^XZ");
+    }
+
+    /**
+     * Write field data for use after {@code ^FH}: command prefixes, the escape character,
+     * control characters and non-ASCII bytes are written as {@code _XX} hex escapes
+     */
+    static void writeFieldData(CommandBuffer out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : utf8) {
+            int c = b & 0xFF;
+            if (c < 0x20 || c >= 0x7F || c == '^' || c == '~' || c == ESCAPE) {
+                out.write(ESCAPE);
+                out.write(HEX_DIGITS[c >>> 4]);
+                out.write(HEX_DIGITS[c & 0x0F]);
+            } else {
+                out.write(c);
+            }
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append((char) HEX_DIGITS[(b >>> 4) & 0x0F]).append((char) HEX_DIGITS[b & 0x0F]);
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
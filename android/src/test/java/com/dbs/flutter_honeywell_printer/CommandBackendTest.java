@@ -0,0 +1,122 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CommandBackendTest {
+
+  @Test
+  public void zpl_writesSetupOnlyWhenAsked() {
+    MonochromeRaster raster = raster();
+    CommandBackend backend = CommandBackend.forLanguage(CommandLanguage.ZPL, new ZplGraphicEncoder());
+
+    String first = write(backend, raster, true, false, 2);
+    String later = write(backend, raster, false, false, 1);
+
+    assertTrue(first, first.contains("^POI"));
+    assertTrue(first, first.endsWith("^PQ2\n\r\n\r^XZ\r\n"));
+    assertTrue(first, first.contains("^GFA"));
+    assertTrue(later, later.startsWith("^XA"));
+    assertTrue(later, !later.contains("^POI"));
+  }
+
+  @Test
+  public void cpcl_writesBandsAsBinaryGraphics() {
+    byte[] out = bytes(CommandBackend.forLanguage(CommandLanguage.CPCL, null), raster(), true, true, 3);
+    String text = new String(out, StandardCharsets.ISO_8859_1);
+
+    assertTrue(text, text.startsWith("! 0 200 200 100 3\r\nPAGE-WIDTH 16\r\n"));
+    assertTrue(text, text.contains("CG 2 2 0 10 \u00ff\u0080\u0001\u0000\r\n"));
+    assertTrue(text, text.endsWith("FORM\r\nPRINT\r\n"));
+  }
+
+  @Test
+  public void tsc_invertsBitmapData() {
+    byte[] out = bytes(CommandBackend.forLanguage(CommandLanguage.TSC, null), raster(), true, false, 2);
+    String text = new String(out, StandardCharsets.ISO_8859_1);
+
+    assertTrue(text, text.startsWith("GAP 0 mm,0 mm\r\nDIRECTION 1\r\nSIZE 72 mm,12 mm\r\nCLS\r\n"));
+    assertTrue(text, text.contains("BITMAP 0,10,2,2,0,\u0000\u007f\u00fe\u00ff\r\n"));
+    assertTrue(text, text.endsWith("PRINT 1,2\r\n"));
+  }
+
+  @Test
+  public void escPos_feedsBlankRowsAndRepeatsCopies() {
+    byte[] out = bytes(CommandBackend.forLanguage(CommandLanguage.ESC_POS, null), raster(), false, false, 1);
+
+    byte[] expected = {
+        0x1B, 'J', 10, // blank rows above the band
+        0x1D, 'v', '0', 0, 2, 0, 2, 0, (byte) 0xFF, (byte) 0x80, 0x01, 0x00,
+        0x1B, 'J', 88, // blank rows to the end of the label
+    };
+    assertArrayEquals(expected, out);
+
+    byte[] twice = bytes(CommandBackend.forLanguage(CommandLanguage.ESC_POS, null), raster(), false, false, 2);
+    assertArrayEquals(expected, Arrays.copyOfRange(twice, expected.length, twice.length));
+  }
+
+  @Test
+  public void labelSizesFollowPrinterProfile() {
+    PrinterProfile highRes = new PrinterProfile("ZT230-300dpi", 12, 832, PrinterProfile.MEDIA_GAP, 11856);
+
+    String zpl = new String(bytes(CommandBackend.forLanguage(CommandLanguage.ZPL, new ZplGraphicEncoder()),
+        highRes, raster(), true, true, 1), StandardCharsets.ISO_8859_1);
+    assertTrue(zpl, zpl.contains("^PW832\n\r^LL120\n\r"));
+
+    String cpcl = new String(bytes(CommandBackend.forLanguage(CommandLanguage.CPCL, null),
+        highRes, raster(), true, true, 1), StandardCharsets.ISO_8859_1);
+    assertTrue(cpcl, cpcl.startsWith("! 0 300 300 100 1\r\n"));
+
+    String tsc = new String(bytes(CommandBackend.forLanguage(CommandLanguage.TSC, null),
+        highRes, raster(), true, true, 1), StandardCharsets.ISO_8859_1);
+    assertTrue(tsc, tsc.startsWith("GAP 3 mm,0 mm\r\nDIRECTION 1\r\nSIZE 69 mm,10 mm\r\n"));
+  }
+
+  @Test
+  public void continuousMedia_neverFeedsToGap() {
+    PrinterProfile receipt = new PrinterProfile(null, 8, 384, PrinterProfile.MEDIA_CONTINUOUS, 0);
+
+    String cpcl = new String(bytes(CommandBackend.forLanguage(CommandLanguage.CPCL, null),
+        receipt, raster(), true, true, 1), StandardCharsets.ISO_8859_1);
+    assertTrue(cpcl, cpcl.endsWith("\r\nPRINT\r\n") && !cpcl.contains("FORM"));
+
+    String tsc = new String(bytes(CommandBackend.forLanguage(CommandLanguage.TSC, null),
+        receipt, raster(), true, true, 1), StandardCharsets.ISO_8859_1);
+    assertTrue(tsc, tsc.startsWith("GAP 0 mm,0 mm\r\nDIRECTION 1\r\nSIZE 48 mm,12 mm\r\n"));
+  }
+
+  /**
+   * 16 x 100 raster with ink on rows 10 and 11
+   */
+  private static MonochromeRaster raster() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(16, 100);
+    byte[] data = raster.getData();
+    data[20] = (byte) 0xFF;
+    data[21] = (byte) 0x80;
+    data[22] = 0x01;
+    return raster;
+  }
+
+  private static String write(CommandBackend backend, MonochromeRaster raster, boolean setup, boolean gap, int copies) {
+    return new String(bytes(backend, raster, setup, gap, copies), StandardCharsets.ISO_8859_1);
+  }
+
+  private static byte[] bytes(CommandBackend backend, MonochromeRaster raster, boolean setup, boolean gap, int copies) {
+    return bytes(backend, PrinterProfile.DEFAULT, raster, setup, gap, copies);
+  }
+
+  private static byte[] bytes(CommandBackend backend, PrinterProfile profile, MonochromeRaster raster, boolean setup,
+      boolean gap, int copies) {
+    CommandBuffer out = new CommandBuffer(256);
+    int[] bands = raster.findInkBands(0, 100, 48);
+    assertEquals(2, bands.length);
+    backend.writeLabel(out, profile, raster, 0, 100, bands, setup, gap, copies);
+    return out.toByteArray();
+  }
+}
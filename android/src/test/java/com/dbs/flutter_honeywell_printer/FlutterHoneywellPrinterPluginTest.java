@@ -17,13 +17,13 @@ import org.junit.Test;
 
 public class FlutterHoneywellPrinterPluginTest {
   @Test
-  public void onMethodCall_getPlatformVersion_returnsExpectedValue() {
+  public void onMethodCall_unknownMethod_reportsNotImplemented() {
     FlutterHoneywellPrinterPlugin plugin = new FlutterHoneywellPrinterPlugin();
 
     final MethodCall call = new MethodCall("getPlatformVersion", null);
     MethodChannel.Result mockResult = mock(MethodChannel.Result.class);
     plugin.onMethodCall(call, mockResult);
 
-    verify(mockResult).success("Android " + android.os.Build.VERSION.RELEASE);
+    verify(mockResult).notImplemented();
   }
 }
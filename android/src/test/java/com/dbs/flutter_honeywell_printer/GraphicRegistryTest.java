@@ -0,0 +1,89 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+public class GraphicRegistryTest {
+
+  @Test
+  public void makeRoom_evictsLeastRecentlyUsed() {
+    GraphicRegistry registry = new GraphicRegistry(250);
+    ZplGraphic a = graphic("A", 100);
+    ZplGraphic b = graphic("B", 100);
+    ZplGraphic c = graphic("C", 100);
+
+    assertTrue(registry.makeRoom(a, 0).isEmpty());
+    registry.markResident(a);
+    assertTrue(registry.makeRoom(b, 0).isEmpty());
+    registry.markResident(b);
+    assertTrue(registry.isResident(a)); // a is now more recently used than b
+    List<String> evicted = registry.makeRoom(c, 0);
+
+    assertEquals(1, evicted.size());
+    assertEquals("R:B.GRF", evicted.get(0));
+    assertTrue(registry.isResident(a));
+    assertFalse(registry.isResident(b));
+    // c is only resident once its download was sent
+    assertFalse(registry.isResident(c));
+    assertEquals(100, registry.getResidentBytes());
+    registry.markResident(c);
+    assertEquals(200, registry.getResidentBytes());
+  }
+
+  @Test
+  public void makeRoom_countsDownloadsNotSentYet() {
+    GraphicRegistry registry = new GraphicRegistry(250);
+    ZplGraphic a = graphic("A", 100);
+    registry.markResident(a);
+
+    // Another 100 byte download is already in the same commands, so a has to go
+    List<String> evicted = registry.makeRoom(graphic("C", 100), 100);
+
+    assertEquals(1, evicted.size());
+    assertEquals("R:A.GRF", evicted.get(0));
+    assertEquals(0, registry.getResidentBytes());
+  }
+
+  @Test
+  public void isResident_detectsChangedImageAndClear() {
+    GraphicRegistry registry = new GraphicRegistry();
+    ZplGraphic logo = graphic("LOGO", 8);
+    registry.markResident(logo);
+
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(8, 8);
+    raster.getData()[0] = (byte) 0xFF;
+    assertFalse(registry.isResident(new ZplGraphic("logo", raster)));
+
+    registry.clear();
+    assertFalse(registry.isResident(logo));
+  }
+
+  @Test
+  public void writeRecallAndDownload_useStoredGraphicPath() {
+    ZplGraphic logo = graphic("logo", 2);
+    CommandBuffer out = new CommandBuffer(64);
+
+    logo.writeRecall(out, 10, 20);
+    assertEquals("^FO10,20^XGR:LOGO.GRF,1,1^FS", ascii(out));
+
+    out.reset();
+    logo.writeDownload(out, new ZplCompressor());
+    assertTrue(ascii(out).startsWith("~DGR:LOGO.GRF,2,1,"));
+  }
+
+  private static ZplGraphic graphic(String name, int rows) {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(8, rows);
+    return new ZplGraphic(name, raster);
+  }
+
+  private static String ascii(CommandBuffer out) {
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,56 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class HostStatusTest {
+  private static final String READY =
+      "\u0002030,0,0,1245,000,0,0,0,000,0,0,0\u0003\r\n"
+          + "\u0002000,0,0,0,1,2,6,0,00000000,1,000\u0003\r\n"
+          + "\u00021234,0\u0003\r\n";
+
+  @Test
+  public void parse_readsReadyPrinter() {
+    byte[] reply = READY.getBytes(StandardCharsets.US_ASCII);
+
+    assertEquals(reply.length - 2, HostStatus.findReplyEnd(reply, 0, reply.length));
+    HostStatus status = HostStatus.parse(reply, 0, reply.length);
+
+    assertTrue(status.canAcceptData());
+    assertEquals(0, status.formatsInBuffer);
+  }
+
+  @Test
+  public void parse_readsBufferFullAndPaused() {
+    byte[] reply = ("\u0002030,0,1,1245,003,1,0,0,000,0,0,0\u0003\r\n"
+        + "\u0002000,0,0,0,1,2,6,0,00000004,1,000\u0003\r\n"
+        + "\u00021234,0\u0003\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    HostStatus status = HostStatus.parse(reply, 0, reply.length);
+
+    assertFalse(status.canAcceptData());
+    assertTrue(status.paused);
+    assertTrue(status.bufferFull);
+    assertEquals(3, status.formatsInBuffer);
+    assertEquals(4, status.labelsRemaining);
+  }
+
+  @Test
+  public void findReplyEnd_waitsForAllThreeStrings() {
+    byte[] partial = READY.substring(0, 60).getBytes(StandardCharsets.US_ASCII);
+
+    assertEquals(-1, HostStatus.findReplyEnd(partial, 0, partial.length));
+  }
+
+  @Test
+  public void parse_rejectsMalformedReply() {
+    byte[] reply = "\u0002garbage\u0003\u0002x\u0003\u0002y\u0003".getBytes(StandardCharsets.US_ASCII);
+
+    assertNull(HostStatus.parse(reply, 0, reply.length));
+  }
+}
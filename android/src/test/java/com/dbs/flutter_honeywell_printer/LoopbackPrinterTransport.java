@@ -0,0 +1,407 @@
+package com.dbs.flutter_honeywell_printer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process fake printer for testing and load-testing the print path without hardware.
+ * <p>
+ * It records every byte written and models the parts of a real link that pacing depends on:
+ * writes take as long as the link bandwidth allows, data fills a printer buffer that drains
+ * at the print rate and blocks writes while it is full, and {@code ~HS} queries are answered
+ * with the buffer state after the link latency. {@code ~HI} and {@code ^HH} are answered with
+ * the printer's profile. Connection attempts can be made to fail and
+ * an established link can be dropped at any time.
+ * <p>
+ * Rates of 0 mean unlimited. Settings can be changed while connected.
+ */
+class LoopbackPrinterTransport implements PrinterTransport {
+    static final int DEFAULT_BUFFER_BYTES = 512 * 1024;
+
+    private final String name;
+    // Delivers connect results, status replies and drops, like the reader thread of a real link
+    private final ScheduledExecutorService events;
+
+    private volatile long bandwidthBytesPerSecond = 0;
+    private volatile long latencyMs = 0;
+    private volatile int bufferBytes = DEFAULT_BUFFER_BYTES;
+    private volatile long printBytesPerSecond = 0;
+    private volatile boolean answersStatus = true;
+    private volatile boolean paperOut = false;
+    private volatile PrinterProfile profile = PrinterProfile.DEFAULT;
+
+    // Link state, guarded by this
+    private Listener listener;
+    private boolean connected = false;
+    private int generation = 0; // bumped on every connect and disconnect, so late events of an old link are dropped
+    private int failingConnects = 0;
+    private int connectCount = 0;
+    private long linkFreeAtNanos = 0;
+
+    // Printer state, guarded by this
+    private final CommandBuffer received = new CommandBuffer(64 * 1024);
+    private long receivedTotal = 0;
+    private double printedTotal = 0;
+    private long lastPrintNanos = System.nanoTime();
+    private final ArrayDeque<Long> formatEnds = new ArrayDeque<>(); // stream offsets just past each ^XZ not printed yet
+    private int formatCount = 0;
+    private int statusQueries = 0;
+    private int previous1 = 0; // last two bytes received, to find ^XZ and ~HS across writes
+    private int previous2 = 0;
+
+    LoopbackPrinterTransport(String name) {
+        this.name = name;
+        this.events = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loopback-printer-" + LoopbackPrinterTransport.this.name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param bytesPerSecond Speed of the link, e.g. about 20000 for Bluetooth SPP
+     */
+    void setBandwidth(long bytesPerSecond) {
+        this.bandwidthBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param latencyMs Delay before a connect result or a status reply arrives
+     */
+    void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * @param bufferBytes Size of the printer's receive buffer
+     */
+    synchronized void setBufferBytes(int bufferBytes) {
+        this.bufferBytes = bufferBytes;
+        notifyAll();
+    }
+
+    /**
+     * @param bytesPerSecond How fast the printer consumes its buffer by printing
+     */
+    synchronized void setPrintRate(long bytesPerSecond) {
+        advancePrinting();
+        this.printBytesPerSecond = bytesPerSecond;
+        notifyAll();
+    }
+
+    /**
+     * @param answersStatus false to simulate a printer that ignores {@code ~HS}, {@code ~HI} and {@code ^HH}
+     */
+    void setAnswersStatus(boolean answersStatus) {
+        this.answersStatus = answersStatus;
+    }
+
+    /**
+     * Resolution, head width and media reported in {@code ~HI} and {@code ^HH} replies
+     */
+    void setProfile(PrinterProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Stop or resume printing, reported in {@code ~HS} replies
+     */
+    synchronized void setPaperOut(boolean paperOut) {
+        advancePrinting();
+        this.paperOut = paperOut;
+        notifyAll();
+    }
+
+    /**
+     * Make the next connection attempts fail
+     */
+    synchronized void failNextConnects(int count) {
+        failingConnects = count;
+    }
+
+    /**
+     * Drop the established link, as if the printer was switched off or went out of range
+     */
+    void dropLink() {
+        final Listener dropped;
+        synchronized (this) {
+            if (!connected) {
+                return;
+            }
+            connected = false;
+            generation++;
+            dropped = listener;
+            notifyAll();
+        }
+        events.execute(new Runnable() {
+            @Override
+            public void run() {
+                dropped.onDisconnected();
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void connect(final Listener listener) {
+        final int attempt;
+        final boolean fail;
+        synchronized (this) {
+            this.listener = listener;
+            connected = false;
+            attempt = ++generation;
+            fail = failingConnects > 0;
+            if (fail) {
+                failingConnects--;
+            }
+            notifyAll();
+        }
+
+        events.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (LoopbackPrinterTransport.this) {
+                    if (attempt != generation) {
+                        return;
+                    }
+                    if (!fail) {
+                        connected = true;
+                        connectCount++;
+                    }
+                }
+                if (fail) {
+                    listener.onDisconnected();
+                } else {
+                    listener.onConnected();
+                }
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(byte[] bytes) throws IOException {
+        long sleepNanos = 0;
+        synchronized (this) {
+            if (!connected) {
+                throw new IOException("Link to " + name + " is down");
+            }
+
+            // Transfer time on the link, accumulated so short writes are paced as accurately as long ones
+            long bandwidth = bandwidthBytesPerSecond;
+            if (bandwidth > 0) {
+                long now = System.nanoTime();
+                linkFreeAtNanos = Math.max(linkFreeAtNanos, now) + bytes.length * 1000000000L / bandwidth;
+                sleepNanos = linkFreeAtNanos - now;
+            }
+        }
+        if (sleepNanos > 1000000) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Write to " + name + " interrupted");
+            }
+        }
+
+        synchronized (this) {
+            // Like hardware flow control, a full printer buffer blocks the write until printing made room
+            while (connected && bufferedBytes() > 0 && bufferedBytes() + bytes.length > bufferBytes) {
+                try {
+                    wait(Math.max(1, millisToPrint(bufferedBytes() + bytes.length - bufferBytes)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Write to " + name + " interrupted");
+                }
+            }
+            if (!connected) {
+                throw new IOException("Link to " + name + " dropped");
+            }
+            receive(bytes);
+        }
+    }
+
+    @Override
+    public void drain() {
+        // Writes return once the printer buffer took the bytes, nothing is queued
+    }
+
+    @Override
+    public synchronized void disconnect() {
+        connected = false;
+        generation++;
+        listener = null;
+        notifyAll();
+    }
+
+    synchronized boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return A copy of every byte written since the transport was created or cleared
+     */
+    synchronized byte[] getReceivedBytes() {
+        return received.toByteArray();
+    }
+
+    synchronized long getReceivedCount() {
+        return receivedTotal;
+    }
+
+    /**
+     * Forget the recorded bytes, e.g. between phases of a long load test
+     */
+    synchronized void clearReceived() {
+        received.reset();
+    }
+
+    /**
+     * @return Number of complete formats ({@code ^XZ}) received
+     */
+    synchronized int getFormatCount() {
+        return formatCount;
+    }
+
+    synchronized int getStatusQueries() {
+        return statusQueries;
+    }
+
+    /**
+     * @return Number of successful connects, including reconnects
+     */
+    synchronized int getConnectCount() {
+        return connectCount;
+    }
+
+    private void receive(byte[] bytes) {
+        advancePrinting();
+        received.write(bytes);
+        for (byte b : bytes) {
+            receivedTotal++;
+            if (previous2 == '^' && previous1 == 'X' && b == 'Z') {
+                formatEnds.add(receivedTotal);
+                formatCount++;
+            } else if (previous2 == '~' && previous1 == 'H' && b == 'S') {
+                statusQueries++;
+                if (answersStatus) {
+                    scheduleStatusReply();
+                }
+            } else if (previous2 == '~' && previous1 == 'H' && b == 'I' && answersStatus) {
+                scheduleReply(modelReply());
+            } else if (previous2 == '^' && previous1 == 'H' && b == 'H' && answersStatus) {
+                scheduleReply(configReply());
+            }
+            previous2 = previous1;
+            previous1 = b;
+        }
+    }
+
+    private void scheduleStatusReply() {
+        final int link = generation;
+        final Listener target = listener;
+        events.schedule(new Runnable() {
+            @Override
+            public void run() {
+                byte[] reply;
+                synchronized (LoopbackPrinterTransport.this) {
+                    if (link != generation || !connected) {
+                        return;
+                    }
+                    reply = statusReply();
+                }
+                target.onBytesReceived(reply);
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleReply(final byte[] reply) {
+        final int link = generation;
+        final Listener target = listener;
+        events.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (LoopbackPrinterTransport.this) {
+                    if (link != generation || !connected) {
+                        return;
+                    }
+                }
+                target.onBytesReceived(reply);
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+    }
+
+    private byte[] modelReply() {
+        PrinterProfile current = profile;
+        String model = current.model != null ? current.model : "LOOPBACK-" + current.getDpi() + "dpi";
+        return ("\u0002" + model + ",V1.0.0," + current.dotsPerMm + ",8192KB\u0003\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The parts of a configuration label that describe the print head and media
+     */
+    private byte[] configReply() {
+        PrinterProfile current = profile;
+        int maxLengthMm = current.maxLabelLengthDots / current.dotsPerMm;
+        String config = "\u0002"
+                + "  +10.0............... DARKNESS\r\n"
+                + "  " + current.mediaType + "........... MEDIA TYPE\r\n"
+                + "  " + current.printWidthDots + "................. PRINT WIDTH\r\n"
+                + "  " + String.format(Locale.ROOT, "%.1fIN %4dMM", maxLengthMm / 25.4f, maxLengthMm) + ".... MAXIMUM LENGTH\r\n"
+                + "\u0003\r\n";
+        return config.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The three {@code ~HS} strings with the current paper, buffer and format state
+     */
+    private byte[] statusReply() {
+        advancePrinting();
+        boolean bufferFull = bufferedBytes() >= bufferBytes;
+        String reply = String.format(Locale.ROOT,
+                "\u0002030,%d,0,1245,%03d,%d,0,0,000,0,0,0\u0003\r\n"
+                        + "\u0002000,0,0,0,1,2,6,0,%08d,1,000\u0003\r\n"
+                        + "\u00021234,0\u0003\r\n",
+                paperOut ? 1 : 0, formatEnds.size(), bufferFull ? 1 : 0, formatEnds.size());
+        return reply.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Consume the buffer at the print rate for the time passed since the last call
+     */
+    private void advancePrinting() {
+        long now = System.nanoTime();
+        if (!paperOut) {
+            long rate = printBytesPerSecond;
+            printedTotal = rate <= 0
+                    ? receivedTotal
+                    : Math.min(receivedTotal, printedTotal + (now - lastPrintNanos) * (double) rate / 1e9);
+        }
+        lastPrintNanos = now;
+        while (!formatEnds.isEmpty() && formatEnds.peek() <= printedTotal) {
+            formatEnds.poll();
+        }
+    }
+
+    private long bufferedBytes() {
+        advancePrinting();
+        return receivedTotal - (long) printedTotal;
+    }
+
+    private long millisToPrint(long bytes) {
+        long rate = printBytesPerSecond;
+        return paperOut || rate <= 0 ? 100 : bytes * 1000 / rate;
+    }
+}
@@ -0,0 +1,268 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class LoopbackPrinterTransportTest {
+
+  @Test
+  public void write_recordsBytesAndAnswersHostStatus() throws Exception {
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    RecordingListener listener = new RecordingListener();
+    printer.connect(listener);
+    assertTrue(listener.connected.await(1, TimeUnit.SECONDS));
+
+    byte[] label = "^XA^FO0,0^FDHello^FS^XZ".getBytes(StandardCharsets.US_ASCII);
+    printer.write(label);
+    printer.write(HostStatus.QUERY);
+
+    byte[] reply = listener.replies.poll(1, TimeUnit.SECONDS);
+    assertNotNull(reply);
+    HostStatus status = HostStatus.parse(reply, 0, reply.length);
+    assertTrue(status.canAcceptData());
+    assertEquals(0, status.formatsInBuffer);
+    assertEquals(1, printer.getFormatCount());
+    assertEquals(1, printer.getStatusQueries());
+    assertArrayEquals(label, Arrays.copyOf(printer.getReceivedBytes(), label.length));
+  }
+
+  @Test
+  public void write_failsOnceTheLinkDropped() throws Exception {
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    RecordingListener listener = new RecordingListener();
+    printer.failNextConnects(1);
+    printer.connect(listener);
+    assertTrue(listener.disconnected.tryAcquire(1, TimeUnit.SECONDS));
+    assertFalse(printer.isConnected());
+
+    printer.connect(listener);
+    assertTrue(listener.connected.await(1, TimeUnit.SECONDS));
+    printer.dropLink();
+    assertTrue(listener.disconnected.tryAcquire(1, TimeUnit.SECONDS));
+    try {
+      printer.write(new byte[] {1});
+      fail("write should fail");
+    } catch (IOException expected) {
+      assertEquals(0, printer.getReceivedCount());
+    }
+  }
+
+  @Test
+  public void transmitter_waitsWhilePrinterBufferIsFull() throws Exception {
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    printer.setBufferBytes(8 * 1024);
+    printer.setPrintRate(64 * 1024);
+    printer.setLatencyMs(5);
+    PrintStats stats = new PrintStats();
+    final PrintTransmitter transmitter = new PrintTransmitter(printer, 1024, 4 * 1024, stats);
+    RecordingListener listener = new RecordingListener() {
+      @Override
+      public void onBytesReceived(byte[] bytes) {
+        transmitter.onBytesReceived(bytes);
+      }
+    };
+    printer.connect(listener);
+    assertTrue(listener.connected.await(1, TimeUnit.SECONDS));
+
+    long start = System.nanoTime();
+    transmitter.send(new byte[40 * 1024], CommandLanguage.ZPL);
+    long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+    assertTrue(printer.getStatusQueries() > 0);
+    assertEquals(40 * 1024 + printer.getStatusQueries() * HostStatus.QUERY.length, printer.getReceivedCount());
+    assertEquals(0, stats.get(PrintStats.Counter.STATUS_TIMEOUTS));
+    // 32 KB beyond the buffer at 64 KB/s
+    assertTrue("sent in " + elapsedMs + " ms", elapsedMs >= 400);
+  }
+
+  @Test
+  public void transmitter_neverQueriesStatusInsideOtherLanguages() throws Exception {
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    final PrintTransmitter transmitter = new PrintTransmitter(printer, 1024, 4 * 1024, new PrintStats());
+    RecordingListener listener = new RecordingListener() {
+      @Override
+      public void onBytesReceived(byte[] bytes) {
+        transmitter.onBytesReceived(bytes);
+      }
+    };
+    printer.connect(listener);
+    assertTrue(listener.connected.await(1, TimeUnit.SECONDS));
+
+    // Binary graphic data larger than the window, as in a CPCL CG or ESC/POS GS v 0 command
+    byte[] graphic = new byte[20 * 1024];
+    Arrays.fill(graphic, (byte) 0x55);
+    transmitter.send(graphic, CommandLanguage.CPCL);
+    transmitter.send(graphic, CommandLanguage.ESC_POS);
+    transmitter.send(graphic, null);
+
+    assertEquals(0, printer.getStatusQueries());
+    assertEquals(3 * graphic.length, printer.getReceivedCount());
+
+    // ZPL after other languages is paced from an empty window
+    transmitter.send(graphic, CommandLanguage.ZPL);
+    assertEquals(4, printer.getStatusQueries());
+  }
+
+  @Test
+  public void session_completesThousandsOfJobsAcrossDroppedLinks() throws Exception {
+    final int jobCount = 2000;
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    final LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    printer.setBandwidth(4 * 1024 * 1024);
+    printer.setLatencyMs(1);
+    final PrinterSession session = new PrinterSession("00:11:22:33:44:55", scheduler, new PrintStats());
+    session.setPersistent(true);
+
+    final CountDownLatch connected = new CountDownLatch(1);
+    session.connect(printer, 1000, new HoneywellPrinterManager.PrinterCallback() {
+      @Override
+      public void onResult(boolean success, String message) {
+        connected.countDown();
+      }
+    });
+    assertTrue(connected.await(1, TimeUnit.SECONDS));
+
+    try {
+      runJobs(session, printer, jobCount);
+    } finally {
+      session.close();
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test
+  public void session_failsHeldJobsOncePrinterStaysAway() throws Exception {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    final PrinterSession session = new PrinterSession("00:11:22:33:44:55", scheduler, new PrintStats());
+    session.setPersistent(true);
+    session.setReconnectDeadlineMs(300);
+
+    final CountDownLatch connected = new CountDownLatch(1);
+    session.connect(printer, 1000, new HoneywellPrinterManager.PrinterCallback() {
+      @Override
+      public void onResult(boolean success, String message) {
+        connected.countDown();
+      }
+    });
+    assertTrue(connected.await(1, TimeUnit.SECONDS));
+
+    try {
+      printer.failNextConnects(Integer.MAX_VALUE);
+      printer.dropLink();
+      while (session.getConnectionState() != ConnectionState.RECONNECTING) {
+        Thread.sleep(1);
+      }
+      assertTrue(session.isAvailable());
+
+      final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+      session.jobQueue.submit(PrintJobQueue.PRIORITY_NORMAL, new PrintJobQueue.PrintTask() {
+        @Override
+        public String run() throws Exception {
+          if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+          }
+          return "Printed";
+        }
+      }, new HoneywellPrinterManager.PrinterCallback() {
+        @Override
+        public void onResult(boolean success, String message) {
+          results.add(success + ": " + message);
+        }
+      });
+
+      // The first retry fails after the deadline, so the held job runs and fails
+      assertEquals("false: Printer not connected", results.poll(5, TimeUnit.SECONDS));
+      assertEquals(ConnectionState.FAILED, session.getConnectionState());
+      assertFalse(session.isAvailable());
+      assertEquals(1, printer.getConnectCount());
+    } finally {
+      session.close();
+      scheduler.shutdownNow();
+    }
+  }
+
+  private static void runJobs(final PrinterSession session, LoopbackPrinterTransport printer, int jobCount)
+      throws InterruptedException {
+    // Never more jobs waiting than the queue holds
+    final Semaphore capacity = new Semaphore(PrintJobQueue.DEFAULT_CAPACITY);
+    final CountDownLatch finished = new CountDownLatch(jobCount);
+    final AtomicInteger succeeded = new AtomicInteger();
+    for (int i = 0; i < jobCount; i++) {
+      capacity.acquire();
+      if (i == jobCount / 3 || i == 2 * jobCount / 3) {
+        printer.dropLink();
+        while (session.isConnected()) {
+          Thread.sleep(1);
+        }
+      }
+
+      final byte[] label = ("^XA^FO10,10^A0N,30,30^FDJob " + i + "^FS^XZ").getBytes(StandardCharsets.US_ASCII);
+      session.jobQueue.submit(PrintJobQueue.PRIORITY_NORMAL, new PrintJobQueue.PrintTask() {
+        @Override
+        public String run() throws Exception {
+          if (!session.isConnected()) {
+            throw new IOException("Printer not connected");
+          }
+          session.getTransmitter().send(label, CommandLanguage.ZPL);
+          return "Printed";
+        }
+      }, new HoneywellPrinterManager.PrinterCallback() {
+        @Override
+        public void onResult(boolean success, String message) {
+          if (success) {
+            succeeded.incrementAndGet();
+          }
+          capacity.release();
+          finished.countDown();
+        }
+      });
+    }
+
+    assertTrue(finished.await(30, TimeUnit.SECONDS));
+    // Jobs already queued when the link drops may fail before the drop is reported,
+    // later ones are held until the reconnect and printed
+    assertTrue("succeeded " + succeeded.get(), succeeded.get() >= jobCount - 2 * PrintJobQueue.DEFAULT_CAPACITY);
+    assertEquals(succeeded.get(), printer.getFormatCount());
+    assertEquals(3, printer.getConnectCount());
+    assertEquals(ConnectionState.CONNECTED, session.getConnectionState());
+  }
+
+  private static class RecordingListener implements PrinterTransport.Listener {
+    final CountDownLatch connected = new CountDownLatch(1);
+    final Semaphore disconnected = new Semaphore(0);
+    final BlockingQueue<byte[]> replies = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onConnected() {
+      connected.countDown();
+    }
+
+    @Override
+    public void onDisconnected() {
+      disconnected.release();
+    }
+
+    @Override
+    public void onBytesReceived(byte[] bytes) {
+      replies.add(bytes);
+    }
+  }
+}
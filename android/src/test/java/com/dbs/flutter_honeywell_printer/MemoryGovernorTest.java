@@ -0,0 +1,48 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MemoryGovernorTest {
+
+  @Test
+  public void pageWithinBudget_isRenderedWhole() {
+    MemoryGovernor governor = new MemoryGovernor(MemoryGovernor.DEFAULT_BUDGET_BYTES, 2, 3);
+
+    // A4 page scaled to a 3 inch head
+    assertEquals(815, governor.bandRows(576, 815, 0));
+  }
+
+  @Test
+  public void longReceipt_isRenderedInBandsWithinBudget() {
+    int workers = 2;
+    int window = 3;
+    MemoryGovernor governor = new MemoryGovernor(MemoryGovernor.DEFAULT_BUDGET_BYTES, workers, window);
+
+    int rows = governor.bandRows(576, 50000, 0);
+
+    assertTrue("rows " + rows, rows >= MemoryGovernor.MIN_BAND_ROWS && rows < 50000);
+    long bandBitmaps = 576L * 4 * rows * workers;
+    long queuedBands = 72L * rows * window * (MemoryGovernor.QUEUED_BANDS_PER_PAGE + 1);
+    assertTrue(bandBitmaps + queuedBands <= MemoryGovernor.DEFAULT_BUDGET_BYTES);
+  }
+
+  @Test
+  public void pageLongerThanLabel_isSplitAtMaximumLength() {
+    MemoryGovernor governor = new MemoryGovernor(MemoryGovernor.DEFAULT_BUDGET_BYTES, 1, 2);
+
+    assertEquals(2000, governor.bandRows(576, 3000, 2000));
+    assertEquals(1500, governor.bandRows(576, 1500, 2000));
+  }
+
+  @Test
+  public void tinyBudget_stillRendersUsefulBands() {
+    MemoryGovernor governor = new MemoryGovernor(64 * 1024, 4, 5);
+
+    assertEquals(MemoryGovernor.MIN_BAND_ROWS, governor.bandRows(576, 10000, 0));
+    // A band is never taller than the page itself
+    assertEquals(100, governor.bandRows(576, 100, 0));
+  }
+}
@@ -0,0 +1,85 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MonochromeRasterTest {
+
+  @Test
+  public void isRowBlank_seesSingleDotAnywhereInRow() {
+    MonochromeRaster raster = raster(20, 4);
+    raster.getData()[raster.getBytesPerRow() * 2 + 2] = 0x08; // one dot at x = 20
+
+    assertTrue(raster.isRowBlank(1));
+    assertFalse(raster.isRowBlank(2));
+  }
+
+  @Test
+  public void findInkRows_returnsContentBounds() {
+    MonochromeRaster raster = raster(100, 6);
+    ink(raster, 30);
+    ink(raster, 70);
+
+    assertEquals(30, raster.findFirstInkRow(0, 100));
+    assertEquals(70, raster.findLastInkRow(0, 100));
+    assertEquals(100, raster.findFirstInkRow(71, 100));
+    assertEquals(70, raster.findLastInkRow(71, 100));
+  }
+
+  @Test
+  public void findInkBands_splitsOnLongBlankRunsOnly() {
+    MonochromeRaster raster = raster(200, 6);
+    for (int row = 10; row < 20; row++) {
+      ink(raster, row);
+    }
+    ink(raster, 25); // 5 blank rows before, stays in the first band
+    ink(raster, 100); // 74 blank rows before, starts a new band
+    ink(raster, 101);
+
+    assertArrayEquals(new int[] {10, 26, 100, 102}, raster.findInkBands(0, 200, 48));
+    assertArrayEquals(new int[] {10, 102}, raster.findInkBands(0, 200, 100));
+    assertArrayEquals(new int[0], raster.findInkBands(150, 200, 48));
+  }
+
+  @Test
+  public void packRgbaRows_thresholdsAndCompositesOverWhite() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(4, 1);
+    byte[] rgba = {
+        0, 0, 0, (byte) 255, // black
+        (byte) 255, (byte) 255, (byte) 255, (byte) 255, // white
+        0, 0, 0, 0, // transparent
+        0, 0, 0, (byte) 200, // mostly opaque black
+    };
+
+    raster.packRgbaRows(rgba, 0, 16, 0, 1, MonochromeRaster.DEFAULT_THRESHOLD);
+
+    assertEquals((byte) 0x90, raster.getData()[0]);
+  }
+
+  @Test
+  public void copyPackedRows_clearsPaddingBits() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(10, 2);
+    byte[] packed = {(byte) 0xFF, (byte) 0xFF, 0, 0, 0x3F, 0};
+
+    raster.copyPackedRows(packed, 0, 3, 0, 2);
+
+    assertArrayEquals(new byte[] {(byte) 0xFF, (byte) 0xC0, 0, 0}, raster.getData());
+    assertTrue(raster.isRowBlank(1));
+  }
+
+  private static MonochromeRaster raster(int height, int bytesPerRow) {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(bytesPerRow * 8, height);
+    return raster;
+  }
+
+  private static void ink(MonochromeRaster raster, int row) {
+    raster.getData()[row * raster.getBytesPerRow()] = (byte) 0x80;
+  }
+}
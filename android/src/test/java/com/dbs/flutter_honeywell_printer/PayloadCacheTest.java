@@ -0,0 +1,90 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class PayloadCacheTest {
+
+  @Test
+  public void keyFor_dependsOnContentAndParameters() throws IOException {
+    File dir = Files.createTempDirectory("payload-cache").toFile();
+    File first = writeFile(new File(dir, "a.pdf"), new byte[] {1, 2, 3});
+    File second = writeFile(new File(dir, "b.pdf"), new byte[] {1, 2, 3});
+    File other = writeFile(new File(dir, "c.pdf"), new byte[] {1, 2, 4});
+
+    assertEquals(PayloadCache.keyFor(first, "gap=true"), PayloadCache.keyFor(second, "gap=true"));
+    assertNotEquals(PayloadCache.keyFor(first, "gap=true"), PayloadCache.keyFor(other, "gap=true"));
+    assertNotEquals(PayloadCache.keyFor(first, "gap=true"), PayloadCache.keyFor(first, "gap=false"));
+    assertEquals(64, PayloadCache.keyFor(first, "").length());
+  }
+
+  @Test
+  public void keyFor_bytesMatchesFileWithSameContent() throws IOException {
+    File dir = Files.createTempDirectory("payload-cache").toFile();
+    File file = writeFile(new File(dir, "a.pdf"), new byte[] {1, 2, 3});
+
+    assertEquals(PayloadCache.keyFor(file, "gap=true"), PayloadCache.keyFor(new byte[] {1, 2, 3}, "gap=true"));
+    assertNotEquals(PayloadCache.keyFor(file, "gap=true"), PayloadCache.keyFor(new byte[] {1, 2}, "gap=true"));
+  }
+
+  @Test
+  public void get_readsFromDiskAfterRestart() throws IOException {
+    File dir = Files.createTempDirectory("payload-cache").toFile();
+    byte[] payload = "^XA^FO0,0^GFA,1,1,1,FF^FS^XZ".getBytes("US-ASCII");
+
+    new PayloadCache(dir, 1024, 1024).put("job", payload);
+    PayloadCache restarted = new PayloadCache(dir, 1024, 1024);
+
+    assertArrayEquals(payload, restarted.get("job"));
+    assertNull(restarted.get("missing"));
+  }
+
+  @Test
+  public void put_evictsLeastRecentlyUsedFromMemory() {
+    File dir = new File(System.getProperty("java.io.tmpdir"), "payload-cache-missing-" + System.nanoTime());
+    PayloadCache cache = new PayloadCache(dir, 400, 0); // disk tier disabled
+
+    cache.put("a", new byte[100]);
+    cache.put("b", new byte[100]);
+    cache.get("a");
+    cache.put("c", new byte[100]);
+    cache.put("d", new byte[100]);
+    cache.put("e", new byte[100]);
+
+    assertNull(cache.get("b"));
+    assertEquals(100, cache.get("a").length);
+    assertTrue(cache.getMemoryBytes() <= 400);
+  }
+
+  @Test
+  public void put_trimsDiskToBudget() throws IOException {
+    File dir = Files.createTempDirectory("payload-cache").toFile();
+    PayloadCache cache = new PayloadCache(dir, 0, 250); // memory tier disabled
+
+    cache.put("a", new byte[100]);
+    cache.put("b", new byte[100]);
+    cache.put("c", new byte[100]);
+
+    assertTrue(cache.getDiskBytes() <= 250);
+    assertEquals(100, cache.get("c").length);
+
+    cache.clear();
+    assertEquals(0, cache.getDiskBytes());
+  }
+
+  private static File writeFile(File file, byte[] data) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+}
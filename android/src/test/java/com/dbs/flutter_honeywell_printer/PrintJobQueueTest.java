@@ -0,0 +1,114 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PrintJobQueueTest {
+
+  @Test
+  public void fullQueue_rejectsNewJobByDefault() {
+    PrintJobQueue queue = new PrintJobQueue("test");
+    queue.setHeld(true);
+    queue.setLimits(2, PrintJobQueue.RejectionPolicy.REJECT_NEW);
+    List<String> results = new CopyOnWriteArrayList<>();
+    try {
+      assertTrue(queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("a"), recorder("a", results)) > 0);
+      assertTrue(queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("b"), recorder("b", results)) > 0);
+
+      assertEquals(-1, queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("c"), recorder("c", results)));
+      assertEquals(2, queue.size());
+      assertEquals("c:false:Print queue is full", results.get(0));
+    } finally {
+      queue.shutdown();
+    }
+  }
+
+  @Test
+  public void fullQueue_dropsOldestJobOfLowestPriority() throws Exception {
+    PrintJobQueue queue = new PrintJobQueue("test");
+    queue.setHeld(true);
+    queue.setLimits(2, PrintJobQueue.RejectionPolicy.DROP_OLDEST);
+    List<String> results = new CopyOnWriteArrayList<>();
+    CountDownLatch finished = new CountDownLatch(2);
+    try {
+      queue.submit(PrintJobQueue.PRIORITY_HIGH, task("reprint"), recorder("reprint", results, finished));
+      queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("old"), recorder("old", results));
+      assertTrue(queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("new"), recorder("new", results, finished)) > 0);
+
+      assertEquals(2, queue.size());
+      assertEquals("old:false:Dropped from full print queue", results.get(0));
+
+      queue.setHeld(false);
+      assertTrue(finished.await(2, TimeUnit.SECONDS));
+      assertEquals("reprint:true:reprint", results.get(1));
+      assertEquals("new:true:new", results.get(2));
+    } finally {
+      queue.shutdown();
+    }
+  }
+
+  @Test
+  public void rejectionCallback_canSubmitAgain() {
+    final PrintJobQueue queue = new PrintJobQueue("test");
+    queue.setHeld(true);
+    queue.setLimits(1, PrintJobQueue.RejectionPolicy.REJECT_NEW);
+    final List<String> results = new CopyOnWriteArrayList<>();
+    try {
+      queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("a"), recorder("a", results));
+      // The callback runs outside the queue lock, so it may use the queue from another thread
+      queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("b"), new HoneywellPrinterManager.PrinterCallback() {
+        @Override
+        public void onResult(boolean success, String message) {
+          Thread retry = new Thread() {
+            @Override
+            public void run() {
+              queue.submit(PrintJobQueue.PRIORITY_NORMAL, task("c"), recorder("c", results));
+            }
+          };
+          retry.start();
+          try {
+            retry.join(2000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          results.add("retried:" + !retry.isAlive());
+        }
+      });
+
+      assertEquals("c:false:Print queue is full", results.get(0));
+      assertEquals("retried:true", results.get(1));
+    } finally {
+      queue.shutdown();
+    }
+  }
+
+  private static PrintJobQueue.PrintTask task(final String message) {
+    return new PrintJobQueue.PrintTask() {
+      @Override
+      public String run() {
+        return message;
+      }
+    };
+  }
+
+  private static HoneywellPrinterManager.PrinterCallback recorder(String name, List<String> results) {
+    return recorder(name, results, new CountDownLatch(0));
+  }
+
+  private static HoneywellPrinterManager.PrinterCallback recorder(final String name, final List<String> results,
+      final CountDownLatch finished) {
+    return new HoneywellPrinterManager.PrinterCallback() {
+      @Override
+      public void onResult(boolean success, String message) {
+        results.add(name + ":" + success + ":" + message);
+        finished.countDown();
+      }
+    };
+  }
+}
@@ -0,0 +1,51 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class PrintJobTrackerTest {
+
+  @Test
+  public void reportsJobLifecycleWithTotals() {
+    final List<Map<String, Object>> events = new ArrayList<>();
+    PrintJobTracker tracker = new PrintJobTracker(7, "00:11:22:33:44:55", events::add);
+
+    tracker.queued("pdf", 0);
+    tracker.started();
+    tracker.pageRendered(0, 2, 5);
+    tracker.pageEncoded(0, 3, 1000);
+    tracker.bytesSent(0, 1000, 10);
+    tracker.pageDone(0, 2, 20);
+    tracker.bytesSent(1, 500, 10);
+    tracker.pageDone(1, 2, 20);
+    tracker.done();
+
+    assertEquals(9, events.size());
+    assertEquals(PrintJobTracker.QUEUED, events.get(0).get("type"));
+    assertEquals(7L, events.get(0).get("jobId"));
+    assertEquals("00:11:22:33:44:55", events.get(0).get("printer"));
+    assertEquals(1500L, events.get(6).get("totalBytes"));
+
+    Map<String, Object> done = events.get(8);
+    assertEquals(PrintJobTracker.DONE, done.get("type"));
+    assertEquals(2, done.get("pages"));
+    assertEquals(1500L, done.get("totalBytes"));
+    assertTrue((Long) done.get("bytesPerSecond") > 0);
+  }
+
+  @Test
+  public void countsWithoutListener() {
+    PrintJobTracker tracker = new PrintJobTracker(1, "printer", null);
+
+    tracker.started();
+    tracker.bytesSent(-1, 42, 1);
+    tracker.failed("Printer not connected");
+
+    assertEquals(42, tracker.getBytesSent());
+  }
+}
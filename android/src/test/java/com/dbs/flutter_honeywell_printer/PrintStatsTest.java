@@ -0,0 +1,85 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class PrintStatsTest {
+
+  @Test
+  public void bucketOf_isPowerOfTwoMicros() {
+    assertEquals(0, PrintStats.bucketOf(0));
+    assertEquals(1, PrintStats.bucketOf(1));
+    assertEquals(2, PrintStats.bucketOf(2));
+    assertEquals(2, PrintStats.bucketOf(3));
+    assertEquals(11, PrintStats.bucketOf(1024));
+    assertEquals(39, PrintStats.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void snapshot_reportsStagePercentiles() {
+    PrintStats stats = new PrintStats();
+    for (int i = 0; i < 99; i++) {
+      stats.record(PrintStats.Stage.ENCODE, 1000000); // 1 ms
+    }
+    stats.record(PrintStats.Stage.ENCODE, 100000000); // 100 ms
+
+    Map<String, Object> encode = stage(stats.snapshot(), "encode");
+    assertEquals(100L, encode.get("count"));
+    assertEquals(100.0, (Double) encode.get("maxMs"), 0.001);
+    assertEquals(1.99, (Double) encode.get("meanMs"), 0.001);
+    // Upper bounds within a factor of two
+    assertEquals(1.024, (Double) encode.get("p50Ms"), 0.001);
+    assertEquals(1.024, (Double) encode.get("p99Ms"), 0.001);
+    assertEquals(0L, stage(stats.snapshot(), "pdfOpen").get("count"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void reset_clearsCountersAndStages() {
+    PrintStats stats = new PrintStats();
+    stats.increment(PrintStats.Counter.JOBS_COMPLETED);
+    stats.add(PrintStats.Counter.BYTES_SENT, 4096);
+    stats.record(PrintStats.Stage.TRANSMIT, 5000000);
+
+    Map<String, Object> counters = (Map<String, Object>) stats.snapshot().get("counters");
+    assertEquals(1L, counters.get("jobsCompleted"));
+    assertEquals(4096L, counters.get("bytesSent"));
+    assertEquals(1, stats.getCount(PrintStats.Stage.TRANSMIT));
+
+    stats.reset();
+    assertEquals(0, stats.get(PrintStats.Counter.BYTES_SENT));
+    assertEquals(0, stats.getCount(PrintStats.Stage.TRANSMIT));
+    assertEquals(0.0, (Double) stage(stats.snapshot(), "transmit").get("maxMs"), 0.0);
+  }
+
+  @Test
+  public void rollingLogFile_keepsOneBackup() throws IOException {
+    File dir = Files.createTempDirectory("print-stats").toFile();
+    RollingLogFile log = new RollingLogFile(new File(dir, "stats.log"), 16);
+
+    log.append("first line");
+    log.append("second line");
+    log.append("third line");
+
+    List<String> current = Files.readAllLines(log.getFile().toPath(), StandardCharsets.UTF_8);
+    List<String> backup = Files.readAllLines(new File(dir, "stats.log.1").toPath(), StandardCharsets.UTF_8);
+    assertEquals(1, current.size());
+    assertEquals("third line", current.get(0));
+    // The first two lines fit before the limit, the third rolled them over
+    assertEquals(2, backup.size());
+    assertEquals("second line", backup.get(1));
+    assertEquals(2, dir.list().length);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> stage(Map<String, Object> snapshot, String name) {
+    return (Map<String, Object>) ((Map<String, Object>) snapshot.get("stages")).get(name);
+  }
+}
@@ -0,0 +1,93 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PrinterProfileTest {
+
+  private static final String CONFIG =
+      "  +10.0............... DARKNESS\r\n"
+          + "  4.0 IPS............. PRINT SPEED\r\n"
+          + "  CONTINUOUS.......... MEDIA TYPE\r\n"
+          + "  832 12/MM FULL...... PRINT WIDTH\r\n"
+          + "  1225................ LABEL LENGTH\r\n"
+          + "  39.0IN   988MM...... MAXIMUM LENGTH\r\n";
+
+  @Test
+  public void parse_readsResolutionHeadAndMedia() {
+    PrinterProfile profile = PrinterProfile.parse("ZT230-300dpi,V72.20.01Z,12,8192KB", CONFIG);
+
+    assertEquals("ZT230-300dpi", profile.model);
+    assertEquals(12, profile.dotsPerMm);
+    assertEquals(305, profile.getDpi());
+    assertEquals(832, profile.printWidthDots);
+    assertEquals(69, profile.getPrintWidthMm());
+    assertTrue(profile.isContinuous());
+    assertEquals(988 * 12, profile.maxLabelLengthDots);
+  }
+
+  @Test
+  public void parse_withoutConfigAssumesDefaultHeadWidth() {
+    PrinterProfile profile = PrinterProfile.parse("RP2,V1.0,8,4096KB", null);
+
+    assertEquals(576, profile.printWidthDots);
+    assertEquals(PrinterProfile.MEDIA_GAP, profile.mediaType);
+    assertEquals(0, profile.maxLabelLengthDots);
+  }
+
+  @Test
+  public void parse_rejectsMalformedModelReply() {
+    assertNull(PrinterProfile.parse("garbage", CONFIG));
+    assertNull(PrinterProfile.parse("MODEL,V1,x,8192KB", CONFIG));
+  }
+
+  @Test
+  public void query_readsProfileFromPrinter() throws Exception {
+    LoopbackPrinterTransport printer = new LoopbackPrinterTransport("loopback");
+    printer.setProfile(new PrinterProfile("RP2-203dpi", 8, 384, PrinterProfile.MEDIA_MARK, 8000));
+    final PrintTransmitter transmitter = new PrintTransmitter(printer);
+    final CountDownLatch connected = new CountDownLatch(1);
+    printer.connect(new PrinterTransport.Listener() {
+      @Override
+      public void onConnected() {
+        connected.countDown();
+      }
+
+      @Override
+      public void onDisconnected() {
+      }
+
+      @Override
+      public void onBytesReceived(byte[] bytes) {
+        transmitter.onBytesReceived(bytes);
+      }
+    });
+    try {
+      assertTrue(connected.await(1, TimeUnit.SECONDS));
+
+      String model = transmitter.query(PrinterProfile.MODEL_QUERY, 1000);
+      assertNotNull(model);
+      String config = transmitter.query(PrinterProfile.CONFIG_QUERY, 1000);
+      assertNotNull(config);
+      PrinterProfile profile = PrinterProfile.parse(model, config);
+
+      assertEquals("RP2-203dpi", profile.model);
+      assertEquals(8, profile.dotsPerMm);
+      assertEquals(384, profile.printWidthDots);
+      assertEquals(PrinterProfile.MEDIA_MARK, profile.mediaType);
+      assertEquals(1000 * 8, profile.maxLabelLengthDots);
+
+      // A printer that ignores the query leaves it without a reply
+      printer.setAnswersStatus(false);
+      assertNull(transmitter.query(PrinterProfile.MODEL_QUERY, 100));
+    } finally {
+      printer.disconnect();
+    }
+  }
+}
@@ -0,0 +1,329 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class TcpPrinterTransportTest {
+
+  @Test
+  public void write_deliversPipelinedChunksInOrderAndReadsReplies() throws Exception {
+    try (ServerSocket server = listen()) {
+      TcpPrinterTransport transport = transportTo(server);
+      RecordingListener listener = new RecordingListener();
+      transport.connect(listener);
+      try (Socket printer = server.accept()) {
+        assertTrue(listener.connected.await(2, TimeUnit.SECONDS));
+
+        byte[] expected = new byte[TcpPrinterTransport.MAX_PENDING_BYTES * 3];
+        for (int i = 0; i < expected.length; i++) {
+          expected[i] = (byte) (i * 31 + i / 4096);
+        }
+        ReadAll reader = new ReadAll(printer.getInputStream(), expected.length);
+        reader.start();
+        for (int offset = 0; offset < expected.length; offset += 4096) {
+          transport.write(Arrays.copyOfRange(expected, offset, offset + 4096));
+        }
+        reader.join(5000);
+        assertArrayEquals(expected, reader.received.toByteArray());
+
+        printer.getOutputStream().write("reply".getBytes(StandardCharsets.US_ASCII));
+        byte[] reply = listener.replies.poll(2, TimeUnit.SECONDS);
+        assertArrayEquals("reply".getBytes(StandardCharsets.US_ASCII), reply);
+      } finally {
+        transport.disconnect();
+      }
+    }
+  }
+
+  @Test
+  public void connect_reportsRefusedConnection() throws Exception {
+    ServerSocket server = listen();
+    TcpPrinterTransport transport = transportTo(server);
+    server.close();
+
+    RecordingListener listener = new RecordingListener();
+    transport.connect(listener);
+    assertTrue(listener.disconnected.tryAcquire(2, TimeUnit.SECONDS));
+    assertEquals(1, listener.connected.getCount());
+  }
+
+  @Test
+  public void listenerFailure_dropsLinkAndFailsWrites() throws Exception {
+    try (ServerSocket server = listen()) {
+      TcpPrinterTransport transport = transportTo(server);
+      RecordingListener listener = new RecordingListener() {
+        @Override
+        public void onBytesReceived(byte[] bytes) {
+          throw new IllegalStateException("listener failed");
+        }
+      };
+      transport.connect(listener);
+      try (Socket printer = server.accept()) {
+        assertTrue(listener.connected.await(2, TimeUnit.SECONDS));
+
+        printer.getOutputStream().write("reply".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(listener.disconnected.tryAcquire(2, TimeUnit.SECONDS));
+        try {
+          transport.write(new byte[TcpPrinterTransport.MAX_PENDING_BYTES]);
+          fail("write should fail");
+        } catch (IOException expected) {
+          // link is down
+        }
+      } finally {
+        transport.disconnect();
+      }
+    }
+  }
+
+  @Test
+  public void connect_givesUpOnUnresolvableHost() throws Exception {
+    TcpPrinterTransport transport = new TcpPrinterTransport("printer.invalid", TcpPrinterTransport.DEFAULT_PORT, 500);
+
+    RecordingListener listener = new RecordingListener();
+    transport.connect(listener);
+    // Reported within the connect timeout, whether the lookup fails or hangs
+    assertTrue(listener.disconnected.tryAcquire(2, TimeUnit.SECONDS));
+    assertEquals(1, listener.connected.getCount());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_rejectsPortOutOfRange() {
+    new TcpPrinterTransport("localhost", 70000, 2000);
+  }
+
+  @Test
+  public void drain_waitsUntilQueuedBytesWereSent() throws Exception {
+    try (ServerSocket server = listen()) {
+      final TcpPrinterTransport transport = transportTo(server);
+      RecordingListener listener = new RecordingListener();
+      transport.connect(listener);
+      try (Socket printer = server.accept()) {
+        assertTrue(listener.connected.await(2, TimeUnit.SECONDS));
+
+        // More than the socket buffers hold, so the tail stays queued while the printer does not read
+        final byte[] payload = new byte[16 * 1024 * 1024];
+        final CountDownLatch drained = new CountDownLatch(1);
+        Thread sender = new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (int offset = 0; offset < payload.length; offset += 64 * 1024) {
+                transport.write(Arrays.copyOfRange(payload, offset, offset + 64 * 1024));
+              }
+              transport.drain();
+              drained.countDown();
+            } catch (IOException | InterruptedException e) {
+              // test fails on the missing countdown
+            }
+          }
+        };
+        sender.setDaemon(true);
+        sender.start();
+        assertFalse(drained.await(300, TimeUnit.MILLISECONDS));
+
+        ReadAll reader = new ReadAll(printer.getInputStream(), payload.length);
+        reader.start();
+        assertTrue(drained.await(10, TimeUnit.SECONDS));
+        reader.join(10000);
+        assertEquals(payload.length, reader.received.size());
+      } finally {
+        transport.disconnect();
+      }
+    }
+  }
+
+  @Test
+  public void printerClosingSocket_dropsLinkAndFailsWrites() throws Exception {
+    try (ServerSocket server = listen()) {
+      TcpPrinterTransport transport = transportTo(server);
+      RecordingListener listener = new RecordingListener();
+      transport.connect(listener);
+      server.accept().close();
+      assertTrue(listener.connected.await(2, TimeUnit.SECONDS));
+
+      assertTrue(listener.disconnected.tryAcquire(2, TimeUnit.SECONDS));
+      try {
+        transport.write(new byte[] {1});
+        fail("write should fail");
+      } catch (IOException expected) {
+        // link is down
+      }
+    }
+  }
+
+  @Test
+  public void session_printsJobsToNetworkPrinter() throws Exception {
+    final int jobCount = 200;
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try (ServerSocket server = listen()) {
+      FakePrinter printer = new FakePrinter(server);
+      printer.start();
+      TcpPrinterTransport transport = transportTo(server);
+      final PrinterSession session = new PrinterSession(transport.getName(), scheduler, new PrintStats());
+
+      final CountDownLatch connected = new CountDownLatch(1);
+      session.connect(transport, 2000, new HoneywellPrinterManager.PrinterCallback() {
+        @Override
+        public void onResult(boolean success, String message) {
+          if (success) {
+            connected.countDown();
+          }
+        }
+      });
+      try {
+        assertTrue(connected.await(2, TimeUnit.SECONDS));
+
+        final CountDownLatch finished = new CountDownLatch(jobCount);
+        final AtomicInteger succeeded = new AtomicInteger();
+        final Semaphore capacity = new Semaphore(PrintJobQueue.DEFAULT_CAPACITY);
+        for (int i = 0; i < jobCount; i++) {
+          capacity.acquire();
+          final byte[] label = ("^XA^FO10,10^A0N,30,30^FDJob " + i + "^FS^XZ").getBytes(StandardCharsets.US_ASCII);
+          session.jobQueue.submit(PrintJobQueue.PRIORITY_NORMAL, new PrintJobQueue.PrintTask() {
+            @Override
+            public String run() throws Exception {
+              session.getTransmitter().send(label, CommandLanguage.ZPL);
+              return "Printed";
+            }
+          }, new HoneywellPrinterManager.PrinterCallback() {
+            @Override
+            public void onResult(boolean success, String message) {
+              if (success) {
+                succeeded.incrementAndGet();
+              }
+              capacity.release();
+              finished.countDown();
+            }
+          });
+        }
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(jobCount, succeeded.get());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (printer.formats.get() < jobCount && System.currentTimeMillis() < deadline) {
+          Thread.sleep(5);
+        }
+        assertEquals(jobCount, printer.formats.get());
+      } finally {
+        session.close();
+        scheduler.shutdownNow();
+      }
+    }
+  }
+
+  private static ServerSocket listen() throws IOException {
+    return new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+  }
+
+  private static TcpPrinterTransport transportTo(ServerSocket server) {
+    return new TcpPrinterTransport(InetAddress.getLoopbackAddress().getHostAddress(), server.getLocalPort(), 2000);
+  }
+
+  private static class ReadAll extends Thread {
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final InputStream in;
+    private final int length;
+
+    ReadAll(InputStream in, int length) {
+      this.in = in;
+      this.length = length;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      byte[] buffer = new byte[8192];
+      try {
+        int read;
+        while (received.size() < length && (read = in.read(buffer)) > 0) {
+          received.write(buffer, 0, read);
+          Thread.sleep(1); // a printer slower than the link
+        }
+      } catch (IOException | InterruptedException e) {
+        // test fails on the missing bytes
+      }
+    }
+  }
+
+  /**
+   * Counts the formats it receives and answers ~HS with an idle printer status
+   */
+  private static class FakePrinter extends Thread {
+    final AtomicInteger formats = new AtomicInteger();
+    private final ServerSocket server;
+
+    FakePrinter(ServerSocket server) {
+      this.server = server;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      byte[] status = ("\u0002030,0,0,1245,000,0,0,0,000,0,0,0\u0003\r\n"
+          + "\u0002000,0,0,0,1,2,6,0,00000000,1,000\u0003\r\n"
+          + "\u00021234,0\u0003\r\n").getBytes(StandardCharsets.US_ASCII);
+      try (Socket socket = server.accept()) {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        int previous2 = 0;
+        int previous1 = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+          if (previous2 == '^' && previous1 == 'X' && b == 'Z') {
+            formats.incrementAndGet();
+          } else if (previous2 == '~' && previous1 == 'H' && b == 'S') {
+            out.write(status);
+            out.flush();
+          }
+          previous2 = previous1;
+          previous1 = b;
+        }
+      } catch (IOException e) {
+        // the session closed the connection
+      }
+    }
+  }
+
+  private static class RecordingListener implements PrinterTransport.Listener {
+    final CountDownLatch connected = new CountDownLatch(1);
+    final Semaphore disconnected = new Semaphore(0);
+    final BlockingQueue<byte[]> replies = new LinkedBlockingQueue<>();
+
+    @Override
+    public void onConnected() {
+      connected.countDown();
+    }
+
+    @Override
+    public void onDisconnected() {
+      disconnected.release();
+    }
+
+    @Override
+    public void onBytesReceived(byte[] bytes) {
+      replies.add(bytes);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.Inflater;
+import org.junit.Test;
+
+public class ZplCompressorTest {
+
+  @Test
+  public void writeAscii_usesFillAndRepeatRowCodes() {
+    byte[] rows = {
+        (byte) 0xF0, 0x00,
+        (byte) 0xF0, 0x00,
+        0x00, 0x00,
+        (byte) 0xFF, (byte) 0xFF,
+        0x00, (byte) 0xF0,
+    };
+
+    CommandBuffer out = new CommandBuffer(16);
+    new ZplCompressor().writeAscii(out, rows, 0, 2, 5);
+
+    assertEquals("F,:,!H0F,", ascii(out));
+  }
+
+  @Test
+  public void writeAscii_encodesLongRunsWithRepeatCounts() {
+    byte[] row = new byte[23];
+    Arrays.fill(row, (byte) 0xAA);
+    row[22] = (byte) 0xA0;
+
+    CommandBuffer out = new CommandBuffer(16);
+    new ZplCompressor().writeAscii(out, row, 0, 23, 1);
+
+    // 45 x 'A' is h (40) + K (5)
+    assertEquals("hKA,", ascii(out));
+  }
+
+  @Test
+  public void writeZ64_roundTripsThroughInflate() throws Exception {
+    byte[] data = new byte[72 * 200];
+    for (int i = 0; i < data.length; i += 97) {
+      data[i] = (byte) i;
+    }
+
+    CommandBuffer out = new CommandBuffer(16);
+    new ZplCompressor().writeZ64(out, data, 0, data.length);
+    String encoded = ascii(out);
+
+    assertTrue(encoded.startsWith(":Z64:"));
+    String[] parts = encoded.substring(5).split(":");
+    byte[] base64 = parts[0].getBytes(StandardCharsets.US_ASCII);
+    assertEquals(String.format("%04X", ZplCompressor.crc16(base64, 0, base64.length)), parts[1]);
+
+    Inflater inflater = new Inflater();
+    inflater.setInput(Base64.getDecoder().decode(parts[0]));
+    ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+    byte[] chunk = new byte[4096];
+    while (!inflater.finished()) {
+      inflated.write(chunk, 0, inflater.inflate(chunk));
+    }
+    assertArrayEquals(data, inflated.toByteArray());
+  }
+
+  @Test
+  public void crc16_matchesCcittCheckValue() {
+    byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(0x31C3, ZplCompressor.crc16(check, 0, check.length));
+  }
+
+  @Test
+  public void autoCompression_picksTheSmallerEncoding() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(576, 400);
+
+    CommandBuffer ascii = new CommandBuffer(16);
+    new ZplGraphicEncoder(ZplGraphicEncoder.Compression.ASCII).writeGraphicField(ascii, raster, 0, 0);
+    CommandBuffer z64 = new CommandBuffer(16);
+    new ZplGraphicEncoder(ZplGraphicEncoder.Compression.Z64).writeGraphicField(z64, raster, 0, 0);
+    CommandBuffer auto = new CommandBuffer(16);
+    new ZplGraphicEncoder(ZplGraphicEncoder.Compression.AUTO).writeGraphicField(auto, raster, 0, 0);
+
+    assertEquals(Math.min(ascii.size(), z64.size()), auto.size());
+  }
+
+  private static String ascii(CommandBuffer out) {
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+}
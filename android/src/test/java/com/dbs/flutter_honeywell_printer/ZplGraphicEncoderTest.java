@@ -0,0 +1,60 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ZplGraphicEncoderTest {
+  private static final int WHITE = 0xFFFFFFFF;
+  private static final int BLACK = 0xFF000000;
+
+  @Test
+  public void packArgbRows_setsBitsForDarkPixelsMostSignificantFirst() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(10, 1);
+
+    int[] pixels = new int[10];
+    Arrays.fill(pixels, WHITE);
+    pixels[0] = BLACK;
+    pixels[7] = 0xFF404040;
+    pixels[9] = BLACK;
+    raster.packArgbRows(pixels, 0, 10, 0, 1, MonochromeRaster.DEFAULT_THRESHOLD);
+
+    assertEquals(2, raster.getBytesPerRow());
+    assertArrayEquals(new byte[] {(byte) 0x81, (byte) 0x40},
+        Arrays.copyOf(raster.getData(), 2));
+  }
+
+  @Test
+  public void packArgbRows_treatsTransparentPixelsAsWhite() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(8, 1);
+
+    int[] pixels = {0x00000000, 0x20000000, BLACK, WHITE, WHITE, WHITE, WHITE, WHITE};
+    raster.packArgbRows(pixels, 0, 8, 0, 1, MonochromeRaster.DEFAULT_THRESHOLD);
+
+    assertEquals((byte) 0x20, raster.getData()[0]);
+  }
+
+  @Test
+  public void writeGraphicField_emitsHexPayload() {
+    MonochromeRaster raster = new MonochromeRaster();
+    raster.reset(16, 2);
+    int[] pixels = new int[32];
+    Arrays.fill(pixels, WHITE);
+    for (int x = 0; x < 4; x++) {
+      pixels[x] = BLACK;
+    }
+    pixels[31] = BLACK;
+    raster.packArgbRows(pixels, 0, 16, 0, 2, MonochromeRaster.DEFAULT_THRESHOLD);
+
+    CommandBuffer out = new CommandBuffer(16);
+    new ZplGraphicEncoder(ZplGraphicEncoder.Compression.NONE).writeGraphicField(out, raster, 0, 8);
+
+    assertEquals("^FO0,8^GFA,4,4,2,F0000001^FS",
+        new String(out.toByteArray(), StandardCharsets.US_ASCII));
+  }
+}
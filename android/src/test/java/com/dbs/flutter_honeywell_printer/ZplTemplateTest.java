@@ -0,0 +1,59 @@
+package com.dbs.flutter_honeywell_printer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class ZplTemplateTest {
+
+  @Test
+  public void writeStoreFormat_wrapsBodyInDownloadFormat() {
+    ZplTemplate template = new ZplTemplate("receipt", "^XA^FO20,20^A0N,30,30^FN1^FS^XZ");
+    CommandBuffer out = new CommandBuffer(64);
+
+    template.writeStoreFormat(out);
+
+    assertEquals("^XA^DFR:RECEIPT.ZPL^FS^FO20,20^A0N,30,30^FN1^FS^XZ", ascii(out));
+  }
+
+  @Test
+  public void writeRecall_sendsOnlyFieldData() {
+    ZplTemplate template = new ZplTemplate("RECEIPT", "^FO20,20^A0N,30,30^FN1^FS");
+    Map<String, String> fields = new LinkedHashMap<>();
+    fields.put("1", "Order 42");
+    fields.put("2", "ACME");
+    CommandBuffer out = new CommandBuffer(64);
+
+    template.writeRecall(out, fields, 2);
+
+    assertEquals("^XA^CI28^XFR:RECEIPT.ZPL^FS^FN1^FH^FDOrder 42^FS^FN2^FH^FDACME^FS^PQ2^XZ", ascii(out));
+  }
+
+  @Test
+  public void writeFieldData_escapesCommandCharactersAndUtf8() {
+    CommandBuffer out = new CommandBuffer(64);
+
+    ZplTemplate.writeFieldData(out, "a^b~c_d\u00e9");
+
+    assertEquals("a_5Eb_7Ec_5Fd_C3_A9", ascii(out));
+  }
+
+  @Test
+  public void hash_changesWithFormat() {
+    assertEquals(new ZplTemplate("A", "^FN1^FS").hash, new ZplTemplate("a", "^XA^FN1^FS^XZ").hash);
+    assertNotEquals(new ZplTemplate("A", "^FN1^FS").hash, new ZplTemplate("A", "^FN2^FS").hash);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructor_rejectsInvalidName() {
+    new ZplTemplate("bad name", "^FN1^FS");
+  }
+
+  private static String ascii(CommandBuffer out) {
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+}
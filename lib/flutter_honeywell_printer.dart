@@ -1,5 +1,6 @@
 import 'dart:async';
 import 'dart:io';
+import 'dart:typed_data';
 
 import 'package:device_info_plus/device_info_plus.dart';
 import 'package:flutter/services.dart';
@@ -7,11 +8,60 @@ import 'package:permission_handler/permission_handler.dart';
 
 class FlutterHoneywellPrinter {
   static const MethodChannel _channel = MethodChannel('flutter_honeywell_printer');
+  static const EventChannel _events = EventChannel('flutter_honeywell_printer/events');
+
+  /// Progress events of print jobs
+  ///
+  /// Every event has 'type', 'jobId', 'printer' (MAC address) and 'elapsedMs' since the
+  /// job started. Types and their extra fields:
+  /// - 'queued': kind ('pdf', 'template', 'graphic', 'batch', 'raw', 'raster'), priority
+  /// - 'started'
+  /// - 'pageRendered': page, pageCount, renderMs (time the renderer took for the page;
+  ///   pages rendered in bands report the sum of their bands once the last one is done)
+  /// - 'pageEncoded': page, encodeMs, bytes
+  /// - 'bytesSent': page (-1 for jobs without pages), bytes, sendMs, totalBytes, bytesPerSecond
+  /// - 'pageDone': page, pageCount, pageMs
+  /// - 'done': pages, totalBytes, bytesPerSecond
+  /// - 'failed': message, pages, totalBytes
+  /// - 'submitted': only jobId and requestId, sent when a print call with an onQueued
+  ///   callback queued its job (used internally to deliver the job ID to that callback)
+  static Stream<Map<String, dynamic>> get printEvents => _printEvents;
+
+  // One native subscription shared by every listener, a second one would replace the first
+  static final Stream<Map<String, dynamic>> _printEvents =
+      _events.receiveBroadcastStream().map((event) => Map<String, dynamic>.from(event as Map));
+
+  static int _nextRequestId = 0;
+
+  /// Invoke a method that queues a print job, reporting the job's ID to [onQueued] as soon as
+  /// it is queued, while the returned future only completes once the job is done
+  static Future<dynamic> _submitJob(
+      String method, Map<String, dynamic> arguments, void Function(int jobId)? onQueued) async {
+    if (onQueued == null) {
+      return _channel.invokeMethod(method, arguments);
+    }
+    final int requestId = ++_nextRequestId;
+    final StreamSubscription<Map<String, dynamic>> subscription = _printEvents
+        .where((event) => event['type'] == 'submitted' && event['requestId'] == requestId)
+        .listen((event) => onQueued(event['jobId'] as int));
+    try {
+      return await _channel.invokeMethod(method, {...arguments, 'requestId': requestId});
+    } finally {
+      await subscription.cancel();
+    }
+  }
 
   /// Check if a printer is currently connected
-  static Future<bool> get isPrinterConnected async {
+  static Future<bool> get isPrinterConnected => isConnected();
+
+  /// Check if a specific printer is connected
+  ///
+  /// [macAddress] - The printer to check (default: the printer connected last)
+  static Future<bool> isConnected({String? macAddress}) async {
     try {
-      final bool result = await _channel.invokeMethod('isPrinterConnected');
+      final bool result = await _channel.invokeMethod('isPrinterConnected', {
+        'macAddress': macAddress,
+      });
       return result;
     } on PlatformException catch (e) {
       print('Error checking printer connection: ${e.message}');
@@ -19,16 +69,72 @@ class FlutterHoneywellPrinter {
     }
   }
 
+  /// Get the connection state: IDLE, CONNECTING, CONNECTED, FAILED or RECONNECTING
+  static Future<String> get connectionState => getConnectionState();
+
+  /// Get the connection state of a specific printer: IDLE, CONNECTING, CONNECTED, FAILED or RECONNECTING
+  ///
+  /// [macAddress] - The printer to check (default: the printer connected last)
+  static Future<String> getConnectionState({String? macAddress}) async {
+    try {
+      final String state = await _channel.invokeMethod('getConnectionState', {
+        'macAddress': macAddress,
+      });
+      return state;
+    } on PlatformException catch (e) {
+      print('Error getting connection state: ${e.message}');
+      return 'IDLE';
+    }
+  }
+
   /// Get the last connection error message
-  static Future<String> get lastConnectionError async {
+  static Future<String> get lastConnectionError => getLastConnectionError();
+
+  /// Get the last connection error message of a specific printer
+  ///
+  /// [macAddress] - The printer to check (default: the printer connected last)
+  static Future<String> getLastConnectionError({String? macAddress}) async {
     try {
-      final String errorMsg = await _channel.invokeMethod('getLastConnectionError');
+      final String errorMsg = await _channel.invokeMethod('getLastConnectionError', {
+        'macAddress': macAddress,
+      });
       return errorMsg;
     } on PlatformException catch (e) {
       return "Error retrieving connection status: ${e.message}";
     }
   }
 
+  /// Get what a printer can print, queried once when it first connects
+  ///
+  /// [macAddress] - The printer to check (default: the printer connected last)
+  ///
+  /// Returns a map with `model`, `dotsPerMm`, `dpi`, `printWidthDots`, `mediaType`
+  /// (GAP/NOTCH, MARK or CONTINUOUS) and `maxLabelLengthDots` (0 if unknown),
+  /// or null if the printer was never connected. Printers that do not answer the
+  /// query report a 576 dot head at 203 DPI.
+  static Future<Map<String, dynamic>?> getPrinterProfile({String? macAddress}) async {
+    try {
+      final Map<dynamic, dynamic>? result = await _channel.invokeMethod('getPrinterProfile', {
+        'macAddress': macAddress,
+      });
+      return result != null ? _toStringKeyed(result) : null;
+    } on PlatformException catch (e) {
+      print('Error getting printer profile: ${e.message}');
+      return null;
+    }
+  }
+
+  /// Get the MAC addresses of all connected printers
+  static Future<List<String>> get connectedPrinters async {
+    try {
+      final List<dynamic> result = await _channel.invokeMethod('getConnectedPrinters');
+      return result.cast<String>();
+    } on PlatformException catch (e) {
+      print('Error getting connected printers: ${e.message}');
+      return [];
+    }
+  }
+
   /// Check and request Bluetooth permissions
   static Future<bool> checkAndRequestPermissions() async {
     if (!Platform.isAndroid) {
@@ -71,9 +177,14 @@ class FlutterHoneywellPrinter {
 
   /// Connect to a printer using its MAC address
   ///
+  /// Printers that are already connected stay connected, and this printer becomes
+  /// the default for calls that don't pass a MAC address
+  ///
+  /// [timeoutMs] - How long to wait for the printer before failing (default: 10000)
+  ///
   /// Returns true if connection was successful
   /// Throws PlatformException if connection fails or permissions are denied
-  static Future<bool> connectPrinter(String macAddress) async {
+  static Future<bool> connectPrinter(String macAddress, {int timeoutMs = 10000}) async {
     if (macAddress.isEmpty) {
       throw PlatformException(
           code: 'INVALID_ARGUMENT',
@@ -91,7 +202,169 @@ class FlutterHoneywellPrinter {
     }
 
     try {
-      final bool result = await _channel.invokeMethod('connectPrinter', {'macAddress': macAddress});
+      final bool result = await _channel.invokeMethod('connectPrinter', {
+        'macAddress': macAddress,
+        'timeoutMs': timeoutMs,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Connect to a network printer on its raw TCP port
+  ///
+  /// [host] - The printer's IP address or host name, e.g. '192.168.1.40'
+  /// [port] - The printer's raw print port, 1 to 65535 (default: 9100)
+  /// [timeoutMs] - How long to wait for the printer before failing, name lookup included (default: 10000)
+  ///
+  /// The printer is identified as 'host:port', pass that as macAddress to the
+  /// other calls. Printers that are already connected stay connected, and this
+  /// printer becomes the default for calls that don't name one.
+  ///
+  /// Returns true if connection was successful
+  /// Throws PlatformException if connection fails
+  static Future<bool> connectNetworkPrinter(String host, {int port = 9100, int timeoutMs = 10000}) async {
+    try {
+      final bool result = await _channel.invokeMethod('connectNetworkPrinter', {
+        'host': host,
+        'port': port,
+        'timeoutMs': timeoutMs,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Set how many PDF pages are rendered in parallel
+  ///
+  /// [workers] - Number of render threads, 1 renders pages one at a time (default: 1, maximum: 8)
+  ///
+  /// Pages are still printed in document order. Each extra worker keeps one more
+  /// rendered page in memory. On Android 8.0 (API 26) and later all PDF renderers
+  /// share one lock, so extra workers do not rasterise pages in parallel and only
+  /// overlap converting a page to printer dots with rendering the next one.
+  ///
+  /// Returns true if the setting was applied
+  static Future<bool> setRenderWorkers(int workers) async {
+    try {
+      final bool result = await _channel.invokeMethod('setRenderWorkers', {
+        'workers': workers,
+      });
+      return result;
+    } on PlatformException catch (e) {
+      print('Error setting render workers: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Clear the cache of encoded print jobs
+  ///
+  /// Printed PDFs are cached by content and settings, so printing the same file
+  /// again skips rendering and encoding. Clearing frees the memory and disk it uses.
+  ///
+  /// Returns true if the cache was cleared
+  static Future<bool> clearPayloadCache() async {
+    try {
+      final bool result = await _channel.invokeMethod('clearPayloadCache');
+      return result;
+    } on PlatformException catch (e) {
+      print('Error clearing payload cache: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Enable or disable persistent connections
+  ///
+  /// When enabled, idle ZPL printers are probed with a ~HS keep-alive, a dropped
+  /// link is reconnected in the background with exponential backoff, and queued
+  /// jobs are held until the printer is back instead of failing. A printer that is
+  /// not back within 5 minutes is given up on and its held jobs fail. Disconnecting
+  /// a printer explicitly stops its reconnects.
+  ///
+  /// Returns true if the setting was applied
+  static Future<bool> setPersistentConnection(bool enabled) async {
+    try {
+      final bool result = await _channel.invokeMethod('setPersistentConnection', {
+        'enabled': enabled,
+      });
+      return result;
+    } on PlatformException catch (e) {
+      print('Error setting persistent connection: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Set the command languages a printer is driven in
+  ///
+  /// [languages] - Languages in order of preference: 'ZPL', 'CPCL', 'TSC' or 'ESC_POS'.
+  ///   Pages are sent in the first one (default: ['ZPL']). Jobs printed with
+  ///   smallestPayload encode each page in every listed language and send the
+  ///   smallest, so list only languages the printer understands without switching modes.
+  /// [macAddress] - The printer to configure (default: the printer connected last)
+  ///
+  /// Templates and graphics are always ZPL. Raw commands are sent unchanged
+  /// whatever the languages.
+  ///
+  /// Returns true if the languages were set
+  /// Throws PlatformException if a language is unknown
+  static Future<bool> setCommandLanguages(List<String> languages, {String? macAddress}) async {
+    try {
+      final bool result = await _channel.invokeMethod('setCommandLanguages', {
+        'languages': languages,
+        'macAddress': macAddress,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Limit how many print jobs may wait for a printer
+  ///
+  /// [capacity] - Maximum number of jobs waiting to start, at least 1 (default: 32)
+  /// [dropOldest] - When the queue is full, fail the oldest waiting job of the
+  ///   lowest priority to make room, e.g. for labels where only the latest
+  ///   matters, instead of rejecting the new job (default: false)
+  /// [macAddress] - The printer to configure (default: the printer connected last)
+  ///
+  /// Returns true if the limits were set
+  /// Throws PlatformException if the capacity is below 1 or no printer is known
+  static Future<bool> setPrintQueueLimits(
+      {int capacity = 32, bool dropOldest = false, String? macAddress}) async {
+    try {
+      final bool result = await _channel.invokeMethod('setPrintQueueLimits', {
+        'capacity': capacity,
+        'dropOldest': dropOldest,
+        'macAddress': macAddress,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Set how much printer memory registered graphics may take on a printer
+  ///
+  /// [budgetBytes] - Memory for stored graphics in bytes (default: 524288)
+  /// [macAddress] - The printer to configure (default: the printer connected last)
+  ///
+  /// The least recently used graphics are deleted from the printer before a
+  /// download that would exceed the budget.
+  ///
+  /// Returns true if the budget was set
+  /// Throws PlatformException if the budget is negative or no printer is known
+  static Future<bool> setGraphicMemoryBudget(int budgetBytes, {String? macAddress}) async {
+    try {
+      final bool result = await _channel.invokeMethod('setGraphicMemoryBudget', {
+        'budgetBytes': budgetBytes,
+        'macAddress': macAddress,
+      });
       return result;
     } on PlatformException {
       // Let the original exception propagate to caller
@@ -99,10 +372,68 @@ class FlutterHoneywellPrinter {
     }
   }
 
-  /// Disconnect from the currently connected printer
-  static Future<bool> disconnectPrinter() async {
+  /// Get print pipeline statistics for diagnostics
+  ///
+  /// Returns a map with `sinceMs`, `counters` (connect attempts and failures,
+  /// reconnects, jobs, pages, pages rendered in bands, bytes sent, cache hits,
+  /// flow control waits and status timeouts) and `stages`, where each of connect,
+  /// pdfOpen, render, pack, trim, encode, transmit and job holds count, totalMs,
+  /// meanMs, maxMs, p50Ms, p90Ms and p99Ms. `logFile` is the path of the stats log, or null.
+  static Future<Map<String, dynamic>> getPrintStats() async {
+    try {
+      final Map<dynamic, dynamic> result = await _channel.invokeMethod('getPrintStats');
+      return _toStringKeyed(result);
+    } on PlatformException catch (e) {
+      print('Error getting print stats: ${e.message}');
+      return {};
+    }
+  }
+
+  /// Reset all print pipeline statistics
+  ///
+  /// Returns true if the statistics were reset
+  static Future<bool> resetPrintStats() async {
+    try {
+      final bool result = await _channel.invokeMethod('resetPrintStats');
+      return result;
+    } on PlatformException catch (e) {
+      print('Error resetting print stats: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Enable or disable the stats log
+  ///
+  /// When enabled, one line per finished job (printer, pages, bytes, duration and
+  /// throughput) is appended to a rolling file in the app cache directory, see
+  /// `logFile` in [getPrintStats].
+  ///
+  /// Returns true if the setting was applied
+  static Future<bool> setStatsLogEnabled(bool enabled) async {
+    try {
+      final bool result = await _channel.invokeMethod('setStatsLogEnabled', {
+        'enabled': enabled,
+      });
+      return result;
+    } on PlatformException catch (e) {
+      print('Error setting stats log: ${e.message}');
+      return false;
+    }
+  }
+
+  static Map<String, dynamic> _toStringKeyed(Map<dynamic, dynamic> map) {
+    return map.map((key, value) => MapEntry(
+        key as String, value is Map ? _toStringKeyed(value) : value));
+  }
+
+  /// Disconnect from a printer
+  ///
+  /// [macAddress] - The printer to disconnect (default: the printer connected last)
+  static Future<bool> disconnectPrinter({String? macAddress}) async {
     try {
-      final bool result = await _channel.invokeMethod('disconnectPrinter');
+      final bool result = await _channel.invokeMethod('disconnectPrinter', {
+        'macAddress': macAddress,
+      });
       return result;
     } on PlatformException catch (e) {
       print('Error disconnecting printer: ${e.message}');
@@ -114,10 +445,17 @@ class FlutterHoneywellPrinter {
   ///
   /// [pdfPath] - The path to the PDF file in local storage
   /// [withGap] - Whether to print with a gap between pages (default: false)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs, e.g. for reprints (default: 0)
+  /// [smallestPayload] - Send each page in whichever of the printer's command languages is smallest, see [setCommandLanguages] (default: false)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
   ///
   /// Returns true if printing was successful
   /// Throws PlatformException if printing fails
-  static Future<bool> printPdfFromPath(String pdfPath, {bool withGap = false}) async {
+  static Future<bool> printPdfFromPath(String pdfPath,
+      {bool withGap = false, int priority = 0, bool smallestPayload = false, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
     // Check if file exists
     final file = File(pdfPath);
     if (!await file.exists()) {
@@ -127,8 +465,9 @@ class FlutterHoneywellPrinter {
       );
     }
 
-    // Check if printer is connected
-    if (!await isPrinterConnected) {
+    // Check if printer is connected, or reconnecting in persistent mode (the job is held until it is back)
+    final String state = await getConnectionState(macAddress: macAddress);
+    if (state == 'IDLE' || state == 'FAILED') {
       throw PlatformException(
           code: 'PRINTER_NOT_CONNECTED',
           message: 'Printer is not connected'
@@ -137,10 +476,13 @@ class FlutterHoneywellPrinter {
 
 
     try {
-      final bool result = await _channel.invokeMethod('printPdf', {
+      final bool result = await _submitJob('printPdf', {
         'pdfPath': pdfPath,
         'withGap': withGap,
-      });
+        'priority': priority,
+        'smallestPayload': smallestPayload,
+        'macAddress': macAddress,
+      }, onQueued);
       return result ;
 
     } on PlatformException {
@@ -148,4 +490,329 @@ class FlutterHoneywellPrinter {
       rethrow;
     }
   }
-}
\ No newline at end of file
+
+  /// Print a PDF held in memory, without writing it to a file first
+  ///
+  /// [pdf] - The PDF document, e.g. as generated by the app
+  /// [withGap] - Whether to print with a gap between pages (default: false)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs, e.g. for reprints (default: 0)
+  /// [smallestPayload] - Send each page in whichever of the printer's command languages is smallest, see [setCommandLanguages] (default: false)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// Returns true if printing was successful
+  /// Throws PlatformException if printing fails
+  static Future<bool> printPdfBytes(Uint8List pdf,
+      {bool withGap = false, int priority = 0, bool smallestPayload = false, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printPdfBytes', {
+        'bytes': pdf,
+        'withGap': withGap,
+        'priority': priority,
+        'smallestPayload': smallestPayload,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Print an image that is already rasterised at printer resolution, skipping PDF rendering
+  ///
+  /// [pixels] - RGBA pixels, e.g. from a widget captured with
+  ///   `image.toByteData(format: ImageByteFormat.rawStraightRgba)`, or with [packed]
+  ///   rows of 1 bit per pixel (most significant bit first, set bit black, each row
+  ///   padded to whole bytes)
+  /// [width] - Width in dots, at most the print head width (`printWidthDots` in [getPrinterProfile], 576 at 203 DPI)
+  /// [height] - Height in dots
+  /// [packed] - Whether [pixels] is already packed to 1 bit per pixel (default: false)
+  /// [withGap] - Print as a separate label rather than trimming blank space above and below (default: false)
+  /// [copies] - Number of copies to print (default: 1)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs (default: 0)
+  /// [smallestPayload] - Send each page in whichever of the printer's command languages is smallest, see [setCommandLanguages] (default: false)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// Returns true if printing was successful
+  /// Throws PlatformException if the raster size does not match or printing fails
+  static Future<bool> printRaster(Uint8List pixels, int width, int height,
+      {bool packed = false,
+      bool withGap = false,
+      int copies = 1,
+      int priority = 0,
+      bool smallestPayload = false,
+      String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printRaster', {
+        'pixels': pixels,
+        'width': width,
+        'height': height,
+        'packed': packed,
+        'withGap': withGap,
+        'copies': copies,
+        'priority': priority,
+        'smallestPayload': smallestPayload,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Send printer commands built by the app, such as a complete ZPL label
+  ///
+  /// [data] - The commands, sent unchanged, e.g. utf8.encode('^XA^FO20,20^A0N,30,30^FDHello^FS^XZ')
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs (default: 0)
+  /// [macAddress] - The printer to send to (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// The commands are queued with the other print jobs. Nothing is inserted into
+  /// them, so they are not paced with ~HS status queries; the link's own flow
+  /// control still holds writes back while the printer is busy.
+  ///
+  /// Returns true if the commands were sent
+  /// Throws PlatformException if sending fails
+  static Future<bool> printRaw(Uint8List data, {int priority = 0, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printRaw', {
+        'data': data,
+        'priority': priority,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Queue a PDF for printing without waiting for it to finish
+  ///
+  /// [pdfPath] - The path to the PDF file in local storage
+  /// [withGap] - Whether to print with a gap between pages (default: false)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs, e.g. for reprints (default: 0)
+  /// [smallestPayload] - Send each page in whichever of the printer's command languages is smallest, see [setCommandLanguages] (default: false)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  ///
+  /// Returns the ID of the queued job
+  /// Throws PlatformException if the job could not be queued
+  static Future<int> queuePdfFromPath(String pdfPath,
+      {bool withGap = false, int priority = 0, bool smallestPayload = false, String? macAddress}) async {
+    try {
+      final int jobId = await _channel.invokeMethod('queuePdf', {
+        'pdfPath': pdfPath,
+        'withGap': withGap,
+        'priority': priority,
+        'smallestPayload': smallestPayload,
+        'macAddress': macAddress,
+      });
+      return jobId;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Register a label format for [printTemplate]
+  ///
+  /// [name] - Template name, 1 to 16 letters, digits or underscores
+  /// [format] - ZPL format with ^FN placeholders for the variable fields, e.g.
+  ///   '^XA^FO20,20^A0N,30,30^FN1^FS^FO20,60^BCN,80^FN2^FS^XZ'
+  ///
+  /// The format is uploaded to each printer the first time it is used there
+  ///
+  /// Returns true if the template was registered
+  /// Throws PlatformException if the name or format is invalid
+  static Future<bool> registerTemplate(String name, String format) async {
+    try {
+      final bool result = await _channel.invokeMethod('registerTemplate', {
+        'name': name,
+        'format': format,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Print a label from a registered template
+  ///
+  /// [name] - The template name used in [registerTemplate]
+  /// [fields] - Field values keyed by ^FN number, e.g. {'1': 'Order 1234'}
+  /// [copies] - Number of copies to print (default: 1)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs, e.g. for reprints (default: 0)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// Returns true if printing was successful
+  /// Throws PlatformException if printing fails
+  static Future<bool> printTemplate(String name, Map<String, String> fields,
+      {int copies = 1, int priority = 0, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printTemplate', {
+        'name': name,
+        'fields': fields,
+        'copies': copies,
+        'priority': priority,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Print several documents as one job on the same connection
+  ///
+  /// [items] - The documents in print order, each a map with one of
+  /// 'pdfPath' (PDF in local storage), 'zpl' (raw ZPL) or 'template' (a name
+  /// used in [registerTemplate], with 'fields'), and optionally 'copies' (default: 1)
+  /// [withGap] - Print PDF pages as separate labels rather than one continuous receipt (default: false)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs (default: 0)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// Printer setup is sent once for the whole batch and copies of a label are
+  /// printed by the printer instead of being sent again, e.g.
+  /// [{'pdfPath': receipt, 'copies': 2}, {'template': 'SHIP', 'fields': {'1': 'A12'}}]
+  ///
+  /// Returns true if printing was successful
+  /// Throws PlatformException if printing fails
+  static Future<bool> printBatch(List<Map<String, dynamic>> items,
+      {bool withGap = false, int priority = 0, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printBatch', {
+        'items': items,
+        'withGap': withGap,
+        'priority': priority,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Register a recurring image, such as a logo, to be kept in printer memory
+  ///
+  /// [name] - Graphic name, 1 to 8 letters, digits or underscores
+  /// [imagePath] - Path to a PNG or JPEG image in local storage
+  ///
+  /// Templates place the graphic with ^XG and its printer path, e.g.
+  /// '^FO20,20^XGR:LOGO.GRF,1,1^FS' for a graphic named 'logo'. It is downloaded
+  /// to each printer once and recalled by name in later labels.
+  ///
+  /// Returns true if the graphic was registered
+  /// Throws PlatformException if the name is invalid or the image cannot be decoded
+  static Future<bool> registerGraphic(String name, String imagePath) async {
+    try {
+      final bool result = await _channel.invokeMethod('registerGraphic', {
+        'name': name,
+        'imagePath': imagePath,
+      });
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Print a registered graphic on its own label
+  ///
+  /// [name] - The graphic name used in [registerGraphic]
+  /// [x], [y] - Position on the label in dots (default: 0, 0)
+  /// [copies] - Number of copies to print (default: 1)
+  /// [priority] - Jobs with a higher priority jump ahead of waiting jobs (default: 0)
+  /// [macAddress] - The printer to print on (default: the printer connected last)
+  /// [onQueued] - Receives the job ID as soon as the job is queued, e.g. for [cancelJob]
+  ///   or to match the job's [printEvents]
+  ///
+  /// Returns true if printing was successful
+  /// Throws PlatformException if printing fails
+  static Future<bool> printGraphic(String name,
+      {int x = 0, int y = 0, int copies = 1, int priority = 0, String? macAddress,
+      void Function(int jobId)? onQueued}) async {
+    try {
+      final bool result = await _submitJob('printGraphic', {
+        'name': name,
+        'x': x,
+        'y': y,
+        'copies': copies,
+        'priority': priority,
+        'macAddress': macAddress,
+      }, onQueued);
+      return result;
+    } on PlatformException {
+      // Let the original exception propagate to caller
+      rethrow;
+    }
+  }
+
+  /// Cancel a queued print job that has not started printing yet
+  ///
+  /// Returns true if the job was cancelled
+  static Future<bool> cancelJob(int jobId) async {
+    try {
+      final bool result = await _channel.invokeMethod('cancelJob', {'jobId': jobId});
+      return result;
+    } on PlatformException catch (e) {
+      print('Error cancelling print job: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Set how much native memory idle page bitmaps may keep for reuse
+  ///
+  /// [budgetBytes] - Memory budget in bytes for the raster buffer pool (0 disables pooling)
+  ///
+  /// Returns true if the budget was applied
+  static Future<bool> setRasterPoolBudget(int budgetBytes) async {
+    try {
+      final bool result = await _channel.invokeMethod('setRasterPoolBudget', {
+        'budgetBytes': budgetBytes,
+      });
+      return result;
+    } on PlatformException catch (e) {
+      print('Error setting raster pool budget: ${e.message}');
+      return false;
+    }
+  }
+
+  /// Set how much native memory the rendered pages of a PDF job may take
+  ///
+  /// Pages that would not fit, such as long continuous receipts, are rendered
+  /// in horizontal bands and printed band by band, so any document prints in
+  /// bounded memory.
+  ///
+  /// [budgetBytes] - Memory budget in bytes (default: 32 MB)
+  ///
+  /// Returns true if the budget was applied
+  static Future<bool> setRenderMemoryBudget(int budgetBytes) async {
+    try {
+      final bool result = await _channel.invokeMethod('setRenderMemoryBudget', {
+        'budgetBytes': budgetBytes,
+      });
+      return result;
+    } on PlatformException catch (e) {
+      print('Error setting render memory budget: ${e.message}');
+      return false;
+    }
+  }
+}